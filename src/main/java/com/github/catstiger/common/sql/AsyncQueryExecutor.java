@@ -0,0 +1,242 @@
+package com.github.catstiger.common.sql;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 执行{@link JdbcTemplateProxy}异步查询（{@code queryAsync}、{@code getAsync}、{@code updateAsync}）的有界执行器。
+ * 同时执行的查询数量不超过{@link #getMaxConcurrency()}，因此异步查询不会占满连接池，同步的请求总能获得连接。
+ * <ul>
+ * <li>{@link #fixed(int)}：固定大小的平台线程池，等待队列有界，队列满的时候拒绝新的查询。</li>
+ * <li>{@link #virtual(int)}：Java 21以上，每个查询一个虚拟线程，用信号量限制同时执行的数量。</li>
+ * <li>{@link #forDataSource(DataSource, boolean)}：根据连接池的大小确定并发数。</li>
+ * </ul>
+ * 查询超时或者被取消（{@link CompletableFuture#cancel(boolean)}）的时候，调用{@link java.sql.Statement#cancel()}中止数据库端的执行。
+ */
+public final class AsyncQueryExecutor implements AutoCloseable {
+  /**
+   * 平台线程池等待队列的缺省容量
+   */
+  public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  /**
+   * 用于超时的定时器，所有的执行器共用
+   */
+  private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "async-query-timer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int maxConcurrency;
+  private final boolean virtual;
+
+  private AsyncQueryExecutor(ExecutorService executor, Semaphore permits, int maxConcurrency, boolean virtual) {
+    this.executor = executor;
+    this.permits = permits;
+    this.maxConcurrency = maxConcurrency;
+    this.virtual = virtual;
+  }
+
+  /**
+   * 使用固定大小的平台线程池，等待队列的容量为{@link #DEFAULT_QUEUE_CAPACITY}
+   * @param threads 线程数，即同时执行的查询的最大数量
+   */
+  public static AsyncQueryExecutor fixed(int threads) {
+    return fixed(threads, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * 使用固定大小的平台线程池
+   * @param threads 线程数，即同时执行的查询的最大数量
+   * @param queueCapacity 等待队列的容量，队列满的时候，返回的{@code CompletableFuture}以{@link RejectedExecutionException}结束
+   */
+  public static AsyncQueryExecutor fixed(int threads, int queueCapacity) {
+    if (threads < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("threads and queueCapacity must be positive.");
+    }
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "async-query-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return new AsyncQueryExecutor(executor, null, threads, false);
+  }
+
+  /**
+   * 每个查询使用一个虚拟线程，需要Java 21以上的运行环境
+   * @param maxConcurrency 同时执行的查询的最大数量，超出的查询在虚拟线程中等待
+   * @throws IllegalStateException 如果运行环境不支持虚拟线程
+   */
+  public static AsyncQueryExecutor virtual(int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive.");
+    }
+    Method factory = virtualThreadFactory();
+    if (factory == null) {
+      throw new IllegalStateException("Virtual threads require Java 21 or later.");
+    }
+    try {
+      ExecutorService executor = (ExecutorService) factory.invoke(null);
+      return new AsyncQueryExecutor(executor, new Semaphore(maxConcurrency), maxConcurrency, true);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to create virtual thread executor.", e);
+    }
+  }
+
+  /**
+   * 运行环境是否支持虚拟线程（Java 21以上）
+   */
+  public static boolean isVirtualThreadSupported() {
+    return virtualThreadFactory() != null;
+  }
+
+  /**
+   * 根据连接池的大小创建执行器，并发数参见{@link #concurrencyOf(DataSource)}
+   * @param dataSource 数据源
+   * @param preferVirtual 如果为{@code true}并且运行环境支持，使用虚拟线程，否则使用平台线程
+   */
+  public static AsyncQueryExecutor forDataSource(DataSource dataSource, boolean preferVirtual) {
+    int concurrency = concurrencyOf(dataSource);
+    if (preferVirtual && isVirtualThreadSupported()) {
+      return virtual(concurrency);
+    }
+    return fixed(concurrency);
+  }
+
+  /**
+   * 异步查询的并发数：对于Hikari连接池，为最大连接数的一半，给同步的请求保留另一半连接；
+   * 其他数据源为CPU的数量。
+   */
+  public static int concurrencyOf(DataSource dataSource) {
+    HikariDataSource hikari = null;
+    try {
+      if (dataSource instanceof HikariDataSource) {
+        hikari = (HikariDataSource) dataSource;
+      } else if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+        hikari = dataSource.unwrap(HikariDataSource.class);
+      }
+    } catch (SQLException e) {
+      hikari = null;
+    }
+    if (hikari != null) {
+      return Math.max(1, hikari.getMaximumPoolSize() / 2);
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * 提交一个数据库调用
+   * @param call 用于取消正在执行的Statement
+   * @param task 执行查询
+   * @param timeout 超时时间，小于等于0表示不限制
+   * @param unit 超时时间的单位
+   * @return 超时的时候以{@link TimeoutException}结束
+   */
+  <T> CompletableFuture<T> submit(CancellableCall call, Supplier<T> task, long timeout, TimeUnit unit) {
+    CompletableFuture<T> future = new CompletableFuture<T>();
+    Runnable runnable = () -> {
+      boolean acquired = false;
+      try {
+        if (permits != null) {
+          permits.acquire();
+          acquired = true;
+        }
+        if (!future.isDone()) { // 在等待期间可能已经超时或者被取消
+          future.complete(task.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.completeExceptionally(e);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        call.done();
+        if (acquired) {
+          permits.release();
+        }
+      }
+    };
+    try {
+      executor.execute(runnable);
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    if (timeout > 0) {
+      ScheduledFuture<?> expiry = timer.schedule(
+          () -> future.completeExceptionally(new TimeoutException("Query timed out after " + timeout + " " + unit)),
+          timeout, unit);
+      future.whenComplete((result, e) -> expiry.cancel(false));
+    }
+    future.whenComplete((result, e) -> {
+      if (e instanceof CancellationException || e instanceof TimeoutException) {
+        call.cancel();
+      }
+    });
+    return future;
+  }
+
+  /**
+   * 同时执行的查询的最大数量
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * 是否使用虚拟线程
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  /**
+   * 关闭执行器，已经提交的查询会继续执行
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * 在{@link #close()}之后，等待已经提交的查询执行完毕
+   * @return 如果在超时之前执行完毕，返回{@code true}
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  private static Method virtualThreadFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.github.catstiger.common.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+
+/**
+ * 一次可以取消的数据库调用：记录正在执行的{@link Statement}，取消的时候调用{@link Statement#cancel()}，
+ * 数据库会中止正在执行的SQL并释放连接。如果在创建Statement之前取消，则不再执行SQL。
+ */
+final class CancellableCall {
+  private static Logger logger = LoggerFactory.getLogger(CancellableCall.class);
+
+  private final AtomicReference<Statement> statement = new AtomicReference<Statement>();
+  private final int queryTimeout;
+  private volatile boolean cancelled = false;
+
+  /**
+   * @param queryTimeout 数据库端的超时时间（秒），小于等于0表示使用JdbcTemplate的设置
+   */
+  CancellableCall(int queryTimeout) {
+    this.queryTimeout = queryTimeout;
+  }
+
+  /**
+   * 返回一个{@link PreparedStatementCreator}，设置参数，创建的Statement被记录下来，用于取消
+   */
+  PreparedStatementCreator creator(String sql, Object[] args) {
+    return new Creator(sql, args);
+  }
+
+  /**
+   * 取消调用，可以重复调用。如果SQL正在执行，则调用{@link Statement#cancel()}
+   */
+  void cancel() {
+    cancelled = true;
+    Statement current = statement.getAndSet(null);
+    if (current != null) {
+      try {
+        current.cancel();
+      } catch (SQLException e) {
+        logger.debug("Failed to cancel statement: {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * SQL执行完毕之后调用，此后{@link #cancel()}不再影响Statement
+   */
+  void done() {
+    statement.set(null);
+  }
+
+  boolean isCancelled() {
+    return cancelled;
+  }
+
+  private final class Creator implements PreparedStatementCreator, SqlProvider {
+    private final String sql;
+    private final Object[] args;
+
+    Creator(String sql, Object[] args) {
+      this.sql = sql;
+      this.args = args;
+    }
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+      if (cancelled) {
+        throw new SQLException("Cancelled before execution.");
+      }
+      PreparedStatement ps = con.prepareStatement(sql);
+      if (queryTimeout > 0) {
+        ps.setQueryTimeout(queryTimeout);
+      }
+      new ArgumentPreparedStatementSetter(args).setValues(ps);
+      statement.set(ps);
+      if (cancelled) { // 在创建Statement的同时被取消
+        ps.cancel();
+      }
+      return ps;
+    }
+
+    @Override
+    public String getSql() {
+      return sql;
+    }
+  }
+}
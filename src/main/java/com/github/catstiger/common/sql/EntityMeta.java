@@ -0,0 +1,415 @@
+package com.github.catstiger.common.sql;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.Transient;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import com.github.catstiger.common.sql.annotation.SyncIgnore;
+import com.github.catstiger.common.sql.metamodel.EntityMetamodel;
+import com.github.catstiger.common.sql.metamodel.Metamodels;
+import com.github.catstiger.common.sql.metamodel.PropertyAccessor;
+import com.github.catstiger.common.util.ReflectUtil;
+
+/**
+ * 实体类的元数据：表名、别名、按顺序排列的字段、主键、外键，以及各个属性对应的Getter/Setter。
+ * <p>
+ * 每个实体类在每种命名策略下只解析一次，解析的结果是不可变的，可以在多个线程之间共享。
+ * {@link SQLFactory}、{@link ORMHelper}以及数据库同步工具都从这里获取实体类的结构，而不是每次都通过反射重新解析。
+ * 如果实体类有编译期生成的元数据（参见{@link com.github.catstiger.common.sql.metamodel.EntityMetamodelProcessor}），
+ * 读写属性的时候直接调用Getter/Setter，否则使用反射。
+ * </p>
+ *
+ * <pre>
+ * EntityMeta meta = EntityMeta.of(User.class);
+ * for (EntityMeta.Column column : meta.getColumns()) {
+ *   Object value = column.getValue(user); // 外键返回引用实体的ID
+ * }
+ * </pre>
+ *
+ * @author catstiger
+ *
+ */
+public final class EntityMeta {
+  /**
+   * 按照命名策略的类型分组缓存，与{@link ORMHelper}的实例划分方式一致
+   */
+  private static final Map<Class<?>, Map<Class<?>, EntityMeta>> registry = new ConcurrentHashMap<>(8);
+
+  private final Class<?> entityClass;
+  private final Class<?> namingStrategyClass;
+  private final String tablename;
+  private final String tableAlias;
+  private final String simpleAlias;
+  private final List<Column> columns;
+  private final Map<String, Column> columnsByField;
+  private final Column primary;
+
+  /**
+   * 使用缺省的命名策略，获取实体类的元数据
+   *
+   * @param entityClass 实体类
+   * @return 实体类的元数据
+   */
+  public static EntityMeta of(Class<?> entityClass) {
+    return of(entityClass, SQLRequest.DEFAULT_NAME_STRATEGY);
+  }
+
+  /**
+   * 获取实体类在指定命名策略下的元数据，第一次访问的时候解析，以后直接从缓存中读取
+   *
+   * @param entityClass 实体类
+   * @param namingStrategy 命名策略，如果为{@code null}，则使用缺省的命名策略
+   * @return 实体类的元数据
+   */
+  public static EntityMeta of(Class<?> entityClass, NamingStrategy namingStrategy) {
+    if (entityClass == null) {
+      throw new IllegalArgumentException("实体类不可为空！");
+    }
+    final NamingStrategy strategy = (namingStrategy == null ? SQLRequest.DEFAULT_NAME_STRATEGY : namingStrategy);
+    Map<Class<?>, EntityMeta> metas = registry.computeIfAbsent(strategy.getClass(), k -> new ConcurrentHashMap<>(64));
+
+    EntityMeta meta = metas.get(entityClass);
+    if (meta == null) {
+      // 解析过程中可能会访问其他实体类的元数据，因此不在computeIfAbsent中解析
+      meta = new EntityMeta(entityClass, strategy);
+      EntityMeta exists = metas.putIfAbsent(entityClass, meta);
+      if (exists != null) {
+        meta = exists;
+      }
+    }
+    return meta;
+  }
+
+  private EntityMeta(Class<?> entityClass, NamingStrategy namingStrategy) {
+    this.entityClass = entityClass;
+    this.namingStrategyClass = namingStrategy.getClass();
+    boolean isEntity = entityClass.getAnnotation(Entity.class) != null;
+    this.tablename = isEntity ? namingStrategy.tablename(entityClass) : null;
+    this.tableAlias = isEntity ? namingStrategy.tableAlias(entityClass) : null;
+    this.simpleAlias = isEntity ? namingStrategy.simpleAlias(entityClass) : null;
+
+    PropertyDescriptor[] propertyDescriptors = BeanUtils.getPropertyDescriptors(entityClass);
+    if (propertyDescriptors == null) {
+      throw new RuntimeException("无法获取PropertyDescriptor " + entityClass.getName());
+    }
+    @SuppressWarnings("unchecked")
+    EntityMetamodel<Object> metamodel = (EntityMetamodel<Object>) Metamodels.of(entityClass);
+    List<Column> cols = new ArrayList<>(propertyDescriptors.length);
+    for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
+      if (propertyDescriptor == null || StringUtils.isBlank(propertyDescriptor.getName())) {
+        continue;
+      }
+      Method readMethod = propertyDescriptor.getReadMethod();
+      Field field = ReflectUtil.findField(entityClass, propertyDescriptor.getName());
+      if (ignore(propertyDescriptor, readMethod, field)) {
+        continue;
+      }
+      PropertyAccessor<Object> accessor = metamodel == null ? null : metamodel.getAccessor(propertyDescriptor.getName());
+      cols.add(new Column(entityClass, namingStrategy, propertyDescriptor, field, accessor));
+    }
+    // 主键排在最前面，其他字段按照字段名排序
+    cols.sort(new Comparator<Column>() {
+      @Override
+      public int compare(Column c1, Column c2) {
+        boolean id1 = "id".equalsIgnoreCase(c1.column);
+        boolean id2 = "id".equalsIgnoreCase(c2.column);
+        if (id1 != id2) {
+          return id1 ? -1 : 1;
+        }
+        return c1.column.compareToIgnoreCase(c2.column);
+      }
+    });
+
+    List<Column> indexed = new ArrayList<>(cols.size());
+    Map<String, Column> byField = new LinkedHashMap<>(cols.size());
+    Column primaryCol = null;
+    for (int i = 0; i < cols.size(); i++) {
+      Column column = new Column(cols.get(i), i);
+      indexed.add(column);
+      byField.put(column.fieldname, column);
+      if (primaryCol == null && column.primary) {
+        primaryCol = column;
+      }
+    }
+
+    this.columns = Collections.unmodifiableList(indexed);
+    this.columnsByField = Collections.unmodifiableMap(byField);
+    this.primary = primaryCol;
+  }
+
+  /**
+   * 判断一个属性是否不对应数据库字段：没有Getter或者Field、被Transient标注、集合或者数组
+   */
+  private static boolean ignore(PropertyDescriptor propertyDescriptor, Method readMethod, Field field) {
+    if (readMethod == null || field == null) {
+      return true;
+    }
+    if (getAnnotation(field, readMethod, Transient.class) != null
+        || getAnnotation(field, readMethod, java.beans.Transient.class) != null) {
+      return true;
+    }
+    Class<?> propertyType = propertyDescriptor.getPropertyType();
+    return ClassUtils.isAssignable(Collection.class, propertyType) || propertyType.isArray();
+  }
+
+  /**
+   * 首先从Field上获取标注，如果没有，则从Getter上获取
+   */
+  static <T extends Annotation> T getAnnotation(Field field, Method getter, Class<T> annotationClass) {
+    T ann = field.getAnnotation(annotationClass);
+    if (ann == null && getter != null) {
+      ann = getter.getAnnotation(annotationClass);
+    }
+    return ann;
+  }
+
+  public Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * 解析元数据所使用的命名策略的类型
+   */
+  public Class<?> getNamingStrategyClass() {
+    return namingStrategyClass;
+  }
+
+  /**
+   * 实体类对应的表名，如果不是一个{@link Entity}，返回{@code null}
+   */
+  public String getTablename() {
+    return tablename;
+  }
+
+  public String getTableAlias() {
+    return tableAlias;
+  }
+
+  public String getSimpleAlias() {
+    return simpleAlias;
+  }
+
+  /**
+   * 返回所有字段，主键排在第一位，其他字段按照字段名排序，返回的{@code List}不可修改
+   */
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /**
+   * 根据属性名返回对应的字段，如果不存在，返回{@code null}
+   */
+  public Column getColumn(String fieldname) {
+    return columnsByField.get(fieldname);
+  }
+
+  /**
+   * 返回被{@link Id}标注的字段，如果没有，返回{@code null}
+   */
+  public Column getPrimary() {
+    return primary;
+  }
+
+  /**
+   * 返回主键字段名，如果没有被{@link Id}标注的字段，返回"id"
+   */
+  public String getPrimaryColumn() {
+    return primary != null ? primary.column : "id";
+  }
+
+  /**
+   * 实体类的一个属性与数据库字段的对应关系，解析之后不再改变。
+   *
+   * @author catstiger
+   *
+   */
+  public static final class Column {
+    private final String column;
+    private final String fieldname;
+    private final Field field;
+    private final Method getter;
+    private final Method setter;
+    /**
+     * 编译期生成的访问器，如果没有，为{@code null}
+     */
+    private final PropertyAccessor<Object> accessor;
+    private final Class<?> type;
+    private final boolean primary;
+    private final boolean primaryKey;
+    private final boolean foreign;
+    private final boolean joinColumn;
+    private final boolean syncIgnored;
+    private final int index;
+
+    private Column(Class<?> entityClass, NamingStrategy namingStrategy, PropertyDescriptor propertyDescriptor, Field field,
+        PropertyAccessor<Object> accessor) {
+      this.fieldname = propertyDescriptor.getName();
+      this.accessor = accessor;
+      this.field = field;
+      this.getter = propertyDescriptor.getReadMethod();
+      this.setter = propertyDescriptor.getWriteMethod();
+      ReflectionUtils.makeAccessible(getter);
+      if (setter != null) {
+        ReflectionUtils.makeAccessible(setter);
+      }
+      this.type = field.getType();
+      this.column = namingStrategy.columnName(entityClass, field);
+
+      this.primary = getAnnotation(field, getter, Id.class) != null;
+      this.joinColumn = getAnnotation(field, getter, JoinColumn.class) != null;
+      this.foreign = (joinColumn || getAnnotation(field, getter, ManyToOne.class) != null)
+          && type.getAnnotation(Entity.class) != null;
+      this.syncIgnored = getAnnotation(field, getter, SyncIgnore.class) != null
+          || getAnnotation(field, getter, ManyToMany.class) != null;
+      // 与ORMHelper#isPrimaryKey的规则一致，在UPDATE的SET子句中忽略
+      this.primaryKey = !syncIgnored && (primary || ("id".equals(field.getName()) && Long.class == type));
+      this.index = -1;
+    }
+
+    private Column(Column source, int index) {
+      this.column = source.column;
+      this.fieldname = source.fieldname;
+      this.field = source.field;
+      this.getter = source.getter;
+      this.setter = source.setter;
+      this.accessor = source.accessor;
+      this.type = source.type;
+      this.primary = source.primary;
+      this.primaryKey = source.primaryKey;
+      this.foreign = source.foreign;
+      this.joinColumn = source.joinColumn;
+      this.syncIgnored = source.syncIgnored;
+      this.index = index;
+    }
+
+    /**
+     * 从实体对象中获取字段的值，如果是外键，则返回引用的实体对象的ID
+     *
+     * @param entity 实体对象
+     * @return 字段值
+     */
+    public Object getValue(Object entity) {
+      Object value = getPropertyValue(entity);
+      if (foreign && value instanceof BaseEntity) {
+        return ((BaseEntity) value).getId();
+      }
+      return value;
+    }
+
+    /**
+     * 调用Getter获取属性值，外键返回的是引用的实体对象
+     */
+    public Object getPropertyValue(Object entity) {
+      if (accessor != null) {
+        return accessor.get(entity);
+      }
+      return ReflectUtil.invokeMethod(getter, entity);
+    }
+
+    /**
+     * 调用Setter设置属性值，如果没有Setter，则直接设置Field
+     */
+    public void setPropertyValue(Object entity, Object value) {
+      if (accessor != null) {
+        accessor.set(entity, value);
+      } else if (setter != null) {
+        ReflectUtil.invokeMethod(setter, entity, value);
+      } else {
+        ReflectUtil.setField(field, entity, value);
+      }
+    }
+
+    /**
+     * 数据库字段名
+     */
+    public String getColumn() {
+      return column;
+    }
+
+    /**
+     * 实体类属性名
+     */
+    public String getFieldname() {
+      return fieldname;
+    }
+
+    public Field getField() {
+      return field;
+    }
+
+    public Method getGetter() {
+      return getter;
+    }
+
+    public Method getSetter() {
+      return setter;
+    }
+
+    public Class<?> getType() {
+      return type;
+    }
+
+    /**
+     * 是否被{@link Id}标注
+     */
+    public boolean isPrimary() {
+      return primary;
+    }
+
+    /**
+     * 是否主键（被{@link Id}标注，或者是一个名为id的Long类型的属性），在UPDATE的SET子句中会被忽略
+     */
+    public boolean isPrimaryKey() {
+      return primaryKey;
+    }
+
+    /**
+     * 是否是指向其他实体类的外键
+     */
+    public boolean isForeign() {
+      return foreign;
+    }
+
+    /**
+     * 是否被{@link JoinColumn}标注
+     */
+    public boolean isJoinColumn() {
+      return joinColumn;
+    }
+
+    /**
+     * 是否在数据库同步的时候被忽略
+     */
+    public boolean isSyncIgnored() {
+      return syncIgnored;
+    }
+
+    /**
+     * 字段在{@link EntityMeta#getColumns()}中的位置
+     */
+    public int getIndex() {
+      return index;
+    }
+  }
+}
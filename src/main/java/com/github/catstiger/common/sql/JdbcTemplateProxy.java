@@ -1,11 +1,22 @@
 package com.github.catstiger.common.sql;
 
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
@@ -22,6 +33,7 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlProvider;
 import org.springframework.jdbc.core.StatementCallback;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.SQLExceptionTranslator;
@@ -29,19 +41,77 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 
 import com.github.catstiger.common.model.KeyValue;
-import com.github.catstiger.common.sql.mapper.BeanPropertyRowMapperEx;
+import com.github.catstiger.common.sql.cache.QueryResultCache;
+import com.github.catstiger.common.sql.columnar.ColumnarResult;
+import com.github.catstiger.common.sql.columnar.ColumnarResultExtractor;
+import com.github.catstiger.common.sql.count.CountStrategy;
+import com.github.catstiger.common.sql.count.ExactCountStrategy;
+import com.github.catstiger.common.sql.count.PagedQuery;
+import com.github.catstiger.common.sql.limit.DatabaseDetector;
+import com.github.catstiger.common.sql.mapper.CompactRow;
+import com.github.catstiger.common.sql.mapper.CompactRowMapper;
+import com.github.catstiger.common.sql.mapper.Mappers;
 import com.google.common.base.Preconditions;
 
 @Component
 public class JdbcTemplateProxy {
+  /**
+   * 批量执行时，每批的缺省行数
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  
+  /**
+   * 流式查询时，每次从数据库获取的缺省行数
+   */
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+  
+  /**
+   * 根据ID批量查询时，IN子句中ID的缺省最大数量
+   */
+  public static final int DEFAULT_IN_LIST_SIZE = 500;
+  
+  private static final ColumnarResultExtractor COLUMNAR_EXTRACTOR = new ColumnarResultExtractor();
+  
   @Autowired
   private JdbcTemplate jdbcTemplate;
+  
+  @Autowired(required = false)
+  private DatabaseDetector databaseDetector;
+  
+  /**
+   * {@link #queryPage(SQLReady, Page, Class)}缺省使用的策略
+   */
+  private CountStrategy countStrategy = new ExactCountStrategy();
+  
+  /**
+   * {@link #getAll(Class, Collection)}中，IN子句中ID的最大数量
+   */
+  private int inListSize = DEFAULT_IN_LIST_SIZE;
+  
+  /**
+   * 执行异步查询，如果没有设置，第一次使用的时候根据连接池的大小创建
+   */
+  private volatile AsyncQueryExecutor asyncExecutor;
+  
+  /**
+   * 查询结果的缓存，缺省为{@code null}，不缓存
+   */
+  private volatile QueryResultCache resultCache;
+  
+  /**
+   * 是否使用{@link CompactRow}作为queryForList、queryForMap返回的行，缺省为{@code false}
+   */
+  private volatile boolean compactRows;
 
   /**
    * @see org.springframework.jdbc.core.JdbcTemplate#batchUpdate(java.lang.String[])
    */
   public int[] batchUpdate(String... sql) throws DataAccessException {
-    return jdbcTemplate.batchUpdate(sql);
+    int[] results = jdbcTemplate.batchUpdate(sql);
+    for (String one : sql) {
+      invalidate(one);
+    }
+    return results;
   }
 
   /**
@@ -49,7 +119,7 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.BatchPreparedStatementSetter)
    */
   public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
-    return jdbcTemplate.batchUpdate(sql, pss);
+    return invalidated(sql, jdbcTemplate.batchUpdate(sql, pss));
   }
 
   /**
@@ -59,7 +129,7 @@ public class JdbcTemplateProxy {
    */
   public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
       ParameterizedPreparedStatementSetter<T> pss) throws DataAccessException {
-    return jdbcTemplate.batchUpdate(sql, batchArgs, batchSize, pss);
+    return invalidated(sql, jdbcTemplate.batchUpdate(sql, batchArgs, batchSize, pss));
   }
 
   /**
@@ -67,7 +137,7 @@ public class JdbcTemplateProxy {
    *      java.util.List)
    */
   public int[] batchUpdate(String sql, List<Object[]> batchArgs) throws DataAccessException {
-    return jdbcTemplate.batchUpdate(sql, batchArgs);
+    return invalidated(sql, jdbcTemplate.batchUpdate(sql, batchArgs));
   }
 
   /**
@@ -75,7 +145,7 @@ public class JdbcTemplateProxy {
    *      java.util.List, int[])
    */
   public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) throws DataAccessException {
-    return jdbcTemplate.batchUpdate(sql, batchArgs, argTypes);
+    return invalidated(sql, jdbcTemplate.batchUpdate(sql, batchArgs, argTypes));
   }
 
   /**
@@ -84,7 +154,7 @@ public class JdbcTemplateProxy {
    */
   public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters)
       throws DataAccessException {
-    return jdbcTemplate.call(csc, declaredParameters);
+    return invalidated(csc, jdbcTemplate.call(csc, declaredParameters));
   }
 
   /**
@@ -92,14 +162,14 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.CallableStatementCallback)
    */
   public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(csc, action);
+    return invalidated(csc, jdbcTemplate.execute(csc, action));
   }
 
   /**
    * @see org.springframework.jdbc.core.JdbcTemplate#execute(org.springframework.jdbc.core.ConnectionCallback)
    */
   public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(action);
+    return invalidatedAll(jdbcTemplate.execute(action));
   }
 
   /**
@@ -107,14 +177,14 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.PreparedStatementCallback)
    */
   public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(psc, action);
+    return invalidated(psc, jdbcTemplate.execute(psc, action));
   }
 
   /**
    * @see org.springframework.jdbc.core.JdbcTemplate#execute(org.springframework.jdbc.core.StatementCallback)
    */
   public <T> T execute(StatementCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(action);
+    return invalidatedAll(jdbcTemplate.execute(action));
   }
 
   /**
@@ -122,6 +192,7 @@ public class JdbcTemplateProxy {
    */
   public void execute(String sql) throws DataAccessException {
     jdbcTemplate.execute(sql);
+    invalidate(sql);
   }
 
   /**
@@ -129,7 +200,7 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.CallableStatementCallback)
    */
   public <T> T execute(String callString, CallableStatementCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(callString, action);
+    return invalidated(callString, jdbcTemplate.execute(callString, action));
   }
 
   /**
@@ -137,7 +208,7 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.PreparedStatementCallback)
    */
   public <T> T execute(String sql, PreparedStatementCallback<T> action) throws DataAccessException {
-    return jdbcTemplate.execute(sql, action);
+    return invalidated(sql, jdbcTemplate.execute(sql, action));
   }
 
   /**
@@ -379,6 +450,9 @@ public class JdbcTemplateProxy {
    * @see org.springframework.jdbc.core.JdbcTemplate#queryForList(java.lang.String)
    */
   public List<Map<String, Object>> queryForList(String sql) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.query(sql, new CompactRowMapper());
+    }
     return jdbcTemplate.queryForList(sql);
   }
 
@@ -403,6 +477,9 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[])
    */
   public List<Map<String, Object>> queryForList(String sql, Object... args) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.query(sql, new CompactRowMapper(), args);
+    }
     return jdbcTemplate.queryForList(sql, args);
   }
 
@@ -419,6 +496,9 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[], int[])
    */
   public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.query(sql, args, argTypes, new CompactRowMapper());
+    }
     return jdbcTemplate.queryForList(sql, args, argTypes);
   }
 
@@ -434,6 +514,9 @@ public class JdbcTemplateProxy {
   /**
    */
   public Map<String, Object> queryForMap(String sql) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.queryForObject(sql, new CompactRowMapper());
+    }
     return jdbcTemplate.queryForMap(sql);
   }
 
@@ -442,6 +525,9 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[])
    */
   public Map<String, Object> queryForMap(String sql, Object... args) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.queryForObject(sql, new CompactRowMapper(), args);
+    }
     return jdbcTemplate.queryForMap(sql, args);
   }
 
@@ -450,6 +536,9 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[], int[])
    */
   public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) throws DataAccessException {
+    if (compactRows) {
+      return jdbcTemplate.queryForObject(sql, args, argTypes, new CompactRowMapper());
+    }
     return jdbcTemplate.queryForMap(sql, args, argTypes);
   }
 
@@ -542,7 +631,13 @@ public class JdbcTemplateProxy {
    * @return 查询单个实体类，如果不存在，返回{@code null}, 如果有多个符合条件的结果，返回第一个。
    */
   public <T> T queryForObject(SQLReady sqlReady, Class<T> requiredType) {
-    return this.queryForObject(sqlReady.getSql(), new BeanPropertyRowMapperEx<T>(requiredType), sqlReady.getArgs());
+    if (resultCache != null) {
+      return getSingleObject(queryBySqlReady(sqlReady, requiredType));
+    }
+    if (hasNamedParameters(sqlReady)) {
+      return getSingleObject(queryNamed(sqlReady.getSql(), sqlReady.getNamedParameters(), requiredType));
+    }
+    return this.queryForObject(sqlReady.getSql(), Mappers.byClass(requiredType), sqlReady.getArgs());
   }
   
   /**
@@ -653,7 +748,7 @@ public class JdbcTemplateProxy {
    * @see org.springframework.jdbc.core.JdbcTemplate#update(org.springframework.jdbc.core.PreparedStatementCreator)
    */
   public int update(PreparedStatementCreator psc) throws DataAccessException {
-    return jdbcTemplate.update(psc);
+    return invalidated(psc, jdbcTemplate.update(psc));
   }
 
   /**
@@ -661,14 +756,14 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.support.KeyHolder)
    */
   public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
-    return jdbcTemplate.update(psc, generatedKeyHolder);
+    return invalidated(psc, jdbcTemplate.update(psc, generatedKeyHolder));
   }
 
   /**
    * @see org.springframework.jdbc.core.JdbcTemplate#update(java.lang.String)
    */
   public int update(String sql) throws DataAccessException {
-    return jdbcTemplate.update(sql);
+    return invalidated(sql, jdbcTemplate.update(sql));
   }
 
   /**
@@ -676,7 +771,7 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[])
    */
   public int update(String sql, Object... args) throws DataAccessException {
-    return jdbcTemplate.update(sql, args);
+    return invalidated(sql, jdbcTemplate.update(sql, args));
   }
 
   /**
@@ -684,7 +779,7 @@ public class JdbcTemplateProxy {
    *      java.lang.Object[], int[])
    */
   public int update(String sql, Object[] args, int[] argTypes) throws DataAccessException {
-    return jdbcTemplate.update(sql, args, argTypes);
+    return invalidated(sql, jdbcTemplate.update(sql, args, argTypes));
   }
 
   /**
@@ -692,7 +787,7 @@ public class JdbcTemplateProxy {
    *      org.springframework.jdbc.core.PreparedStatementSetter)
    */
   public int update(String sql, PreparedStatementSetter pss) throws DataAccessException {
-    return jdbcTemplate.update(sql, pss);
+    return invalidated(sql, jdbcTemplate.update(sql, pss));
   }
   
   /**
@@ -702,11 +797,89 @@ public class JdbcTemplateProxy {
    * @return requiredType 要求的Bean类型
    */
   public <T> List<T> queryBySqlReady(SQLReady sqlReady, Class<T> requiredType) {
-    return  jdbcTemplate.query(sqlReady.getSql(), new BeanPropertyRowMapperEx<T>(requiredType), sqlReady.getArgs());
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    return cachedQuery(positional.getSql(), positional.getArgs(), requiredType);
+  }
+  
+  /**
+   * 如果设置了{@link QueryResultCache}，从缓存中取得查询结果，否则直接查询。缓存中的实体对象是共享的，
+   * 返回的是它们的副本，调用者修改返回的对象不影响其他线程
+   */
+  private <T> List<T> cachedQuery(String sql, Object[] args, Class<T> requiredType) {
+    QueryResultCache cache = resultCache;
+    if (cache == null) {
+      return jdbcTemplate.query(sql, Mappers.byClass(requiredType), args);
+    }
+    List<T> rows = cache.get(sql, args, requiredType, 
+        () -> jdbcTemplate.query(sql, Mappers.byClass(requiredType), args));
+    if (BeanUtils.isSimpleValueType(requiredType)) {
+      return rows;
+    }
+    List<T> copies = new ArrayList<T>(rows.size());
+    for (T row : rows) {
+      copies.add(copyOf(row, requiredType));
+    }
+    return copies;
+  }
+  
+  /**
+   * 复制实体对象的属性（浅复制），关联的对象仍然是共享的
+   */
+  private static <T> T copyOf(T row, Class<T> requiredType) {
+    if (row == null) {
+      return null;
+    }
+    T copy = BeanUtils.instantiateClass(requiredType);
+    BeanUtils.copyProperties(row, copy);
+    return copy;
+  }
+  
+  /**
+   * 执行INSERT、UPDATE、DELETE等语句之后，使{@link QueryResultCache}中引用相关表的查询结果失效
+   */
+  private void invalidate(String sql) {
+    QueryResultCache cache = resultCache;
+    if (cache != null) {
+      cache.invalidate(sql);
+    }
+  }
+  
+  private <R> R invalidated(String sql, R result) {
+    invalidate(sql);
+    return result;
+  }
+  
+  /**
+   * 如果{@code creator}（{@link PreparedStatementCreator}或者{@link CallableStatementCreator}）实现了
+   * {@link SqlProvider}，使SQL引用的表的缓存失效，否则清空所有的缓存
+   */
+  private <R> R invalidated(Object creator, R result) {
+    QueryResultCache cache = resultCache;
+    if (cache != null) {
+      if (creator instanceof SqlProvider && ((SqlProvider) creator).getSql() != null) {
+        cache.invalidate(((SqlProvider) creator).getSql());
+      } else { // 不知道SQL，清空所有的缓存
+        cache.invalidateAll();
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * 回调中执行的SQL未知，清空所有的缓存
+   */
+  private <R> R invalidatedAll(R result) {
+    QueryResultCache cache = resultCache;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+    return result;
   }
   
   /**
-   * 根据{@link SQLReady}和{@link Page}执行limit查询
+   * 根据{@link SQLReady}和{@link Page}执行limit查询。如果{@link Page#isKeyset()}，使用Keyset分页，
+   * 查询之后{@link Page#getNextToken()}返回下一页的续页标记，参见{@link Page#keyset(String, String, boolean)}
    * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
    * @param page 给出分页参数，如果为null, 则查询全部匹配的数据
    * @param requiredType requiredType 要求的Bean类型
@@ -716,8 +889,89 @@ public class JdbcTemplateProxy {
     if (page == null) {
       return queryBySqlReady(sqlReady, requiredType);
     }
+    if (page.isKeyset()) {
+      return queryKeyset(sqlReady, page, Mappers.byClass(requiredType));
+    }
+    if (hasNamedParameters(sqlReady)) {
+      return queryNamed(sqlReady.limitSql(page.getStart(), page.getLimit()), sqlReady.getNamedParameters(), requiredType);
+    }
     
-    return jdbcTemplate.query(sqlReady.limitSql(page.getStart(), page.getLimit()), new BeanPropertyRowMapperEx<T>(requiredType), sqlReady.getArgs());
+    return jdbcTemplate.query(sqlReady.limitSql(page.getStart(), page.getLimit()), Mappers.byClass(requiredType), sqlReady.getArgs());
+  }
+  
+  /**
+   * 分页查询，使用缺省的{@link CountStrategy}（参见{@link #setCountStrategy(CountStrategy)}）查询当前页的数据和总行数
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param page 分页参数，查询的结果也保存在其中
+   * @param requiredType 要求的Bean类型
+   * @return 填充了数据和总行数的{@link Page}
+   */
+  public <T> Page queryPage(SQLReady sqlReady, Page page, Class<T> requiredType) {
+    return queryPage(sqlReady, page, Mappers.byClass(requiredType), countStrategy);
+  }
+  
+  /**
+   * 分页查询，由{@link CountStrategy}决定如何查询当前页的数据和总行数。{@link Page#getCountStrategy()}返回所使用的策略，
+   * {@link Page#isTotalExact()}表示总行数是否精确。
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param page 分页参数，不支持Keyset分页
+   * @param rowMapper {@link RowMapper}
+   * @param strategy 计算总行数的策略
+   * @return 填充了数据和总行数的{@link Page}
+   */
+  public <T> Page queryPage(SQLReady sqlReady, Page page, RowMapper<T> rowMapper, CountStrategy strategy) {
+    Preconditions.checkArgument(page != null && !page.isKeyset(), "Keyset pages are not supported, use queryBySqlReady.");
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    return new PagedQuery<T>(jdbcTemplate, positional.getSql(), positional.getArgs(), page, rowMapper, 
+        sqlReady.getLimitSqlInstance(), strategy).execute();
+  }
+  
+  public CountStrategy getCountStrategy() {
+    return countStrategy;
+  }
+  
+  /**
+   * 设置{@link #queryPage(SQLReady, Page, Class)}缺省使用的策略，缺省为{@link ExactCountStrategy}
+   */
+  public void setCountStrategy(CountStrategy countStrategy) {
+    Preconditions.checkNotNull(countStrategy);
+    this.countStrategy = countStrategy;
+  }
+  
+  public int getInListSize() {
+    return inListSize;
+  }
+  
+  /**
+   * 设置{@link #getAll(Class, Collection)}中，IN子句中ID的最大数量，缺省为{@link #DEFAULT_IN_LIST_SIZE}。
+   * Oracle最多允许1000个。
+   */
+  public void setInListSize(int inListSize) {
+    Preconditions.checkArgument(inListSize > 0, "inListSize must be positive.");
+    this.inListSize = inListSize;
+  }
+  
+  /**
+   * 执行Keyset分页查询，读取最后一行的排序字段和ID，生成下一页的续页标记。如果返回的行数少于{@link Page#getLimit()}，
+   * 说明没有下一页，续页标记为{@code null}
+   */
+  private <T> List<T> queryKeyset(SQLReady sqlReady, Page page, RowMapper<T> rowMapper) {
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    SQLReady keyset = SQLFactory.getInstance().keysetSql(positional.getSql(), positional.getArgs(), page, 
+        sqlReady.getLimitSqlInstance());
+    String sortLabel = SQLFactory.columnLabel(page.getKeysetColumn());
+    String idLabel = SQLFactory.columnLabel(page.getKeysetIdColumn());
+    final KeysetToken[] last = new KeysetToken[1];
+    List<T> rows = jdbcTemplate.query(keyset.getSql(), (rs, rowNum) -> {
+      if (rowNum == page.getLimit() - 1) {
+        last[0] = new KeysetToken(rs.getObject(sortLabel), rs.getObject(idLabel));
+      }
+      return rowMapper.mapRow(rs, rowNum);
+    }, keyset.getArgs());
+    page.setNextToken(last[0] == null ? null : last[0].encode());
+    return rows;
   }
   
   /**
@@ -726,9 +980,544 @@ public class JdbcTemplateProxy {
    * @return number of total rows.
    */
   public Long queryTotal(SQLReady sqlReady) {
+    if (hasNamedParameters(sqlReady)) {
+      SQLReady positional = NamedSQL.of(sqlReady.countSql()).bind(sqlReady.getNamedParameters());
+      return jdbcTemplate.queryForObject(positional.getSql(), Long.class, positional.getArgs());
+    }
     return jdbcTemplate.queryForObject(sqlReady.countSql(), Long.class, sqlReady.getArgs());
   }
   
+  /**
+   * 按列读取查询结果，用于报表和汇总：数值列保存为基本类型的数组，字符串列按字典编码，NULL记录在位图中，
+   * 比{@link #queryForList(String, Object...)}每一行一个{@code Map}占用的内存少得多，参见{@link ColumnarResult}。
+   * <pre>
+   * ColumnarResult result = jdbcTemplateProxy.queryColumnar(new SQLReady("SELECT dept_name, amount FROM t_order"));
+   * Map&lt;Object, Double&gt; amountByDept = result.sumBy("dept_name", "amount");
+   * </pre>
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @return 按列保存的查询结果
+   */
+  public ColumnarResult queryColumnar(SQLReady sqlReady) {
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    return jdbcTemplate.query(positional.getSql(), COLUMNAR_EXTRACTOR, positional.getArgs());
+  }
+  
+  /**
+   * 流式查询，每次从数据库获取{@link #DEFAULT_FETCH_SIZE}行，参见{@link #stream(SQLReady, RowMapper, int)}
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param requiredType 要求的Bean类型
+   * @return 必须关闭的{@link Stream}
+   */
+  public <T> Stream<T> stream(SQLReady sqlReady, Class<T> requiredType) {
+    return stream(sqlReady, Mappers.byClass(requiredType), DEFAULT_FETCH_SIZE);
+  }
+  
+  /**
+   * 流式查询，不会将所有的结果读入内存，用于导出等需要遍历大量数据的场景。对于MySQL，驱动逐行读取结果
+   * （忽略fetchSize）；对于H2，使用延迟执行（{@code LAZY_QUERY_EXECUTION}）；其他数据库每次获取fetchSize行。返回的{@link Stream}占用一个数据库连接，必须关闭：
+   * <pre>
+   * try (Stream&lt;User&gt; users = jdbcTemplateProxy.stream(sqlReady, mapper, 1000)) {
+   *   users.forEach(exporter::write);
+   * }
+   * </pre>
+   * 在关闭之前，同一个连接上不能执行其他的语句（MySQL的限制）。
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param rowMapper {@link RowMapper}
+   * @param fetchSize 每次从数据库获取的行数
+   * @return 必须关闭的{@link Stream}
+   */
+  public <T> Stream<T> stream(SQLReady sqlReady, RowMapper<T> rowMapper, int fetchSize) {
+    return streamingQuery(sqlReady, rowMapper, fetchSize).stream();
+  }
+  
+  /**
+   * 流式查询，对每一行调用action，每次从数据库获取{@link #DEFAULT_FETCH_SIZE}行
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param requiredType 要求的Bean类型
+   * @param action 处理每一行数据
+   * @return 处理的行数
+   */
+  public <T> long forEach(SQLReady sqlReady, Class<T> requiredType, Consumer<? super T> action) {
+    return forEach(sqlReady, Mappers.byClass(requiredType), DEFAULT_FETCH_SIZE, action);
+  }
+  
+  /**
+   * 流式查询，对每一行调用action，结束（包括抛出异常）之后释放数据库资源，参见{@link #stream(SQLReady, RowMapper, int)}
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和查询参数
+   * @param rowMapper {@link RowMapper}
+   * @param fetchSize 每次从数据库获取的行数
+   * @param action 处理每一行数据
+   * @return 处理的行数
+   */
+  public <T> long forEach(SQLReady sqlReady, RowMapper<T> rowMapper, int fetchSize, Consumer<? super T> action) {
+    Preconditions.checkNotNull(action);
+    long rows = 0L;
+    try (StreamingQuery<T> query = streamingQuery(sqlReady, rowMapper, fetchSize)) {
+      while (query.tryAdvance(action)) {
+        rows++;
+      }
+    }
+    return rows;
+  }
+  
+  private <T> StreamingQuery<T> streamingQuery(SQLReady sqlReady, RowMapper<T> rowMapper, int fetchSize) {
+    Preconditions.checkArgument(fetchSize > 0, "fetchSize must be positive.");
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    return new StreamingQuery<T>(jdbcTemplate, positional.getSql(), positional.getArgs(), rowMapper, fetchSize, 
+        getDatabaseDetector());
+  }
+  
+  /**
+   * 异步查询实体类集合，不限制超时时间，参见{@link #queryAsync(SQLReady, RowMapper, long, TimeUnit)}
+   */
+  public <T> CompletableFuture<List<T>> queryAsync(SQLReady sqlReady, Class<T> requiredType) {
+    return queryAsync(sqlReady, Mappers.byClass(requiredType), 0L, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * 在{@link AsyncQueryExecutor}上异步执行查询，几个互不依赖的查询可以同时执行，响应时间是最慢的一个，而不是所有查询之和。
+   * 查询使用另一个线程和另一个数据库连接，不在当前线程的事务中。
+   * 超时或者调用{@link CompletableFuture#cancel(boolean)}的时候，调用{@link java.sql.Statement#cancel()}中止数据库端的执行。
+   * <pre>
+   * CompletableFuture&lt;List&lt;Order&gt;&gt; orders = proxy.queryAsync(ordersSql, mapper, 2, TimeUnit.SECONDS);
+   * CompletableFuture&lt;User&gt; user = proxy.getAsync(User.class, userId);
+   * CompletableFuture.allOf(orders, user).join();
+   * </pre>
+   * @param sqlReady SQL和查询参数
+   * @param rowMapper 行映射
+   * @param timeout 超时时间，小于等于0表示不限制
+   * @param unit 超时时间的单位
+   * @return 超时的时候以{@link java.util.concurrent.TimeoutException}结束
+   */
+  public <T> CompletableFuture<List<T>> queryAsync(SQLReady sqlReady, RowMapper<T> rowMapper, long timeout, 
+      TimeUnit unit) {
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    CancellableCall call = new CancellableCall(timeoutSeconds(timeout, unit));
+    return getAsyncExecutor().<List<T>>submit(call, () -> jdbcTemplate.query(
+        call.creator(positional.getSql(), positional.getArgs()), new RowMapperResultSetExtractor<T>(rowMapper)),
+        timeout, unit);
+  }
+  
+  /**
+   * 根据ID异步查询实体对象，不限制超时时间，参见{@link #getAsync(Class, Long, long, TimeUnit)}
+   */
+  public <T> CompletableFuture<T> getAsync(Class<T> requiredType, Long id) {
+    return getAsync(requiredType, id, 0L, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * 根据ID异步查询实体对象，与{@link #get(Class, Long)}相同，如果不存在，结果为{@code null}
+   * @param requiredType 需要的对象类型
+   * @param id 实体对象的ID
+   * @param timeout 超时时间，小于等于0表示不限制
+   * @param unit 超时时间的单位
+   */
+  public <T> CompletableFuture<T> getAsync(Class<T> requiredType, Long id, long timeout, TimeUnit unit) {
+    SQLReady sqlReady = new SQLRequest(requiredType).usingAlias(true).byId(true).select().addArg(id);
+    return this.<T>queryAsync(sqlReady, Mappers.byClass(requiredType), timeout, unit)
+        .thenApply(results -> getSingleObject(results));
+  }
+  
+  /**
+   * 异步执行INSERT、UPDATE或者DELETE语句，不限制超时时间，参见{@link #updateAsync(SQLReady, long, TimeUnit)}
+   */
+  public CompletableFuture<Integer> updateAsync(SQLReady sqlReady) {
+    return updateAsync(sqlReady, 0L, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * 异步执行INSERT、UPDATE或者DELETE语句。语句在另一个连接上自动提交，不参与当前线程的事务。
+   * @param sqlReady SQL和参数
+   * @param timeout 超时时间，小于等于0表示不限制
+   * @param unit 超时时间的单位
+   * @return 影响的行数
+   */
+  public CompletableFuture<Integer> updateAsync(SQLReady sqlReady, long timeout, TimeUnit unit) {
+    SQLReady positional = hasNamedParameters(sqlReady) 
+        ? NamedSQL.of(sqlReady.getSql()).bind(sqlReady.getNamedParameters()) : sqlReady;
+    CancellableCall call = new CancellableCall(timeoutSeconds(timeout, unit));
+    String sql = positional.getSql();
+    return getAsyncExecutor().<Integer>submit(call, 
+        () -> invalidated(sql, jdbcTemplate.update(call.creator(sql, positional.getArgs()))), timeout, unit);
+  }
+  
+  /**
+   * 把超时时间向上取整为秒，作为数据库端的超时时间（{@link java.sql.Statement#setQueryTimeout(int)}）
+   */
+  private static int timeoutSeconds(long timeout, TimeUnit unit) {
+    if (timeout <= 0) {
+      return 0;
+    }
+    long millis = unit.toMillis(timeout);
+    return (int) Math.min(Integer.MAX_VALUE, (millis + 999L) / 1000L);
+  }
+  
+  /**
+   * 返回执行异步查询的{@link AsyncQueryExecutor}，如果没有设置，
+   * 则根据连接池的大小创建一个平台线程的执行器（参见{@link AsyncQueryExecutor#forDataSource(DataSource, boolean)}）
+   */
+  public AsyncQueryExecutor getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      synchronized (this) {
+        if (asyncExecutor == null) {
+          asyncExecutor = AsyncQueryExecutor.forDataSource(jdbcTemplate.getDataSource(), false);
+        }
+      }
+    }
+    return asyncExecutor;
+  }
+  
+  /**
+   * 设置执行异步查询的{@link AsyncQueryExecutor}，例如在Java 21上使用{@link AsyncQueryExecutor#virtual(int)}
+   */
+  public void setAsyncExecutor(AsyncQueryExecutor asyncExecutor) {
+    Preconditions.checkNotNull(asyncExecutor);
+    this.asyncExecutor = asyncExecutor;
+  }
+  
+  public QueryResultCache getResultCache() {
+    return resultCache;
+  }
+  
+  /**
+   * 设置查询结果的缓存，{@link #queryBySqlReady(SQLReady, Class)}、{@link #queryForObject(SQLReady, Class)}和
+   * {@link #get(Class, Long)}使用缓存，返回的实体对象是缓存中对象的副本（浅复制）；
+   * 通过本类执行的INSERT、UPDATE、DELETE等语句使相关表的缓存失效，{@code execute}和{@code call}方法中
+   * 不知道SQL的（回调、{@link ConnectionCallback}等）清空所有的缓存。
+   * 直接通过{@code JdbcTemplate}或者其他途径修改的数据，只能等待缓存过期。
+   * @param resultCache 查询结果的缓存，{@code null}表示不缓存
+   */
+  public void setResultCache(QueryResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+  
+  public boolean isCompactRows() {
+    return compactRows;
+  }
+  
+  /**
+   * 设置queryForList、queryForMap返回的行的形式。为{@code true}的时候，一个结果集的所有行共用一个列头，
+   * 每一行只是一个{@code Object[]}，通过只读的{@link CompactRow}访问，占用的内存和GC压力比每一行一个
+   * {@code LinkedCaseInsensitiveMap}小得多，适合序列化为JSON或者在模板中显示的结果。返回的行不能修改，
+   * 需要修改的时候复制为{@code new HashMap<>(row)}。
+   * @param compactRows {@code true}使用{@link CompactRow}，{@code false}（缺省）使用{@code JdbcTemplate}的可修改的Map
+   */
+  public void setCompactRows(boolean compactRows) {
+    this.compactRows = compactRows;
+  }
+  
+  /**
+   * 根据{@link PreparedQuery}查询指定类型的实体类集合
+   * @param query 预先编译的查询
+   * @param requiredType 要求的Bean类型
+   * @param args 查询参数，如果没有提供，则使用编译时的参数
+   * @return requiredType 要求的Bean类型
+   */
+  public <T> List<T> query(PreparedQuery query, Class<T> requiredType, Object... args) {
+    return jdbcTemplate.query(query.getSql(), Mappers.byClass(requiredType), query.resolveArgs(args));
+  }
+  
+  /**
+   * 根据{@link PreparedQuery}和{@link Page}执行limit查询，所有的分页共用同一个SQL
+   * @param query 预先编译的查询
+   * @param page 给出分页参数，如果为null, 则查询全部匹配的数据
+   * @param requiredType 要求的Bean类型
+   * @param args 查询参数，如果没有提供，则使用编译时的参数
+   * @return requiredType 要求的Bean类型
+   */
+  public <T> List<T> query(PreparedQuery query, Page page, Class<T> requiredType, Object... args) {
+    if (page == null) {
+      return query(query, requiredType, args);
+    }
+    String limitSql = query.getLimitSql();
+    if (limitSql == null) { //LimitSQL不支持占位符
+      return jdbcTemplate.query(SQLFactory.getInstance().limitSql(query.getSql(), page.getStart(), page.getLimit(), 
+          query.getLimitSqlInstance()),
+          Mappers.byClass(requiredType), query.resolveArgs(args));
+    }
+    return jdbcTemplate.query(limitSql, Mappers.byClass(requiredType), 
+        query.limitArgs(args, page.getStart(), page.getLimit()));
+  }
+  
+  /**
+   * 根据{@link PreparedQuery}查询单个实体对象
+   * @param query 预先编译的查询
+   * @param requiredType 要求的实体类类型
+   * @param args 查询参数，如果没有提供，则使用编译时的参数
+   * @return 查询单个实体类，如果不存在，返回{@code null}, 如果有多个符合条件的结果，返回第一个。
+   */
+  public <T> T queryForObject(PreparedQuery query, Class<T> requiredType, Object... args) {
+    return getSingleObject(query(query, requiredType, args));
+  }
+  
+  /**
+   * 查询符合{@link PreparedQuery}的行的数量，通常用于分页查询
+   * @param query 预先编译的查询
+   * @param args 查询参数，如果没有提供，则使用编译时的参数
+   * @return number of total rows.
+   */
+  public Long queryTotal(PreparedQuery query, Object... args) {
+    return jdbcTemplate.queryForObject(query.getCountSql(), Long.class, query.resolveArgs(args));
+  }
+  
+  /**
+   * 执行预先编译的INSERT, UPDATE或者DELETE语句
+   * @param query 预先编译的SQL
+   * @param args 参数，如果没有提供，则使用编译时的参数
+   * @return 影响的行数
+   */
+  public int update(PreparedQuery query, Object... args) {
+    return invalidated(query.getSql(), jdbcTemplate.update(query.getSql(), query.resolveArgs(args)));
+  }
+  
+  /**
+   * 批量插入实体对象，每批{@link #DEFAULT_BATCH_SIZE}行，参见{@link #insertAll(List, int, boolean)}
+   * @param entities 实体对象
+   * @return 插入的行数
+   */
+  public int insertAll(List<? extends BaseEntity> entities) {
+    return insertAll(entities, DEFAULT_BATCH_SIZE, false);
+  }
+  
+  /**
+   * 批量插入实体对象，参见{@link #insertAll(List, int, boolean)}
+   * @param entities 实体对象
+   * @param batchSize 每批的行数
+   * @return 插入的行数
+   */
+  public int insertAll(List<? extends BaseEntity> entities, int batchSize) {
+    return insertAll(entities, batchSize, false);
+  }
+  
+  /**
+   * 批量插入实体对象，忽略为{@code null}的字段。非空字段相同的实体对象共用一个INSERT语句，
+   * 分批通过{@code JdbcTemplate#batchUpdate(String, List)}执行。对于MySQL，配合JDBC URL中的
+   * {@code rewriteBatchedStatements=true}效果最好。
+   * @param entities 实体对象，可以是不同的实体类，ID为{@code null}的会自动生成ID
+   * @param batchSize 每批的行数
+   * @param multiValues 如果为{@code true}，并且数据库是MySQL或H2，则每批数据用一个多行VALUES的INSERT语句执行，
+   *     其他数据库忽略这个参数
+   * @return 插入的行数
+   */
+  public int insertAll(List<? extends BaseEntity> entities, int batchSize, boolean multiValues) {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive.");
+    if (entities == null || entities.isEmpty()) {
+      return 0;
+    }
+    SQLFactory sqlFactory = SQLFactory.getInstance();
+    boolean useMultiValues = multiValues && supportsMultiValues();
+    int rows = 0;
+    for (SQLBatch batch : sqlFactory.insertBatch(entities)) {
+      if (useMultiValues) {
+        for (SQLReady sqlReady : sqlFactory.multiValues(batch, batchSize)) {
+          rows += jdbcTemplate.update(sqlReady.getSql(), sqlReady.getArgs());
+          invalidate(sqlReady.getSql());
+        }
+      } else {
+        rows += batchUpdate(batch, batchSize);
+      }
+    }
+    return rows;
+  }
+  
+  /**
+   * 按照ID批量更新实体对象，每批{@link #DEFAULT_BATCH_SIZE}行，参见{@link #updateAllById(Collection, int)}
+   * @param entities 实体对象
+   * @return 每个实体对象更新的行数，顺序与entities一致
+   */
+  public <T extends BaseEntity> int[] updateAllById(Collection<T> entities) {
+    return updateAllById(entities, DEFAULT_BATCH_SIZE);
+  }
+  
+  /**
+   * 按照ID批量更新实体对象，忽略为{@code null}的字段。非空字段相同的实体对象共用一个UPDATE语句，
+   * 分批通过{@code JdbcTemplate#batchUpdate(String, List)}执行。
+   * @param entities 实体对象，可以是不同的实体类，ID不可为{@code null}
+   * @param batchSize 每批的行数
+   * @return 每个实体对象更新的行数，顺序与entities一致，如果驱动没有返回影响的行数，为{@link Statement#SUCCESS_NO_INFO}
+   */
+  public <T extends BaseEntity> int[] updateAllById(Collection<T> entities, int batchSize) {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive.");
+    if (entities == null || entities.isEmpty()) {
+      return new int[0];
+    }
+    return batchUpdate(SQLFactory.getInstance().updateBatchById(entities), entities.size(), batchSize);
+  }
+  
+  /**
+   * 插入或者更新一个实体对象，如果主键已经存在则更新非空字段，否则插入，参见{@link SQLFactory#upsert(SQLRequest, DatabaseDetector)}
+   * @param entity 实体对象，ID为{@code null}的会自动生成ID
+   * @return 影响的行数，对于MySQL，插入为1，更新为2
+   */
+  public int upsert(BaseEntity entity) {
+    SQLReady sqlReady = SQLFactory.getInstance().upsert(new SQLRequest(entity), getDatabaseDetector());
+    return invalidated(sqlReady.getSql(), jdbcTemplate.update(sqlReady.getSql(), sqlReady.getArgs()));
+  }
+  
+  /**
+   * 批量插入或者更新实体对象，每批{@link #DEFAULT_BATCH_SIZE}行，参见{@link #upsertAll(Collection, int)}
+   * @param entities 实体对象
+   * @return 每个实体对象影响的行数，顺序与entities一致
+   */
+  public <T extends BaseEntity> int[] upsertAll(Collection<T> entities) {
+    return upsertAll(entities, DEFAULT_BATCH_SIZE);
+  }
+  
+  /**
+   * 批量插入或者更新实体对象，忽略为{@code null}的字段。非空字段相同的实体对象共用一个语句，
+   * 分批通过{@code JdbcTemplate#batchUpdate(String, List)}执行。只支持MySQL和H2。
+   * @param entities 实体对象，可以是不同的实体类，ID为{@code null}的会自动生成ID
+   * @param batchSize 每批的行数
+   * @return 每个实体对象影响的行数，顺序与entities一致
+   */
+  public <T extends BaseEntity> int[] upsertAll(Collection<T> entities, int batchSize) {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive.");
+    if (entities == null || entities.isEmpty()) {
+      return new int[0];
+    }
+    return batchUpdate(SQLFactory.getInstance().upsertBatch(entities, getDatabaseDetector()), entities.size(), batchSize);
+  }
+  
+  /**
+   * 分批执行多个{@link SQLBatch}，按照{@link SQLBatch#getIndexes()}将每一行的执行结果放入返回的数组中
+   */
+  private int[] batchUpdate(List<SQLBatch> batches, int rows, int batchSize) {
+    int[] counts = new int[rows];
+    for (SQLBatch batch : batches) {
+      int[] indexes = batch.getIndexes();
+      List<Object[]> batchArgs = batch.getBatchArgs();
+      for (int from = 0; from < batchArgs.size(); from += batchSize) {
+        int to = Math.min(from + batchSize, batchArgs.size());
+        int[] results = jdbcTemplate.batchUpdate(batch.getSql(), batchArgs.subList(from, to));
+        for (int i = 0; i < results.length; i++) {
+          counts[indexes[from + i]] = results[i];
+        }
+      }
+      invalidate(batch.getSql());
+    }
+    return counts;
+  }
+  
+  /**
+   * 分批执行{@link SQLBatch}
+   * @param batch 一个SQL和多组参数
+   * @param batchSize 每批的行数
+   * @return 影响的行数，如果驱动没有返回影响的行数，则每组参数按1行计算
+   */
+  public int batchUpdate(SQLBatch batch, int batchSize) {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive.");
+    List<Object[]> batchArgs = batch.getBatchArgs();
+    int rows = 0;
+    for (int from = 0; from < batchArgs.size(); from += batchSize) {
+      int to = Math.min(from + batchSize, batchArgs.size());
+      int[] results = jdbcTemplate.batchUpdate(batch.getSql(), batchArgs.subList(from, to));
+      for (int result : results) {
+        rows += (result >= 0) ? result : (result == Statement.SUCCESS_NO_INFO ? 1 : 0);
+      }
+    }
+    invalidate(batch.getSql());
+    return rows;
+  }
+  
+  /**
+   * 是否支持多行VALUES的INSERT语句
+   */
+  private boolean supportsMultiValues() {
+    return getDatabaseDetector().isMySql() || getDatabaseDetector().isH2();
+  }
+  
+  private DatabaseDetector getDatabaseDetector() {
+    if (databaseDetector == null) {
+      databaseDetector = new DatabaseDetector(jdbcTemplate.getDataSource());
+    }
+    return databaseDetector;
+  }
+  
+  /**
+   * 使用命名参数（例如{@code :name}）查询，解析后的SQL会被缓存，参见{@link NamedSQL}
+   * @param sql 使用命名参数的SQL
+   * @param paramMap 参数，Key为参数名，值可以是集合，例如{@code IN (:ids)}
+   * @param requiredType 要求的Bean类型
+   * @return List of requiredType
+   */
+  public <T> List<T> queryNamed(String sql, Map<String, ?> paramMap, Class<T> requiredType) {
+    return queryNamed(sql, paramMap, Mappers.byClass(requiredType));
+  }
+  
+  /**
+   * 使用命名参数（例如{@code :name}）查询，解析后的SQL会被缓存，参见{@link NamedSQL}
+   * @param sql 使用命名参数的SQL
+   * @param paramMap 参数，Key为参数名，值可以是集合，例如{@code IN (:ids)}
+   * @param rowMapper {@link RowMapper}
+   * @return List of T
+   */
+  public <T> List<T> queryNamed(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) {
+    SQLReady positional = NamedSQL.of(sql).bind(paramMap);
+    return jdbcTemplate.query(positional.getSql(), rowMapper, positional.getArgs());
+  }
+  
+  /**
+   * 使用命名参数执行INSERT, UPDATE或者DELETE语句
+   * @param sql 使用命名参数的SQL
+   * @param paramMap 参数，Key为参数名
+   * @return 影响的行数
+   */
+  public int updateNamed(String sql, Map<String, ?> paramMap) {
+    SQLReady positional = NamedSQL.of(sql).bind(paramMap);
+    return invalidated(positional.getSql(), jdbcTemplate.update(positional.getSql(), positional.getArgs()));
+  }
+  
+  /**
+   * 执行{@link SQLReady}中的INSERT, UPDATE或者DELETE语句，如果有命名参数，则使用命名参数，
+   * 例如{@code new SQLRequest(entity).namedParams(true).insert()}生成的SQL
+   * @param sqlReady 给出{@link SQLReady}的实例，包括SQL和参数
+   * @return 影响的行数
+   */
+  public int update(SQLReady sqlReady) {
+    if (hasNamedParameters(sqlReady)) {
+      return updateNamed(sqlReady.getSql(), sqlReady.getNamedParameters());
+    }
+    return invalidated(sqlReady.getSql(), jdbcTemplate.update(sqlReady.getSql(), sqlReady.getArgs()));
+  }
+  
+  /**
+   * 使用命名参数批量执行，所有的行共用一个解析后的SQL，参数不能是集合
+   * @param sql 使用命名参数的SQL
+   * @param batchValues 每一个元素对应一行数据的参数
+   * @return 每一行影响的行数
+   */
+  public int[] batchUpdateNamed(String sql, List<? extends Map<String, ?>> batchValues) {
+    NamedSQL namedSql = NamedSQL.of(sql);
+    List<Object[]> batchArgs = new ArrayList<>(batchValues.size());
+    for (Map<String, ?> values : batchValues) {
+      batchArgs.add(namedSql.getArgs(values));
+    }
+    return invalidated(namedSql.getSql(), jdbcTemplate.batchUpdate(namedSql.getSql(), batchArgs));
+  }
+  
+  /**
+   * 使用命名参数批量执行，参数名为实体对象的属性名，外键属性的值为关联对象的ID。所有的行共用一个解析后的SQL，
+   * 例如{@code new SQLRequest(entity).namedParams(true).insert()}生成的SQL。
+   * @param sql 使用命名参数的SQL
+   * @param entities 每一个实体对象对应一行数据
+   * @return 每一行影响的行数
+   */
+  public int[] batchUpdateEntities(String sql, Collection<?> entities) {
+    NamedSQL namedSql = NamedSQL.of(sql);
+    List<Object[]> batchArgs = new ArrayList<>(entities.size());
+    for (Object entity : entities) {
+      batchArgs.add(namedSql.getArgs(new NamedSQL.EntityParameterSource(entity)));
+    }
+    return invalidated(namedSql.getSql(), jdbcTemplate.batchUpdate(namedSql.getSql(), batchArgs));
+  }
+  
+  private boolean hasNamedParameters(SQLReady sqlReady) {
+    return sqlReady.getNamedParameters() != null && !sqlReady.getNamedParameters().isEmpty();
+  }
+  
   /**
    * 根据ID查询单个实体对象，如果不存在，返回{@code null}
    * @param requiredType 需要的实体类类型
@@ -740,6 +1529,78 @@ public class JdbcTemplateProxy {
     return queryForObject(sqlReady, requiredType);
   }
   
+  /**
+   * 根据ID集合批量查询实体对象，结果按照ID在集合中第一次出现的顺序排列，不存在的ID被忽略。
+   * 参见{@link #getAllAsMap(Class, Collection)}
+   * @param requiredType 需要的对象类型
+   * @param ids ID集合，可以有重复的ID
+   * @return 实体对象的列表
+   */
+  public <T> List<T> getAll(Class<T> requiredType, Collection<Long> ids) {
+    return new ArrayList<T>(getAllAsMap(requiredType, ids).values());
+  }
+  
+  /**
+   * 根据ID集合批量查询实体对象，用于替代循环调用{@link #get(Class, Long)}（N+1查询）。
+   * <ul>
+   * <li>去掉重复的和为{@code null}的ID。</li>
+   * <li>每条SQL的IN子句最多包含{@link #getInListSize()}个ID，超出的部分分批查询。</li>
+   * <li>每批ID的数量向上归并到2的幂（不超过{@code inListSize}），不足的部分用最后一个ID补齐，
+   * 因此不同的SQL只有少数几条，可以被缓存和重用（包括数据库的执行计划）。</li>
+   * </ul>
+   * @param requiredType 需要的对象类型
+   * @param ids ID集合，可以有重复的ID
+   * @return Key为ID，按照ID在集合中第一次出现的顺序排列，不存在的ID不在其中
+   */
+  public <T> Map<Long, T> getAllAsMap(Class<T> requiredType, Collection<Long> ids) {
+    Preconditions.checkNotNull(ids);
+    Set<Long> unique = new LinkedHashSet<Long>(ids);
+    unique.remove(null);
+    if (unique.isEmpty()) {
+      return new LinkedHashMap<Long, T>();
+    }
+    
+    SQLRequest sqlRequest = new SQLRequest(requiredType).usingAlias(true);
+    EntityMeta.Column primary = EntityMeta.of(requiredType, sqlRequest.getNamingStrategy()).getPrimary();
+    Preconditions.checkArgument(primary != null, "No primary key found in %s", requiredType.getName());
+    RowMapper<T> rowMapper = Mappers.byClass(requiredType);
+    
+    List<Long> idList = new ArrayList<Long>(unique);
+    Map<Long, T> found = new HashMap<Long, T>(idList.size() * 4 / 3 + 1);
+    for (int from = 0; from < idList.size(); from += inListSize) {
+      List<Long> chunk = idList.subList(from, Math.min(from + inListSize, idList.size()));
+      int size = inListBucket(chunk.size());
+      Object[] args = new Object[size];
+      for (int i = 0; i < size; i++) {
+        args[i] = chunk.get(Math.min(i, chunk.size() - 1)); // 用最后一个ID补齐
+      }
+      String sql = SQLFactory.getInstance().selectByIds(sqlRequest, size).getSql();
+      for (T entity : jdbcTemplate.query(sql, rowMapper, args)) {
+        Object id = primary.getPropertyValue(entity);
+        if (id instanceof Number) {
+          found.put(((Number) id).longValue(), entity);
+        }
+      }
+    }
+    
+    Map<Long, T> results = new LinkedHashMap<Long, T>(found.size() * 4 / 3 + 1);
+    for (Long id : idList) {
+      T entity = found.get(id);
+      if (entity != null) {
+        results.put(id, entity);
+      }
+    }
+    return results;
+  }
+  
+  /**
+   * 返回不小于{@code count}的2的幂，但是不超过{@link #inListSize}
+   */
+  private int inListBucket(int count) {
+    int bucket = (count <= 1) ? 1 : Integer.highestOneBit(count - 1) << 1;
+    return Math.min(bucket, inListSize);
+  }
+  
   /**
    * 根据指定的字段，查询（精确匹配）单个记录
    * @param requiredType 需要的对象类型
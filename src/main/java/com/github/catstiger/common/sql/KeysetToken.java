@@ -0,0 +1,125 @@
+package com.github.catstiger.common.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Keyset分页的续页标记，保存上一页最后一行的排序字段的值和ID。对于调用者来说，标记是不透明的字符串
+ * （URL安全的Base64），可以直接作为请求参数传递，参见{@link Page#after(String)}。
+ * <p>
+ * 排序字段的值保留类型（整数、大整数、小数、时间、布尔、字符串），解码之后可以直接作为SQL参数。
+ * </p>
+ */
+public final class KeysetToken {
+  private static final char SEPARATOR = '\u0001';
+
+  private final Object sortValue;
+  private final Object id;
+
+  public KeysetToken(Object sortValue, Object id) {
+    this.sortValue = sortValue;
+    this.id = id;
+  }
+
+  /**
+   * 解析续页标记
+   * @param token {@link #encode()}生成的标记
+   * @return Instance of {@code KeysetToken}
+   * @throws IllegalArgumentException 如果标记不合法
+   */
+  public static KeysetToken decode(String token) {
+    String text;
+    try {
+      text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid keyset token: " + token, e);
+    }
+    int sep = text.lastIndexOf(SEPARATOR);
+    if (sep < 1 || sep == text.length() - 1) {
+      throw new IllegalArgumentException("Invalid keyset token: " + token);
+    }
+    return new KeysetToken(decodeValue(text.substring(0, sep)), decodeValue(text.substring(sep + 1)));
+  }
+
+  /**
+   * 生成续页标记
+   */
+  public String encode() {
+    String text = new StringBuilder(48).append(encodeValue(sortValue)).append(SEPARATOR).append(encodeValue(id))
+        .toString();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public Object getSortValue() {
+    return sortValue;
+  }
+
+  public Object getId() {
+    return id;
+  }
+
+  private static String encodeValue(Object value) {
+    if (value == null) {
+      return "0";
+    }
+    if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return "L" + value;
+    }
+    if (value instanceof BigInteger) { // 例如MySQL的BIGINT UNSIGNED，可能超出long的范围
+      return "I" + value;
+    }
+    if (value instanceof Number) {
+      return "D" + new BigDecimal(value.toString()).toPlainString();
+    }
+    if (value instanceof Timestamp) {
+      Timestamp ts = (Timestamp) value;
+      return "T" + ts.getTime() + "." + ts.getNanos();
+    }
+    if (value instanceof Date) {
+      return "T" + ((Date) value).getTime() + ".0";
+    }
+    if (value instanceof Boolean) {
+      return "B" + value;
+    }
+    return "S" + value;
+  }
+
+  private static Object decodeValue(String text) {
+    char type = text.charAt(0);
+    String value = text.substring(1);
+    try {
+      switch (type) {
+        case '0':
+          return null;
+        case 'L':
+          return Long.valueOf(value);
+        case 'I':
+          return new BigInteger(value);
+        case 'D':
+          return new BigDecimal(value);
+        case 'T':
+          int dot = value.indexOf('.');
+          Timestamp ts = new Timestamp(Long.parseLong(value.substring(0, dot)));
+          ts.setNanos(Integer.parseInt(value.substring(dot + 1)));
+          return ts;
+        case 'B':
+          return Boolean.valueOf(value);
+        case 'S':
+          return value;
+        default:
+          throw new IllegalArgumentException("Invalid keyset token value: " + text);
+      }
+    } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid keyset token value: " + text, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "(" + sortValue + ", " + id + ")";
+  }
+}
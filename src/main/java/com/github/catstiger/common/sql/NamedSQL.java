@@ -0,0 +1,194 @@
+package com.github.catstiger.common.sql;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.AbstractSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * 将使用命名参数（例如{@code :name}）的SQL转换为使用{@code ?}的SQL。解析的结果，以及转换之后的SQL，
+ * 按照原始的SQL缓存，重复执行的语句不会被再次解析。
+ *
+ * <pre>
+ * NamedSQL namedSql = NamedSQL.of("UPDATE users SET name=:name WHERE id=:id");
+ * jdbcTemplate.update(namedSql.getSql(), namedSql.getArgs(params));
+ * </pre>
+ * 如果某个参数的值是集合或者数组（例如{@code IN (:ids)}），则每次都需要展开占位符，参见{@link #bind(SqlParameterSource)}。
+ */
+public final class NamedSQL {
+  /**
+   * 缓存的SQL的最大数量
+   */
+  public static final int CACHE_SIZE = 1024;
+
+  private static Cache<String, NamedSQL> cache = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).recordStats()
+      .build();
+
+  private final String namedSql;
+  private final ParsedSql parsedSql;
+
+  /**
+   * 每个命名参数都替换为一个{@code ?}之后的SQL
+   */
+  private final String sql;
+
+  private NamedSQL(String namedSql) {
+    this.namedSql = namedSql;
+    this.parsedSql = NamedParameterUtils.parseSqlStatement(namedSql);
+    this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, null);
+  }
+
+  /**
+   * 返回给定SQL的解析结果，结果会被缓存
+   * @param namedSql 使用命名参数的SQL
+   * @return Instance of {@code NamedSQL}
+   */
+  public static NamedSQL of(String namedSql) {
+    if (namedSql == null) {
+      throw new IllegalArgumentException("SQL must not be null.");
+    }
+    NamedSQL parsed = cache.getIfPresent(namedSql);
+    if (parsed == null) {
+      parsed = new NamedSQL(namedSql);
+      cache.put(namedSql, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * 返回缓存的命中率等统计信息
+   */
+  public static CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  public String getNamedSql() {
+    return namedSql;
+  }
+
+  /**
+   * 返回使用{@code ?}占位符的SQL，集合类型的参数不会被展开
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * 按照占位符的顺序返回参数值，与{@link #getSql()}对应
+   * @param paramMap Key为参数名
+   */
+  public Object[] getArgs(Map<String, ?> paramMap) {
+    return getArgs(new MapSqlParameterSource(paramMap));
+  }
+
+  /**
+   * 按照占位符的顺序返回参数值，与{@link #getSql()}对应
+   */
+  public Object[] getArgs(SqlParameterSource paramSource) {
+    return NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+  }
+
+  /**
+   * 返回使用{@code ?}占位符的SQL和对应的参数。如果参数中有集合或者数组，则展开为多个占位符，否则使用缓存的SQL。
+   * @param paramMap Key为参数名
+   */
+  public SQLReady bind(Map<String, ?> paramMap) {
+    return bind(new MapSqlParameterSource(paramMap));
+  }
+
+  /**
+   * 返回使用{@code ?}占位符的SQL和对应的参数。如果参数中有集合或者数组，则展开为多个占位符，否则使用缓存的SQL。
+   */
+  public SQLReady bind(SqlParameterSource paramSource) {
+    Object[] args = getArgs(paramSource);
+    for (Object arg : args) {
+      if (isExpandable(arg)) {
+        return new SQLReady(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource), expand(args));
+      }
+    }
+    return new SQLReady(sql, args);
+  }
+
+  private static boolean isExpandable(Object value) {
+    if (value instanceof SqlParameterValue) {
+      value = ((SqlParameterValue) value).getValue();
+    }
+    return value instanceof Collection || (value != null && value.getClass().isArray() && !(value instanceof byte[]));
+  }
+
+  /**
+   * 展开集合和数组类型的参数，与{@link NamedParameterUtils#substituteNamedParameters(ParsedSql, SqlParameterSource)}一致
+   */
+  private static Object[] expand(Object[] args) {
+    List<Object> expanded = new ArrayList<>(args.length * 2);
+    for (Object arg : args) {
+      Object value = (arg instanceof SqlParameterValue) ? ((SqlParameterValue) arg).getValue() : arg;
+      if (!isExpandable(value)) {
+        expanded.add(arg);
+      } else if (value instanceof Collection) {
+        for (Object element : (Collection<?>) value) {
+          if (element instanceof Object[]) { // IN ((?, ?), (?, ?))
+            for (Object item : (Object[]) element) {
+              expanded.add(item);
+            }
+          } else {
+            expanded.add(element);
+          }
+        }
+      } else {
+        for (int i = 0; i < Array.getLength(value); i++) {
+          expanded.add(Array.get(value, i));
+        }
+      }
+    }
+    return expanded.toArray();
+  }
+
+  @Override
+  public String toString() {
+    return namedSql;
+  }
+
+  /**
+   * 以实体对象的属性作为命名参数的值，参数名为属性名。与{@link SQLFactory}生成的命名参数一致，
+   * 外键属性的值为关联对象的ID。使用{@link EntityMeta}读取属性，不需要{@code BeanWrapper}。
+   */
+  public static final class EntityParameterSource extends AbstractSqlParameterSource {
+    private final Object entity;
+    private final EntityMeta meta;
+
+    public EntityParameterSource(Object entity) {
+      if (entity == null) {
+        throw new IllegalArgumentException("Entity must not be null.");
+      }
+      this.entity = entity;
+      this.meta = EntityMeta.of(entity.getClass());
+    }
+
+    @Override
+    public boolean hasValue(String paramName) {
+      return meta.getColumn(paramName) != null;
+    }
+
+    @Override
+    public Object getValue(String paramName) {
+      EntityMeta.Column column = meta.getColumn(paramName);
+      if (column == null) {
+        throw new IllegalArgumentException("No property '" + paramName + "' in " + entity.getClass().getName());
+      }
+      return column.getValue(entity);
+    }
+  }
+}
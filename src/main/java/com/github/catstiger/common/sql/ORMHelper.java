@@ -116,6 +116,16 @@ public final class ORMHelper {
     return namingStrategy.columnName(entityClass, fieldName);
   }
 
+  /**
+   * 返回实体类在当前命名策略下的元数据
+   * 
+   * @param entityClass 实体类
+   * @return {@link EntityMeta}
+   */
+  public EntityMeta getEntityMeta(Class<?> entityClass) {
+    return EntityMeta.of(entityClass, namingStrategy);
+  }
+
   /**
    * 根据实体类，和field，获取对应的GETTER方法。被如下Annotation标注的字段或者对应的Getter方法，会被忽略
    * <ul>
@@ -129,6 +139,10 @@ public final class ORMHelper {
    * @return Getter Meth
    */
   public Method getAccessMethod(Class<?> entityClass, String fieldName) {
+    EntityMeta.Column column = getEntityMeta(entityClass).getColumn(fieldName);
+    if (column != null) {
+      return column.getGetter();
+    }
     Method getter = ReflectionUtils.findMethod(entityClass, "get" + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, fieldName));
     return getter;
   }
@@ -246,6 +260,10 @@ public final class ORMHelper {
    * 判断一个属性是否是主键
    */
   public Boolean isPrimaryKey(Field field) {
+    EntityMeta.Column column = getEntityMeta(field.getDeclaringClass()).getColumn(field.getName());
+    if (column != null) {
+      return column.isPrimaryKey();
+    }
     if (isFieldIgnore(field)) {
       return false;
     }
@@ -37,6 +37,40 @@ public class Page implements Serializable {
 
   private Collection<?> summaryData;
 
+  /**
+   * 计算总行数所使用的策略的名字，参见{@link com.github.catstiger.common.sql.count.CountStrategy}
+   */
+  private String countStrategy;
+
+  /**
+   * 总行数是否精确，缓存的或者估计的总行数不精确
+   */
+  private boolean totalExact = true;
+
+  /**
+   * 是否还有下一页
+   */
+  private boolean hasNext = false;
+
+  /**
+   * Keyset分页的排序字段，如果为{@code null}，使用OFFSET分页
+   */
+  private String keysetColumn;
+
+  private String keysetIdColumn = "id";
+
+  private boolean keysetDesc = false;
+
+  /**
+   * 上一页的续页标记，如果为{@code null}，查询第一页
+   */
+  private String after;
+
+  /**
+   * 下一页的续页标记，如果没有下一页，为{@code null}
+   */
+  private String nextToken;
+
   public Page() {
     this.start = 0;
     this.limit = DEFAULT_PAGE_SIZE;
@@ -247,4 +281,110 @@ public class Page implements Serializable {
   public int limit() {
     return this.limit;
   }
+  
+  /**
+   * 使用Keyset分页（Seek Method）：按照排序字段和ID排序，下一页从上一页的最后一行之后开始，
+   * 使用{@code (sort, id) > (?, ?)}条件代替OFFSET，查询时间与页数无关。参见{@link #keyset(String, String, boolean)}
+   * @param column 排序字段，不能为{@code null}值
+   * @return this page
+   */
+  public Page keyset(String column) {
+    return keyset(column, "id", false);
+  }
+  
+  /**
+   * 使用Keyset分页，只能逐页向后翻页，{@link #getStart()}被忽略。每次查询之后，{@link #getNextToken()}返回下一页的续页标记，
+   * 通过{@link #after(String)}传入下一次查询。(column, idColumn)上应该有索引。
+   * @param column 排序字段，例如{@code u.created_at}，不能为{@code null}值，查询结果中必须包括这个字段
+   * @param idColumn 唯一的字段，用于区分排序字段相同的行，查询结果中必须包括这个字段
+   * @param desc 是否倒序
+   * @return this page
+   */
+  public Page keyset(String column, String idColumn, boolean desc) {
+    this.keysetColumn = column;
+    this.keysetIdColumn = idColumn;
+    this.keysetDesc = desc;
+    return this;
+  }
+  
+  /**
+   * 设置上一页的续页标记，从标记之后开始查询
+   * @param token {@link #getNextToken()}返回的标记，如果为{@code null}，查询第一页
+   * @return this page
+   */
+  public Page after(String token) {
+    this.after = token;
+    return this;
+  }
+  
+  /**
+   * 是否使用Keyset分页
+   */
+  public boolean isKeyset() {
+    return keysetColumn != null;
+  }
+
+  public String getKeysetColumn() {
+    return keysetColumn;
+  }
+
+  public String getKeysetIdColumn() {
+    return keysetIdColumn;
+  }
+
+  public boolean isKeysetDesc() {
+    return keysetDesc;
+  }
+
+  public String getAfter() {
+    return after;
+  }
+
+  public void setAfter(String after) {
+    this.after = after;
+  }
+
+  /**
+   * 下一页的续页标记，如果没有下一页，返回{@code null}
+   */
+  public String getNextToken() {
+    return nextToken;
+  }
+
+  public void setNextToken(String nextToken) {
+    this.nextToken = nextToken;
+  }
+
+  /**
+   * 计算总行数所使用的策略的名字，如果没有使用{@link com.github.catstiger.common.sql.count.CountStrategy}，返回{@code null}
+   */
+  public String getCountStrategy() {
+    return countStrategy;
+  }
+
+  public void setCountStrategy(String countStrategy) {
+    this.countStrategy = countStrategy;
+  }
+
+  /**
+   * 总行数是否精确。对于缓存的总行数，或者只判断是否有下一页的策略，{@link #getTotal()}只是一个估计值
+   */
+  public boolean isTotalExact() {
+    return totalExact;
+  }
+
+  public void setTotalExact(boolean totalExact) {
+    this.totalExact = totalExact;
+  }
+
+  /**
+   * 是否还有下一页
+   */
+  public boolean isHasNext() {
+    return hasNext;
+  }
+
+  public void setHasNext(boolean hasNext) {
+    this.hasNext = hasNext;
+  }
 }
@@ -0,0 +1,156 @@
+package com.github.catstiger.common.sql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.catstiger.common.sql.limit.LimitSQL;
+
+/**
+ * 预先编译的查询。{@link SQLReady}是一次性使用的、可变的对象，每次调用都要重新拼接SQL；
+ * 而{@code PreparedQuery}是不可变的、线程安全的，可以从一个{@link SQLReady}编译一次，保存在静态变量中，
+ * 以后每次执行只需要提供新的参数数组：
+ *
+ * <pre>
+ * private static final PreparedQuery BY_DEPT = PreparedQuery.compile(
+ *     SQLReady.select(User.class).append("WHERE dept_id=? AND status=?").orderBy("id"));
+ *
+ * List&lt;User&gt; users = jdbcTemplateProxy.query(BY_DEPT, page, User.class, deptId, status);
+ * </pre>
+ *
+ * {@code PreparedQuery}保存了最终的SQL、COUNT SQL，以及每种数据库的Limit SQL（分页参数用占位符代替，
+ * 所有的分页共用同一个SQL文本）。
+ */
+public final class PreparedQuery {
+  private static final Object[] EMPTY_ARGS = new Object[0];
+
+  private final String sql;
+
+  private final String countSql;
+
+  /**
+   * 编译时{@code SQLReady}中的参数，执行时没有提供参数则使用这些参数
+   */
+  private final Object[] args;
+
+  /**
+   * 编译时{@code SQLReady}所使用的{@code LimitSQL}
+   */
+  private final LimitSQL limitSql;
+
+  /**
+   * Key是{@code LimitSQL}的实现类，Value是带有分页参数占位符的Limit SQL
+   */
+  private final Map<Class<?>, String> limitSqls = new ConcurrentHashMap<>(4);
+
+  private PreparedQuery(String sql, Object[] args, LimitSQL limitSql) {
+    if (sql == null) {
+      throw new IllegalArgumentException("SQL must not be null.");
+    }
+    this.sql = sql;
+    this.countSql = SQLFactory.getInstance().countSql(sql);
+    this.args = (args == null || args.length == 0) ? EMPTY_ARGS : args.clone();
+    this.limitSql = (limitSql == null) ? SQLRequest.DEFAULT_LIMIT_SQL : limitSql;
+    getLimitSql(this.limitSql);
+  }
+
+  /**
+   * 从{@link SQLReady}编译一个{@code PreparedQuery}，编译之后对{@code SQLReady}的修改不会影响{@code PreparedQuery}
+   * @param sqlReady 给出{@link SQLReady}的实例，只支持使用{@code ?}占位符的SQL
+   * @return 不可变的{@code PreparedQuery}
+   */
+  public static PreparedQuery compile(SQLReady sqlReady) {
+    if (sqlReady == null) {
+      throw new IllegalArgumentException("SQLReady must not be null.");
+    }
+    if (!sqlReady.getNamedParameters().isEmpty()) {
+      throw new IllegalArgumentException("Named parameters are not supported, use '?' instead.");
+    }
+    return new PreparedQuery(sqlReady.getSql(), sqlReady.getArgs(), sqlReady.getLimitSqlInstance());
+  }
+
+  /**
+   * 根据SQL编译一个{@code PreparedQuery}，使用缺省的{@code LimitSQL}
+   * @param sql 使用{@code ?}占位符的SQL
+   * @return 不可变的{@code PreparedQuery}
+   */
+  public static PreparedQuery compile(String sql) {
+    return new PreparedQuery(sql, null, null);
+  }
+
+  /**
+   * 使用指定的{@code LimitSQL}，返回一个新的{@code PreparedQuery}
+   * @param usingLimitSql Instance of {@code LimitSql}
+   * @return 新的{@code PreparedQuery}
+   */
+  public PreparedQuery withLimitSql(LimitSQL usingLimitSql) {
+    return new PreparedQuery(sql, args, usingLimitSql);
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public String getCountSql() {
+    return countSql;
+  }
+
+  public LimitSQL getLimitSqlInstance() {
+    return limitSql;
+  }
+
+  /**
+   * 返回编译时的参数的副本
+   */
+  public Object[] getArgs() {
+    return args.length == 0 ? EMPTY_ARGS : args.clone();
+  }
+
+  /**
+   * 返回缺省的{@code LimitSQL}所生成的Limit SQL，分页参数使用占位符
+   */
+  public String getLimitSql() {
+    return getLimitSql(limitSql);
+  }
+
+  /**
+   * 返回指定的{@code LimitSQL}所生成的Limit SQL，分页参数使用占位符。每种{@code LimitSQL}只生成一次。
+   * @param usingLimitSql Instance of {@code LimitSql}
+   * @return 带有分页参数占位符的Limit SQL，如果{@code LimitSQL}不支持占位符，返回{@code null}
+   */
+  public String getLimitSql(LimitSQL usingLimitSql) {
+    Class<?> key = usingLimitSql.getClass();
+    String limit = limitSqls.get(key);
+    if (limit == null) {
+      limit = usingLimitSql.getLimitSqlTemplate(SQLTokenizer.of(sql).removeLimit());
+      if (limit == null) {
+        return null;
+      }
+      limitSqls.putIfAbsent(key, limit);
+    }
+    return limit;
+  }
+
+  /**
+   * 执行时所使用的参数，如果没有提供参数，则使用编译时的参数
+   */
+  Object[] resolveArgs(Object[] callArgs) {
+    return (callArgs == null || callArgs.length == 0) ? args : callArgs;
+  }
+
+  /**
+   * 将查询参数和分页参数合并为一个新的数组
+   */
+  Object[] limitArgs(Object[] callArgs, int start, int limit) {
+    Object[] queryArgs = resolveArgs(callArgs);
+    Object[] limitArgs = limitSql.getLimitArgs(start, limit);
+    Object[] merged = new Object[queryArgs.length + limitArgs.length];
+    System.arraycopy(queryArgs, 0, merged, 0, queryArgs.length);
+    System.arraycopy(limitArgs, 0, merged, queryArgs.length, limitArgs.length);
+    return merged;
+  }
+
+  @Override
+  public String toString() {
+    return sql;
+  }
+}
@@ -0,0 +1,71 @@
+package com.github.catstiger.common.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用于批量执行的SQL，一个SQL模板，对应多组参数，通常用{@code JdbcTemplate#batchUpdate(String, List)}执行。
+ * 例如，{@link SQLFactory#insertBatch(List)}将字段相同的实体对象分为一组，每组共用一个INSERT语句。
+ */
+public final class SQLBatch {
+  private final String sql;
+  private final List<Object[]> batchArgs;
+  /**
+   * 每一行数据在原始集合中的位置
+   */
+  private int[] indexes;
+
+  SQLBatch(String sql) {
+    this(sql, new ArrayList<Object[]>());
+  }
+
+  public SQLBatch(String sql, List<Object[]> batchArgs) {
+    if (sql == null) {
+      throw new IllegalArgumentException("SQL must not be null.");
+    }
+    this.sql = sql;
+    this.batchArgs = batchArgs;
+    this.indexes = new int[batchArgs.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = i;
+    }
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * 每一个元素对应一行数据的参数
+   */
+  public List<Object[]> getBatchArgs() {
+    return batchArgs;
+  }
+
+  /**
+   * 返回每一行数据在原始集合中的位置，与{@link #getBatchArgs()}一一对应。
+   * 对于直接用参数列表构造的实例，依次为0, 1, 2...
+   */
+  public int[] getIndexes() {
+    return indexes.length == batchArgs.size() ? indexes : Arrays.copyOf(indexes, batchArgs.size());
+  }
+
+  public int size() {
+    return batchArgs.size();
+  }
+
+  SQLBatch addArgs(int index, Object[] args) {
+    if (batchArgs.size() == indexes.length) {
+      indexes = Arrays.copyOf(indexes, Math.max(10, indexes.length * 2));
+    }
+    indexes[batchArgs.size()] = index;
+    batchArgs.add(args);
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return sql + " [" + batchArgs.size() + " rows]";
+  }
+}
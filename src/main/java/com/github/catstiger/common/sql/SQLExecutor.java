@@ -9,7 +9,6 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
-import com.github.catstiger.common.sql.mapper.BeanPropertyRowMapperEx;
 import com.github.catstiger.common.sql.mapper.Mappers;
 
 @Component
@@ -75,7 +74,7 @@ public class SQLExecutor {
    */
   public <T> T first(SQLReady sqlReady, Class<T> requiredType) {
     // 既然期望得到第一行数据，因此限制抓取size，减少性能损耗
-    return first(sqlReady.limitSql(0, 1), new BeanPropertyRowMapperEx<T>(requiredType), sqlReady.getArgs());
+    return first(sqlReady.limitSql(0, 1), Mappers.byClass(requiredType), sqlReady.getArgs());
   }
   
   /**
@@ -139,7 +138,7 @@ public class SQLExecutor {
    * </ul>
    */
   public <T> T one(SQLReady sqlReady, Class<T> requiredType) {
-    return one(sqlReady.getSql(), new BeanPropertyRowMapperEx<T>(requiredType), sqlReady.getArgs());
+    return one(sqlReady.getSql(), Mappers.byClass(requiredType), sqlReady.getArgs());
   }
   
   /**
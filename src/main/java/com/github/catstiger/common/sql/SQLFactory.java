@@ -1,45 +1,54 @@
 package com.github.catstiger.common.sql;
 
-import java.beans.PropertyDescriptor;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import javax.persistence.Entity;
-import javax.persistence.Id;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
-import javax.persistence.Transient;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.BeanUtils;
-import org.springframework.util.Assert;
-import org.springframework.util.ClassUtils;
-import org.springframework.util.DigestUtils;
-import org.springframework.util.ReflectionUtils;
 
+import com.github.catstiger.common.sql.limit.DatabaseDetector;
 import com.github.catstiger.common.sql.limit.LimitSQL;
 import com.github.catstiger.common.util.Exceptions;
 import com.github.catstiger.common.util.IDUtil;
 import com.github.catstiger.common.util.ReflectUtil;
-import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 public final class SQLFactory {
-  private static Map<String, String> sqlCache = new ConcurrentHashMap<String, String>();
+  /**
+   * SELECT语句的最大缓存数量，动态的includes/excludes可能产生很多不同的SQL
+   */
+  public static final int SQL_CACHE_SIZE = 2048;
+
+  /**
+   * SELECT语句的缓存，Key为{@link SQLRequest#cacheKey()}
+   */
+  private static Cache<SQLRequest.Key, String> sqlCache = CacheBuilder.newBuilder().maximumSize(SQL_CACHE_SIZE)
+      .recordStats().build();
+  /**
+   * INSERT/UPDATE语句模板的缓存，不同的非空字段组合可能产生很多不同的模板
+   */
+  private static Cache<TemplateKey, String> templateCache = CacheBuilder.newBuilder().maximumSize(SQL_CACHE_SIZE)
+      .build();
+  /**
+   * 根据ID批量查询的SELECT语句的缓存，Key为{@link SQLRequest#cacheKey()}和占位符的数量
+   */
+  private static Cache<List<Object>, String> inListCache = CacheBuilder.newBuilder().maximumSize(SQL_CACHE_SIZE)
+      .build();
+
+  private static final int INSERT = 1;
+  private static final int UPDATE = 2;
+  private static final int UPDATE_BY_ID = 3;
+  private static final int MYSQL_UPSERT = 4;
+  private static final int H2_MERGE = 5;
   
   private SQLFactory() {
   }
@@ -76,25 +85,24 @@ public final class SQLFactory {
    * @return SQL
    */
   public SQLReady select(SQLRequest sqlRequest) {
-    String key = sqlKey(sqlRequest, "select");
+    SQLRequest.Key key = sqlRequest.cacheKey();
     // 从缓存中取得SQL
-    String sqlObj = sqlCache.get(key);
+    String sqlObj = sqlCache.getIfPresent(key);
     if (sqlObj != null) {
       return new SQLReady(sqlObj, new Object[] {}, sqlRequest.getLimitSql());
     }
     //缓存中木有
-    Collection<ColField> colFields = columns(sqlRequest);
+    EntityMeta meta = EntityMeta.of(sqlRequest.getEntityClass(), sqlRequest.getNamingStrategy());
+    List<EntityMeta.Column> columns = columns(meta, sqlRequest);
     String tablename = sqlRequest.getNamingStrategy().tablename(sqlRequest.getEntityClass());
     String tableAlias = this.buildTableAlias(sqlRequest); //表名别名
     
     final StringBuilder sqlBuf = new StringBuilder(1000).append("SELECT ");
-    List<String> sqlSegs = new ArrayList<String>(colFields.size()); // 一个一个SQL片段，最后join为完整的字段列表
+    List<String> sqlSegs = new ArrayList<String>(columns.size()); // 一个一个SQL片段，最后join为完整的字段列表
    
     // SELECT后的字段列表
-    for (Iterator<ColField> itr = colFields.iterator(); itr.hasNext();) {
-      ColField colField = itr.next();
-      String sqlSeg = selectCols(sqlRequest, tableAlias, colField);
-      sqlSegs.add(sqlSeg.toString());
+    for (EntityMeta.Column column : columns) {
+      sqlSegs.add(selectCols(sqlRequest, tableAlias, column));
     }
     
     sqlBuf.append(Joiner.on(",\n ").join(sqlSegs));
@@ -102,7 +110,7 @@ public final class SQLFactory {
     // FROM后面的主表
     sqlBuf.append(" \nFROM ").append(tablename).append(" ").append(tableAlias).append(" \n");
 
-    ColField primary = findPrimary(colFields);
+    EntityMeta.Column primary = findPrimary(columns);
 
     if (sqlRequest.isById()) {
       sqlBuf.append(selectById(sqlRequest, primary, tableAlias)); //where id=?
@@ -113,6 +121,44 @@ public final class SQLFactory {
     return new SQLReady(sqlBuf.toString(), new Object[] {}, sqlRequest.getLimitSql());
   }
   
+  /**
+   * 根据实体类的属性，构造一个按照ID批量查询的SELECT语句，字段列表与{@link #select(SQLRequest)}相同，
+   * WHERE子句为{@code WHERE alias.id IN (?,?,...)}。SQL按照{@link SQLRequest#cacheKey()}和占位符的数量缓存，
+   * 调用者应该把占位符的数量归并到少数几个档位，以减少不同SQL的数量。
+   * 
+   * @param sqlRequest SQL请求对象，忽略其中的byId，调用之后byId保持不变
+   * @param size IN子句中占位符的数量
+   * @return SQL，参数为空
+   */
+  public SQLReady selectByIds(SQLRequest sqlRequest, int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive.");
+    }
+    boolean byId = sqlRequest.isById();
+    sqlRequest.byId(false); // SELECT语句不带WHERE id=?，结束之后恢复
+    String sql;
+    try {
+      List<Object> key = Arrays.asList(sqlRequest.cacheKey(), size);
+      sql = inListCache.getIfPresent(key);
+      if (sql == null) {
+        EntityMeta.Column primary = findPrimary(EntityMeta.of(sqlRequest.getEntityClass(),
+            sqlRequest.getNamingStrategy()).getColumns());
+        String idCol = (primary != null ? primary.getColumn() : "id");
+        StringBuilder sqlBuf = new StringBuilder(select(sqlRequest).getSql().trim()).append(" \nWHERE ")
+            .append(buildTableAlias(sqlRequest)).append(".").append(idCol).append(" IN (");
+        for (int i = 0; i < size; i++) {
+          sqlBuf.append(i == 0 ? "?" : ",?");
+        }
+        sql = sqlBuf.append(")\n").toString();
+        inListCache.put(key, sql);
+      }
+    } finally {
+      sqlRequest.byId(byId);
+    }
+    
+    return new SQLReady(sql, new Object[] {}, sqlRequest.getLimitSql());
+  }
+  
   /**
    * 根据给定的实体类，构造一个SQL INSERT语句，
    * 如果给出的SQLRequest对象中，namedParams为<code>true</code>，则返回带有参数的SQL，数据使用MAP封装，否则返回带有?的SQL，数据采用数组封装。
@@ -121,8 +167,52 @@ public final class SQLFactory {
    * @return SQLReady 包括SQL和参数，如果SQLRequest.namedParams为<code>true</code>,
    *         SQL语句使用属性名作为字段别名和占位符，参数采用Map存储，Key为属性名。 否则，SQL语句采用?作为占位符，参数用数组保存。
    */
-  @SuppressWarnings("deprecation")
   public SQLReady insert(SQLRequest sqlRequest) {
+    return insert(sqlRequest, INSERT);
+  }
+
+  /**
+   * 根据给定的实体类，构造一个INSERT或者UPDATE语句：如果主键已经存在，则更新其他字段，否则插入一条新的记录。
+   * 可以避免调用者为了判断记录是否存在而先执行一次查询。根据数据库的不同，生成的SQL为：
+   * <ul>
+   * <li>MySQL: {@code INSERT INTO t (...) VALUES (...) ON DUPLICATE KEY UPDATE a=VALUES(a),...}</li>
+   * <li>H2: {@code MERGE INTO t (...) KEY(id) VALUES (...)}</li>
+   * </ul>
+   * 如果实体对象的ID为<code>null</code>，会自动生成ID。
+   * 
+   * @param sqlRequest 给定SQLRequest，根据includesNull决定是否包括值为<code>null</code>的字段
+   * @param databaseDetector 用于判断数据库类型
+   * @return SQLReady 包括SQL和参数
+   * @throws IllegalStateException 如果数据库不是MySQL或者H2
+   */
+  public SQLReady upsert(SQLRequest sqlRequest, DatabaseDetector databaseDetector) {
+    return insert(sqlRequest, upsertType(databaseDetector));
+  }
+
+  /**
+   * 根据一组实体对象构造批量执行的upsert语句，忽略为<code>null</code>的字段，分组方式参见{@link #insertBatch(List, boolean)}，
+   * 生成的SQL参见{@link #upsert(SQLRequest, DatabaseDetector)}
+   * 
+   * @param entities 实体对象，可以是不同的实体类
+   * @param databaseDetector 用于判断数据库类型
+   * @return 分组后的{@link SQLBatch}
+   */
+  public List<SQLBatch> upsertBatch(Collection<? extends BaseEntity> entities, DatabaseDetector databaseDetector) {
+    return batch(entities, upsertType(databaseDetector), false);
+  }
+
+  private int upsertType(DatabaseDetector databaseDetector) {
+    Preconditions.checkNotNull(databaseDetector, "DatabaseDetector must not be null.");
+    if (databaseDetector.isMySql()) {
+      return MYSQL_UPSERT;
+    } else if (databaseDetector.isH2()) {
+      return H2_MERGE;
+    }
+    throw new IllegalStateException("Upsert is not supported by " + databaseDetector.getVender());
+  }
+
+  @SuppressWarnings("deprecation")
+  private SQLReady insert(SQLRequest sqlRequest, int type) {
     if (sqlRequest.getEntity() == null) {
       throw new java.lang.IllegalArgumentException("给出的实体类不可为空。");
     }
@@ -132,48 +222,18 @@ public final class SQLFactory {
       ((BaseEntity) entity).setId(IDUtil.nextId());
     }
 
-    Class<?> entityClass = sqlRequest.getEntityClass();
-    String tablename = sqlRequest.getNamingStrategy().tablename(entityClass);
-    Collection<ColField> colFields = columns(sqlRequest);
-
-    List<Object> args = new ArrayList<Object>(colFields.size()); // 使用？做占位符
-    Map<String, Object> namedParams = new LinkedHashMap<>(colFields.size()); // 使用别名做占位符
-    // 字段列表
-    List<String> prevValues = new ArrayList<String>(colFields.size());
-    // 占位符
-    List<String> afterValues = new ArrayList<String>(colFields.size());
-
-    for (Iterator<ColField> itr = colFields.iterator(); itr.hasNext();) {
-      ColField colField = itr.next();
-      Object argumentValue = getField(colField, entity); // 可以加载字段值或者外键指向的实体类的主键值
-
-      if (argumentValue == null && !sqlRequest.isIncludesNull()) { // 不包括NULL字段
-        continue;
-      }
-      prevValues.add(colField.col);
-
-      if (sqlRequest.isNamedParams()) { // 使用别名，参数存放在Map中，别名为KEY
-        namedParams.put(colField.fieldname, argumentValue);
-        afterValues.add(":" + colField.fieldname);
-      } else { // 使用？
-        args.add(argumentValue);
-        afterValues.add("?");
-      }
-    }
-    if (prevValues.isEmpty() || afterValues.isEmpty()) {
+    EntityMeta meta = EntityMeta.of(sqlRequest.getEntityClass(), sqlRequest.getNamingStrategy());
+    // 按字段顺序取出参数值，同时记录哪些字段出现在SQL中
+    BoundColumns bound = bind(meta, columns(meta, sqlRequest), entity, sqlRequest.isIncludesNull(), false, 0);
+    if (bound.count == 0) {
       throw new IllegalStateException("无法构造有效的INSERT语句。");
     }
-
-    String cols = Joiner.on(",").join(prevValues);
-    String values = Joiner.on(",").join(afterValues);
-
-    StringBuilder sqlBuf = new StringBuilder(200).append("INSERT INTO ").append(tablename).append(" (\n").append(cols)
-        .append(") VALUES (\n").append(values).append(")");
+    String sql = template(meta, type, sqlRequest.isNamedParams(), bound.mask);
 
     if (sqlRequest.isNamedParams()) {
-      return new SQLReady(sqlBuf.toString(), namedParams, sqlRequest.getLimitSql());
+      return new SQLReady(sql, bound.toNamedParams(meta, null, null), sqlRequest.getLimitSql());
     } else {
-      return new SQLReady(sqlBuf.toString(), args.toArray(new Object[] {}), sqlRequest.getLimitSql());
+      return new SQLReady(sql, bound.args, sqlRequest.getLimitSql());
     }
   }
 
@@ -189,6 +249,128 @@ public final class SQLFactory {
     return insert(sqlRequest);
   }
 
+  /**
+   * 根据一组实体对象构造批量执行的INSERT语句，忽略为<code>null</code>的字段。参见{@link #insertBatch(List, boolean)}
+   * 
+   * @param entities 实体对象
+   * @return 分组后的{@link SQLBatch}
+   */
+  public List<SQLBatch> insertBatch(List<? extends BaseEntity> entities) {
+    return insertBatch(entities, false);
+  }
+
+  /**
+   * 根据一组实体对象构造批量执行的INSERT语句。出现在SQL中的字段相同的实体对象分为一组，每组共用一个INSERT模板，
+   * 参数按组收集，可以直接用于{@code JdbcTemplate#batchUpdate(String, List)}。ID为<code>null</code>的实体对象，会自动生成ID。
+   * 
+   * @param entities 实体对象，可以是不同的实体类
+   * @param includesNull 是否包括值为<code>null</code>的字段，如果为<code>true</code>，同一个实体类的对象总是在同一组中
+   * @return 分组后的{@link SQLBatch}，按照每组第一个实体对象出现的顺序排列
+   */
+  public List<SQLBatch> insertBatch(List<? extends BaseEntity> entities, boolean includesNull) {
+    return batch(entities, INSERT, includesNull);
+  }
+
+  /**
+   * 根据一组实体对象构造批量执行的UPDATE语句，按照ID更新，忽略为<code>null</code>的字段。
+   * SET子句中的字段相同的实体对象分为一组，每组共用一个UPDATE模板，参数的最后一个是ID。
+   * 
+   * @param entities 实体对象，可以是不同的实体类，ID不可为<code>null</code>
+   * @return 分组后的{@link SQLBatch}，按照每组第一个实体对象出现的顺序排列
+   */
+  public List<SQLBatch> updateBatchById(Collection<? extends BaseEntity> entities) {
+    return batch(entities, UPDATE_BY_ID, false);
+  }
+
+  /**
+   * 将实体对象按照出现在SQL中的字段分组，每组共用一个语句模板
+   */
+  @SuppressWarnings("deprecation")
+  private List<SQLBatch> batch(Collection<? extends BaseEntity> entities, int type, boolean includesNull) {
+    Preconditions.checkNotNull(entities, "给出的实体类不可为空。");
+    boolean byId = (type == UPDATE_BY_ID);
+    Map<TemplateKey, SQLBatch> batches = new LinkedHashMap<>();
+    int index = 0;
+    for (BaseEntity entity : entities) {
+      if (entity == null) {
+        throw new java.lang.IllegalArgumentException("给出的实体类不可为空。");
+      }
+      if (entity.getId() == null) {
+        if (byId) {
+          throw new IllegalStateException("实体类的ID为空，无法使用byId更新。" + entity.getClass().getName());
+        }
+        entity.setId(IDUtil.nextId());
+      }
+      EntityMeta meta = EntityMeta.of(entity.getClass(), SQLRequest.DEFAULT_NAME_STRATEGY);
+      // UPDATE的SET子句中忽略主键，在参数的末尾为ID预留一个位置
+      BoundColumns bound = bind(meta, meta.getColumns(), entity, includesNull, byId, byId ? 1 : 0);
+      if (bound.count == 0) {
+        throw new IllegalStateException("无法构造有效的SQL语句。");
+      }
+      if (byId) {
+        bound.args[bound.count] = entity.getId();
+      }
+      TemplateKey key = new TemplateKey(meta, type, false, bound.mask);
+      SQLBatch batch = batches.get(key);
+      if (batch == null) {
+        batch = new SQLBatch(template(meta, type, false, bound.mask));
+        batches.put(key, batch);
+      }
+      batch.addArgs(index++, bound.args);
+    }
+    return new ArrayList<>(batches.values());
+  }
+
+  /**
+   * 将{@link #insertBatch(List, boolean)}的一组数据，转换为多行VALUES的INSERT语句，即
+   * {@code INSERT INTO t (a,b) VALUES (?,?),(?,?)...}，只适用于MySQL和H2等支持这种语法的数据库。
+   * 
+   * @param batch 由{@link #insertBatch(List, boolean)}生成的一组数据
+   * @param rowsPerStatement 每个INSERT语句包含的最大行数
+   * @return 多行INSERT语句，除最后一个之外，每个语句都包含rowsPerStatement行，参数按行依次排列
+   */
+  public List<SQLReady> multiValues(SQLBatch batch, int rowsPerStatement) {
+    Preconditions.checkArgument(rowsPerStatement > 0, "rowsPerStatement must be positive.");
+    String sql = batch.getSql();
+    int valuesIndex = sql.lastIndexOf(") VALUES (") + ") VALUES ".length();
+    String head = sql.substring(0, valuesIndex);
+    String tuple = sql.substring(valuesIndex);
+
+    List<Object[]> rows = batch.getBatchArgs();
+    List<SQLReady> statements = new ArrayList<>(rows.size() / rowsPerStatement + 1);
+    String fullSql = null;
+    for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+      int to = Math.min(from + rowsPerStatement, rows.size());
+      String stmt;
+      if (to - from == rowsPerStatement) { // 满行的语句共用一个SQL
+        if (fullSql == null) {
+          fullSql = multiValuesSql(head, tuple, rowsPerStatement);
+        }
+        stmt = fullSql;
+      } else {
+        stmt = multiValuesSql(head, tuple, to - from);
+      }
+      int width = rows.get(from).length;
+      Object[] args = new Object[width * (to - from)];
+      for (int i = from; i < to; i++) {
+        System.arraycopy(rows.get(i), 0, args, (i - from) * width, width);
+      }
+      statements.add(new SQLReady(stmt, args));
+    }
+    return statements;
+  }
+
+  private String multiValuesSql(String head, String tuple, int rows) {
+    StringBuilder sqlBuf = new StringBuilder(head.length() + (tuple.length() + 1) * rows).append(head);
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sqlBuf.append(",");
+      }
+      sqlBuf.append(tuple);
+    }
+    return sqlBuf.toString();
+  }
+
   /**
    * 根据SQLRequest构造一个SQL UPDATE语句及其对应的参数数组。
    * <ul>
@@ -204,69 +386,34 @@ public final class SQLFactory {
   public SQLReady update(SQLRequest sqlRequest) {
     Preconditions.checkNotNull(sqlRequest.getEntity(), "给出的实体类不可为空。");
     
-    Collection<ColField> colFields = columns(sqlRequest);
-    if (colFields == null || colFields.isEmpty()) {
+    EntityMeta meta = EntityMeta.of(sqlRequest.getEntityClass(), sqlRequest.getNamingStrategy());
+    List<EntityMeta.Column> columns = columns(meta, sqlRequest);
+    if (columns.isEmpty()) {
       throw new java.lang.IllegalArgumentException("无法获取实体类的属性。");
     }
-    List<Object> args = new ArrayList<>(colFields.size()); // 存放SQL对应的参数
-    Map<String, Object> namedParams = new LinkedHashMap<>(colFields.size()); // 使用别名做占位符
-    List<String> sqls = new ArrayList<>(colFields.size()); // 存放col=?
-
-    for (ColField colField : colFields) {
-      buildUpdateBody(colField, sqlRequest, namedParams, sqls, args);
-    }
-    if (sqls.isEmpty()) {
-      throw new IllegalStateException("无法构造有效的UPDATE语句。");
-    }
-    Class<?> entityClass = sqlRequest.getEntityClass();
-    String tablename = sqlRequest.getNamingStrategy().tablename(entityClass);
-
-    final StringBuilder sqlBuf = new StringBuilder(100).append("UPDATE ").append(tablename).append(" SET ");
-    sqlBuf.append(Joiner.on(",").join(sqls));
-    // ByID更新
-    if (sqlRequest.isById()) {
-      if (!(sqlRequest.getEntity() instanceof BaseEntity) || sqlRequest.getEntity() == null) {
+    boolean byId = sqlRequest.isById();
+    Long id = null;
+    if (byId) {
+      if (!(sqlRequest.getEntity() instanceof BaseEntity)) {
         throw Exceptions.unchecked("给定的映射类，不是BaseEntity的子类，无法使用byId更新。");
       }
-      Object entity = sqlRequest.getEntity();
-      Long id = ((BaseEntity) entity).getId();
-
-      ColField primary = findPrimary(colFields);
-      String idCol = (primary != null ? primary.col : "id");
-      sqlBuf.append(" WHERE ").append(idCol).append("=");
-
-      if (sqlRequest.isNamedParams()) {
-        String idField = (primary != null ? primary.fieldname : "id");
-        sqlBuf.append(":").append(idField);
-      } else {
-        sqlBuf.append("?");
-      }
-      args.add(id);
-    }
-
-    if (sqlRequest.isNamedParams()) {
-      return new SQLReady(sqlBuf.toString(), namedParams, sqlRequest.getLimitSql());
-    } else {
-      return new SQLReady(sqlBuf.toString(), args.toArray(new Object[] {}), sqlRequest.getLimitSql());
+      id = ((BaseEntity) sqlRequest.getEntity()).getId();
     }
-  }
-  
-  private void buildUpdateBody(ColField colField, SQLRequest sqlRequest, Map<String, Object> namedParams, List<String> sqls, List<Object> args) {
-    ORMHelper ormHelper = ORMHelper.getInstance(sqlRequest.getNamingStrategy());
-    Field field = colField.getField();
-    if (ormHelper.isPrimaryKey(field)) { // 主键忽略
-      return;
+    // SET子句中忽略主键，ByID更新的时候，在参数的末尾为ID预留一个位置
+    BoundColumns bound = bind(meta, columns, sqlRequest.getEntity(), sqlRequest.isIncludesNull(), true, byId ? 1 : 0);
+    if (bound.count == 0) {
+      throw new IllegalStateException("无法构造有效的UPDATE语句。");
     }
-    Object v = getField(colField, sqlRequest.getEntity()); // 取得field值或者，如果是外键，取得外键对应的实体类的ID
-    if (v == null && !sqlRequest.isIncludesNull()) {
-      return;
+    String sql = template(meta, byId ? UPDATE_BY_ID : UPDATE, sqlRequest.isNamedParams(), bound.mask);
+    if (byId) {
+      bound.args[bound.count] = id;
     }
+
     if (sqlRequest.isNamedParams()) {
-      namedParams.put(field.getName(), v);
-      sqls.add(sqlRequest.getNamingStrategy().columnName(sqlRequest.getEntityClass(), field) + "=:" + field.getName());
+      String idField = (meta.getPrimary() != null ? meta.getPrimary().getFieldname() : "id");
+      return new SQLReady(sql, bound.toNamedParams(meta, byId ? idField : null, id), sqlRequest.getLimitSql());
     } else {
-      args.add(v);
-      sqls.add(sqlRequest.getNamingStrategy().columnName(sqlRequest.getEntityClass(), field) + "=?");
+      return new SQLReady(sql, bound.args, sqlRequest.getLimitSql());
     }
   }
 
@@ -293,64 +440,241 @@ public final class SQLFactory {
    * @return List of {@link ColField}
    */
   public Collection<ColField> columns(SQLRequest sqlRequest) {
-    Collection<ColField> colFields = getColFields(sqlRequest);
+    EntityMeta meta = EntityMeta.of(sqlRequest.getEntityClass(), sqlRequest.getNamingStrategy());
+    List<EntityMeta.Column> columns = columns(meta, sqlRequest);
+    List<ColField> colFields = new ArrayList<ColField>(columns.size());
+    for (EntityMeta.Column column : columns) {
+      ColField colField = new ColField(column.getColumn(), column.getField(), column.isPrimary(), column.isForeign(),
+          column.getType(), meta.getEntityClass());
+      colField.alias = meta.getTableAlias();
+      colField.simpleAlias = meta.getSimpleAlias();
+      if (sqlRequest.getEntity() != null) {
+        colField.setOwnerValue(sqlRequest.getEntity());
+      }
+      colFields.add(colField);
+    }
     return colFields;
   }
 
   /**
-   * 删除SQL语句中的SELECT部分，例如，SELECT ID FROM MY_TABLE，会变成 FROM MY_TABLE
+   * 根据SQLRequest中必须包含和必须排除的属性，过滤实体类的字段，顺序与{@link EntityMeta#getColumns()}一致
+   */
+  private List<EntityMeta.Column> columns(EntityMeta meta, SQLRequest sqlRequest) {
+    List<String> includes = sqlRequest.getIncludes();
+    List<String> excludes = sqlRequest.getExcludes();
+    if (CollectionUtils.isEmpty(includes) && CollectionUtils.isEmpty(excludes)) {
+      return meta.getColumns();
+    }
+    List<EntityMeta.Column> columns = new ArrayList<>(meta.getColumns().size());
+    for (EntityMeta.Column column : meta.getColumns()) {
+      // 必须包含
+      if (!CollectionUtils.isEmpty(includes) && !includes.contains(column.getFieldname())) {
+        continue;
+      }
+      // 必须排除
+      if (!CollectionUtils.isEmpty(excludes) && excludes.contains(column.getFieldname())) {
+        continue;
+      }
+      columns.add(column);
+    }
+    return columns;
+  }
+
+  /**
+   * 按照字段顺序读取实体对象的值，忽略的字段不占位置，同时用一个bitmask记录出现在SQL中的字段。
+   * 
+   * @param meta 实体类元数据
+   * @param columns 参与构建SQL的字段
+   * @param entity 实体对象
+   * @param includesNull 是否包括值为{@code null}的字段
+   * @param skipPrimaryKey 是否忽略主键（UPDATE的SET子句）
+   * @param reserved 在参数数组的末尾预留的位置，例如WHERE id=?
+   */
+  private BoundColumns bind(EntityMeta meta, List<EntityMeta.Column> columns, Object entity, boolean includesNull,
+      boolean skipPrimaryKey, int reserved) {
+    Object[] values = new Object[columns.size() + reserved];
+    long[] mask = new long[(meta.getColumns().size() + 63) >>> 6];
+    int count = 0;
+    for (EntityMeta.Column column : columns) {
+      if (skipPrimaryKey && column.isPrimaryKey()) {
+        continue;
+      }
+      Object value = column.getValue(entity); // 取得field值或者，如果是外键，取得外键对应的实体类的ID
+      if (value == null && !includesNull) {
+        continue;
+      }
+      values[count++] = value;
+      mask[column.getIndex() >>> 6] |= 1L << column.getIndex();
+    }
+    if (count + reserved < values.length) {
+      values = Arrays.copyOf(values, count + reserved);
+    }
+    return new BoundColumns(mask, values, count);
+  }
+
+  /**
+   * 从缓存中取得语句模板，如果没有，则构造一个并放入缓存
+   */
+  private String template(EntityMeta meta, int type, boolean namedParams, long[] mask) {
+    TemplateKey key = new TemplateKey(meta, type, namedParams, mask);
+    String sql = templateCache.getIfPresent(key);
+    if (sql == null) {
+      if (type == INSERT) {
+        sql = insertTemplate(meta, mask, namedParams);
+      } else if (type == MYSQL_UPSERT) {
+        sql = mysqlUpsertTemplate(meta, mask, namedParams);
+      } else if (type == H2_MERGE) {
+        sql = h2MergeTemplate(meta, mask, namedParams);
+      } else {
+        sql = updateTemplate(meta, mask, namedParams, type == UPDATE_BY_ID);
+      }
+      templateCache.put(key, sql);
+    }
+    return sql;
+  }
+
+  /**
+   * 根据bitmask中的字段，构造INSERT语句
+   */
+  private String insertTemplate(EntityMeta meta, long[] mask, boolean namedParams) {
+    StringBuilder cols = new StringBuilder(200);
+    StringBuilder values = new StringBuilder(100);
+    for (EntityMeta.Column column : meta.getColumns()) {
+      if (!isPresent(mask, column.getIndex())) {
+        continue;
+      }
+      if (cols.length() > 0) {
+        cols.append(",");
+        values.append(",");
+      }
+      cols.append(column.getColumn());
+      if (namedParams) { // 使用别名做占位符
+        values.append(":").append(column.getFieldname());
+      } else {
+        values.append("?");
+      }
+    }
+
+    return new StringBuilder(cols.length() + values.length() + 50).append("INSERT INTO ").append(tablename(meta))
+        .append(" (\n").append(cols).append(") VALUES (\n").append(values).append(")").toString();
+  }
+
+  /**
+   * MySQL: INSERT INTO t (...) VALUES (...) ON DUPLICATE KEY UPDATE a=VALUES(a),...
+   */
+  private String mysqlUpsertTemplate(EntityMeta meta, long[] mask, boolean namedParams) {
+    StringBuilder sqlBuf = new StringBuilder(insertTemplate(meta, mask, namedParams)).append(" ON DUPLICATE KEY UPDATE ");
+    boolean first = true;
+    for (EntityMeta.Column column : meta.getColumns()) {
+      if (!isPresent(mask, column.getIndex()) || column.isPrimaryKey()) {
+        continue;
+      }
+      if (!first) {
+        sqlBuf.append(",");
+      }
+      first = false;
+      sqlBuf.append(column.getColumn()).append("=VALUES(").append(column.getColumn()).append(")");
+    }
+    if (first) { // 只有主键
+      sqlBuf.append(meta.getPrimaryColumn()).append("=").append(meta.getPrimaryColumn());
+    }
+    return sqlBuf.toString();
+  }
+
+  /**
+   * H2: MERGE INTO t (...) KEY(id) VALUES (...)
+   */
+  private String h2MergeTemplate(EntityMeta meta, long[] mask, boolean namedParams) {
+    String insert = insertTemplate(meta, mask, namedParams);
+    int valuesIndex = insert.lastIndexOf(") VALUES (") + 1;
+    return new StringBuilder(insert.length() + 20).append("MERGE INTO")
+        .append(insert, "INSERT INTO".length(), valuesIndex).append(" KEY(").append(meta.getPrimaryColumn()).append(")")
+        .append(insert, valuesIndex, insert.length()).toString();
+  }
+
+  /**
+   * 根据bitmask中的字段，构造UPDATE语句
+   */
+  private String updateTemplate(EntityMeta meta, long[] mask, boolean namedParams, boolean byId) {
+    StringBuilder sqlBuf = new StringBuilder(200).append("UPDATE ").append(tablename(meta)).append(" SET ");
+    boolean first = true;
+    for (EntityMeta.Column column : meta.getColumns()) {
+      if (!isPresent(mask, column.getIndex())) {
+        continue;
+      }
+      if (!first) {
+        sqlBuf.append(",");
+      }
+      first = false;
+      sqlBuf.append(column.getColumn()).append("=");
+      if (namedParams) {
+        sqlBuf.append(":").append(column.getFieldname());
+      } else {
+        sqlBuf.append("?");
+      }
+    }
+    // ByID更新
+    if (byId) {
+      EntityMeta.Column primary = meta.getPrimary();
+      sqlBuf.append(" WHERE ").append(meta.getPrimaryColumn()).append("=");
+      if (namedParams) {
+        sqlBuf.append(":").append(primary != null ? primary.getFieldname() : "id");
+      } else {
+        sqlBuf.append("?");
+      }
+    }
+    return sqlBuf.toString();
+  }
+
+  private static boolean isPresent(long[] mask, int index) {
+    return (mask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private String tablename(EntityMeta meta) {
+    if (meta.getTablename() == null) {
+      throw new RuntimeException("实体类必须用@Entity标注:" + meta.getEntityClass().getName());
+    }
+    return meta.getTablename();
+  }
+
+  /**
+   * 删除SQL语句中最外层的SELECT部分，例如，SELECT ID FROM MY_TABLE，会变成 FROM MY_TABLE
    * 
    * @param sql 原始SQL
    * @return 修改之后的SQL
+   * @see SQLTokenizer#removeSelect()
    */
   public String removeSelect(String sql) {
-    int beginPos = sql.toLowerCase().indexOf("from");
-    Assert.isTrue(beginPos != -1, " hql : " + sql + " must has a keyword 'from'");
-    return sql.substring(beginPos);
+    return SQLTokenizer.of(sql).removeSelect();
   }
 
   /**
-   * 去除SQL的order by 子句
+   * 去除SQL最外层的order by 子句，子查询中的order by 子句不受影响
+   * @see SQLTokenizer#removeOrders()
    */
   public String removeOrders(String sql) {
-    Pattern p = Pattern.compile("order\\s*by[\\w|\\W|\\s|\\S]*", Pattern.CASE_INSENSITIVE);
-    Matcher m = p.matcher(sql);
-    StringBuffer sb = new StringBuffer();
-    while (m.find()) {
-      m.appendReplacement(sb, "");
-    }
-    m.appendTail(sb);
-    return sb.toString();
+    return SQLTokenizer.of(sql).removeOrders();
   }
 
   /**
-   * 删除SQL语句中limit子句
+   * 删除SQL语句中最外层的limit子句
    * 
    * @param sql SQL to be fixed
    * @return
+   * @see SQLTokenizer#removeLimit()
    */
   public String removeLimit(String sql) {
-    String regEx = "\\s*limit\\s*[0-9]\\d*\\s*,\\s*[0-9]\\d*|\\s*limit\\s*[0-9]\\d*";
-    Pattern p = Pattern.compile(regEx, Pattern.CASE_INSENSITIVE);
-    Matcher matcher = p.matcher(sql);
-    if (matcher.find(0)) {
-      int index = matcher.start();
-      if (index > 0) {
-        return sql.substring(0, index);
-      }
-    }
-    
-    return sql;
+    return SQLTokenizer.of(sql).removeLimit();
   }
  
   /**
-   * 将一个普通的SQL，转换为COUNT查询的SQL，去掉Select中的字段列表，和ORDER子句。
+   * 将一个普通的SQL，转换为COUNT查询的SQL，去掉最外层的ORDER和LIMIT子句，可能的情况下去掉Select中的字段列表。
    * 
    * @param querySql 普通的SQL
+   * @see SQLTokenizer#countSql()
    */
   public String countSql(String querySql) {
-    return new StringBuilder(150).append("SELECT COUNT(*) FROM (").append(removeOrders(removeLimit(querySql)))
-        .append(") table_ ").toString();
+    return SQLTokenizer.of(querySql).countSql();
   }
 
   /**
@@ -377,202 +701,108 @@ public final class SQLFactory {
     if (limitSql == null) {
       limitSql = SQLRequest.DEFAULT_LIMIT_SQL;
     }
-    return limitSql.getLimitSql(sql, start, limit);
-  }
-
-  /**
-   * 使用下划线命名法，取得实体类对应的表名
-   */
-  public String getTablename(Class<?> entityClass) {
-    return SQLRequest.DEFAULT_NAME_STRATEGY.tablename(entityClass);
+    return limitSql.getLimitSql(removeLimit(sql), start, limit);
   }
 
   /**
-   * 获取SQL语句的缓存键值
-   * 
-   * @param sqlRequest SQLRequest对象
-   * @param type SQL类型
-   * @return 缓存Key
+   * 返回Keyset分页的SQL和参数。删除最外层的ORDER BY和LIMIT子句，如果{@link Page#getAfter()}不为{@code null}，
+   * 在WHERE子句中追加{@link LimitSQL#getKeysetPredicate(String, String, boolean)}，然后按照(排序字段, ID)排序，
+   * 取{@link Page#getLimit()}行。如果不能直接追加条件（例如UNION查询），则将原SQL作为子查询，使用结果中的字段名。
+   *
+   * @param sql 原始的SQL，使用{@code ?}占位符
+   * @param args 原始SQL的参数
+   * @param page 使用Keyset分页的{@link Page}
+   * @param limitSql 如果为{@code null}，使用缺省的{@code LimitSQL}
+   * @return Keyset分页的SQL和参数
    */
-  private String sqlKey(SQLRequest sqlRequest, String type) {
-    StringBuilder keyBuilder = new StringBuilder(200).append(type).append(sqlRequest.toString());
-    return DigestUtils.md5DigestAsHex(keyBuilder.toString().getBytes(Charsets.UTF_8));
-  }
-
-  private List<ColField> getColFields(SQLRequest sqlRequest) {
-    PropertyDescriptor[] propertyDescriptors = BeanUtils.getPropertyDescriptors(sqlRequest.getEntityClass());
-    if (propertyDescriptors == null) {
-      throw new RuntimeException("无法获取PropertyDescriptor " + sqlRequest.getEntityClass().getName());
+  public SQLReady keysetSql(String sql, Object[] args, Page page, LimitSQL limitSql) {
+    Preconditions.checkArgument(page != null && page.isKeyset(), "Page must be in keyset mode.");
+    if (limitSql == null) {
+      limitSql = SQLRequest.DEFAULT_LIMIT_SQL;
     }
-
-    List<ColField> colFields = new ArrayList<ColField>(propertyDescriptors.length);
-    for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-      if (propertyDescriptor == null || StringUtils.isBlank(propertyDescriptor.getName())) {
-        continue;
+    KeysetToken after = page.getAfter() == null ? null : KeysetToken.decode(page.getAfter());
+    String sortColumn = page.getKeysetColumn();
+    String idColumn = page.getKeysetIdColumn();
+
+    SQLTokenizer tokenizer = SQLTokenizer.of(sql);
+    String keysetSql = tokenizer.appendCondition(after == null ? null 
+        : limitSql.getKeysetPredicate(sortColumn, idColumn, page.isKeysetDesc()));
+    if (keysetSql == null) { //作为子查询，使用结果中的字段名
+      sortColumn = columnLabel(sortColumn);
+      idColumn = columnLabel(idColumn);
+      StringBuilder wrapped = new StringBuilder(sql.length() + 80).append("SELECT * FROM (")
+          .append(tokenizer.removeLimit()).append(") keyset_");
+      if (after != null) {
+        wrapped.append(" WHERE ").append(limitSql.getKeysetPredicate(sortColumn, idColumn, page.isKeysetDesc()));
       }
-      // Read方法
-      Method readMethod = propertyDescriptor.getReadMethod();
-      Field field = ReflectUtil.findField(sqlRequest.getEntityClass(), propertyDescriptor.getName());
-      String fieldname = propertyDescriptor.getName();
-      if (this.ignore(propertyDescriptor, readMethod, field, sqlRequest, fieldname)) {
-        continue;
-      }
-      
-      // 列名，根据字段名转换得到，与表生成的规则相同
-      String columnName = sqlRequest.getNamingStrategy().columnName(sqlRequest.getEntityClass(), fieldname);
-      boolean isPrimary = (getAnnotation(field, Id.class) != null);
-      Class<?> type = field.getType();
-
-      boolean isForeign = ((getAnnotation(field, JoinColumn.class) != null
-          || getAnnotation(field, ManyToOne.class) != null) && type.getAnnotation(Entity.class) != null);
-
-      ColField colField = new ColField(columnName, field, isPrimary, isForeign, type, sqlRequest.getEntityClass());
-      colField.alias = sqlRequest.getNamingStrategy().tableAlias(colField.ownerClass);
-      colField.simpleAlias = sqlRequest.getNamingStrategy().simpleAlias(colField.ownerClass);
-
-      if (sqlRequest.getEntity() != null) {
-        colField.setOwnerValue(sqlRequest.getEntity());
-      }
-      colFields.add(colField);
+      keysetSql = wrapped.toString();
     }
 
-    colFields.sort(new Comparator<ColField>() {
-      @Override
-      public int compare(ColField cf1, ColField cf2) {
-        if (cf1 == null && cf2 == null) {
-          return 0;
-        }
-
-        if (cf1 == null && cf2 != null) {
-          return -1;
-        }
-
-        if (cf1 != null && cf2 == null) {
-          return 1;
-        }
-
-        if ("id".equalsIgnoreCase(cf1.col)) {
-          return -1;
-        }
-
-        if (cf1.col != null) {
-          return cf1.col.compareToIgnoreCase(cf2.col);
-        }
+    String direction = page.isKeysetDesc() ? " DESC" : " ASC";
+    keysetSql = new StringBuilder(keysetSql.length() + 40).append(keysetSql).append(" ORDER BY ").append(sortColumn)
+        .append(direction).append(", ").append(idColumn).append(direction).toString();
 
-        throw new NullPointerException("字段名不可为空。");
-      }
-    });
-
-    return colFields;
+    Object[] queryArgs = args == null ? new Object[0] : args;
+    Object[] keysetArgs = after == null ? new Object[0] : limitSql.getKeysetArgs(after.getSortValue(), after.getId());
+    Object[] merged = new Object[queryArgs.length + keysetArgs.length];
+    System.arraycopy(queryArgs, 0, merged, 0, queryArgs.length);
+    System.arraycopy(keysetArgs, 0, merged, queryArgs.length, keysetArgs.length);
+    return new SQLReady(limitSql.getLimitSql(keysetSql, 0, page.getLimit()), merged, limitSql);
   }
-  
+
   /**
-   * 判断一个字段是否可以忽略（或者必须忽略）
-   * @param propertyDescriptor 字段描述
-   * @param readMethod 字段对应的getter
-   * @param field 字段对应的Field
-   * @param sqlRequest SQLRequest，忽略的或者必须包含的字段
-   * @param fieldname 字段名
-   * @return
+   * 字段在查询结果中的名字，即去掉表别名和引号，例如{@code u.created_at}为{@code created_at}
    */
-  private Boolean ignore(PropertyDescriptor propertyDescriptor, Method readMethod, Field field, SQLRequest sqlRequest, String fieldname) {
-    if (readMethod == null || field == null) {
-      return true;
-    }
-    // 如果标注为Transient,则忽略
-    if (getAnnotation(field, Transient.class) != null) {
-      return true;
+  static String columnLabel(String column) {
+    String label = column.substring(column.lastIndexOf('.') + 1).trim();
+    if (label.length() > 1 && (label.charAt(0) == '`' || label.charAt(0) == '"')) {
+      label = label.substring(1, label.length() - 1);
     }
-    if (getAnnotation(field, java.beans.Transient.class) != null) {
-      return true;
-    }
-
-    // 如果是集合类或者数组，则忽略
-    if (ClassUtils.isAssignable(Collection.class, propertyDescriptor.getPropertyType())
-        || propertyDescriptor.getPropertyType().isArray()) {
-      return true;
-    }
-    
-    // 必须包含
-    if (!CollectionUtils.isEmpty(sqlRequest.getIncludes()) && !sqlRequest.getIncludes().contains(fieldname)) {
-      return true;
-    }
-    // 必须排除
-    if (!CollectionUtils.isEmpty(sqlRequest.getExcludes()) && sqlRequest.getExcludes().contains(fieldname)) {
-      return true;
-    }
-    return false;
+    return label;
   }
 
-  private Object getField(Field field, Object entity) {
-    Method getter = ORMHelper.getInstance().getAccessMethod(field);
-    Object value;
-    if (getter != null) {
-      value = ReflectUtil.invokeMethod(getter, entity);
-    } else {
-      ReflectionUtils.makeAccessible(field);
-      value = ReflectUtil.getField(field, entity);
-    }
-
-    return value;
-  }
-
-  private Object getField(ColField colField, Object entity) {
-    Field field = colField.getField();
-    Object value = getField(field, entity);
-    // 外键字段加载getId()
-    if (colField.isForeign && value != null && (value instanceof BaseEntity)) {
-      return ((BaseEntity) value).getId();
-    }
-
-    return value;
+  /**
+   * 使用下划线命名法，取得实体类对应的表名
+   */
+  public String getTablename(Class<?> entityClass) {
+    return SQLRequest.DEFAULT_NAME_STRATEGY.tablename(entityClass);
   }
 
-  private static <T extends Annotation> T getAnnotation(Field field, Class<T> annotationClass) {
-    Objects.requireNonNull(field);
-    ORMHelper ormHelper = ORMHelper.getInstance();
-
-    T ann = field.getAnnotation(annotationClass);
-    if (ann == null) {
-      Method getter = ormHelper.getAccessMethod(field);
-      ann = getter.getAnnotation(annotationClass);
-    }
-
-    return ann;
+  /**
+   * 返回SELECT语句缓存的统计信息，包括命中次数、未命中次数以及被淘汰的数量
+   */
+  public CacheStats getSqlCacheStats() {
+    return sqlCache.stats();
   }
 
-  private ColField findPrimary(Collection<ColField> colFields) {
-    if (colFields == null || colFields.isEmpty()) {
-      return null;
-    }
-    for (Iterator<ColField> itr = colFields.iterator(); itr.hasNext();) {
-      ColField cf = itr.next();
-      if (cf.isPrimary) {
-        return cf;
+  private EntityMeta.Column findPrimary(List<EntityMeta.Column> columns) {
+    for (EntityMeta.Column column : columns) {
+      if (column.isPrimary()) {
+        return column;
       }
     }
     return null;
   }
   
 
-  private String selectCols(SQLRequest sqlRequest, String tableAlias, ColField colField) {
+  private String selectCols(SQLRequest sqlRequest, String tableAlias, EntityMeta.Column column) {
     StringBuilder sqlSeg = new StringBuilder(100);
     // 属性名作为别名
     if (sqlRequest.isUsingAlias()) {
-      sqlSeg.append(tableAlias).append(".").append(colField.col).append(" as ").append(colField.fieldname);
+      sqlSeg.append(tableAlias).append(".").append(column.getColumn()).append(" as ").append(column.getFieldname());
     } else { // 不使用别名
-      sqlSeg.append(colField.col);
+      sqlSeg.append(column.getColumn());
     }
     
     return sqlSeg.toString();
   }
   
-  private String selectById(SQLRequest sqlRequest, ColField primary, String tableAlias) {
+  private String selectById(SQLRequest sqlRequest, EntityMeta.Column primary, String tableAlias) {
     StringBuilder sqlBuf = new StringBuilder(100);
-    String idCol = (primary != null ? primary.col : "id");
+    String idCol = (primary != null ? primary.getColumn() : "id");
     sqlBuf.append("WHERE ").append(tableAlias).append(".").append(idCol).append("=");
     if (sqlRequest.isNamedParams()) {
-      String idField = (primary != null ? tableAlias + "." + primary.fieldname : tableAlias + ".id");
+      String idField = (primary != null ? tableAlias + "." + primary.getFieldname() : tableAlias + ".id");
       sqlBuf.append(":").append(idField);
     } else {
       sqlBuf.append("?");
@@ -596,6 +826,82 @@ public final class SQLFactory {
   }
 
 
+  /**
+   * 从实体对象中读取的参数值，以及出现在SQL中的字段的bitmask
+   */
+  private static final class BoundColumns {
+    private final long[] mask;
+    private final Object[] args;
+    private final int count;
+
+    private BoundColumns(long[] mask, Object[] args, int count) {
+      this.mask = mask;
+      this.args = args;
+      this.count = count;
+    }
+
+    /**
+     * 转换为命名参数，Key为属性名
+     */
+    private Map<String, Object> toNamedParams(EntityMeta meta, String idField, Object id) {
+      Map<String, Object> namedParams = new LinkedHashMap<>(count + 1);
+      int i = 0;
+      for (EntityMeta.Column column : meta.getColumns()) {
+        if (isPresent(mask, column.getIndex())) {
+          namedParams.put(column.getFieldname(), args[i++]);
+        }
+      }
+      if (idField != null) {
+        namedParams.put(idField, id);
+      }
+      return namedParams;
+    }
+  }
+
+  /**
+   * INSERT/UPDATE语句模板的缓存Key，SQL的结构只取决于实体类、命名策略、语句类型以及出现在SQL中的字段
+   */
+  private static final class TemplateKey {
+    private final Class<?> entityClass;
+    private final Class<?> namingStrategyClass;
+    private final int type;
+    private final boolean namedParams;
+    private final long[] mask;
+    private final int hash;
+
+    private TemplateKey(EntityMeta meta, int type, boolean namedParams, long[] mask) {
+      this.entityClass = meta.getEntityClass();
+      this.namingStrategyClass = meta.getNamingStrategyClass();
+      this.type = type;
+      this.namedParams = namedParams;
+      this.mask = mask;
+      int h = entityClass.hashCode();
+      h = 31 * h + namingStrategyClass.hashCode();
+      h = 31 * h + type;
+      h = 31 * h + (namedParams ? 1 : 0);
+      this.hash = 31 * h + Arrays.hashCode(mask);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof TemplateKey)) {
+        return false;
+      }
+      TemplateKey other = (TemplateKey) obj;
+      return hash == other.hash && type == other.type && namedParams == other.namedParams
+          && entityClass == other.entityClass && namingStrategyClass == other.namingStrategyClass
+          && Arrays.equals(mask, other.mask);
+    }
+  }
+
   /**
    * 用于装载数据库字段col, 和实体类属性field的对应关系
    * 
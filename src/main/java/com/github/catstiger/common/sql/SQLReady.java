@@ -1,8 +1,7 @@
 package com.github.catstiger.common.sql;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.function.BooleanSupplier;
 
@@ -10,7 +9,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.lang.Nullable;
 
 import com.github.catstiger.common.sql.limit.LimitSQL;
-import com.google.common.base.Joiner;
 
 /**
  * 用于存放生成的SQL，以及对应的参数。SQLReady可以简化“SQL拼接”，使得代码更加清爽简洁。下面是一个场景：
@@ -26,9 +24,14 @@ import com.google.common.base.Joiner;
 public final class SQLReady {
   
   /**
-   * SQL对应的参数列表
+   * SQL对应的参数，{@code argCount}之后的位置是预留的空间
    */
-  private List<Object> args = new ArrayList<>(10);
+  private Object[] args;
+  
+  /**
+   * 参数的数量
+   */
+  private int argCount = 0;
   
   /**
    * 命名SQL对应的参数列表
@@ -41,9 +44,24 @@ public final class SQLReady {
   private LimitSQL limitSql = SQLRequest.DEFAULT_LIMIT_SQL;
   
   /**
-   * SQL片段，所有的元素组合成一个完整的SQL
+   * SQL片段，每次append都直接追加到这个缓冲区中，片段之间用{@link #SQL_SPLITTER}分隔
+   */
+  private final StringBuilder sqlBuf = new StringBuilder(256);
+  
+  /**
+   * 已经追加的SQL片段的数量
+   */
+  private int fragments = 0;
+  
+  /**
+   * {@link #getSql()}的结果，下一次append之前一直有效
+   */
+  private String sql;
+  
+  /**
+   * 是否已经追加了{@link #WHERE_TRUE}
    */
-  private List<String> appended = new ArrayList<>(10);
+  private boolean whereTrue = false;
  
   /**
    * 组合SQL使用的分隔符
@@ -86,12 +104,11 @@ public final class SQLReady {
    * @param args 对应的参数，与SQL语句中的占位符数量相同，顺序一致。
    */
   public SQLReady(String sql, Object... args) {
-    appended.add(sql);
-    if (args != null) {
-      for (Object arg : args) {
-        this.args.add(arg);
-      }
+    if (sql == null) {
+      throw new IllegalArgumentException("SQL must not be null.");
     }
+    initArgs(args);
+    appendSql(sql);
   }
   
   /**
@@ -106,7 +123,8 @@ public final class SQLReady {
     if (sql == null) {
       throw new IllegalArgumentException("SQL must not be null.");
     }
-    appended.add(sql);
+    initArgs(null);
+    appendSql(sql);
     this.namedParameters = namedParameters;
   }
 
@@ -121,12 +139,8 @@ public final class SQLReady {
       throw new IllegalArgumentException("SQL must not be null.");
     }
 
-    appended.add(sql);
-    if (args != null) {
-      for (Object arg : args) {
-        this.args.add(arg);
-      }
-    }
+    initArgs(args);
+    appendSql(sql);
     this.limitSql = limitSql;
   }
 
@@ -140,7 +154,11 @@ public final class SQLReady {
    */
   @Deprecated
   public SQLReady(String sql, Map<String, Object> namedParameters, LimitSQL limitSql) {
-    appended.add(sql);
+    if (sql == null) {
+      throw new IllegalArgumentException("SQL must not be null.");
+    }
+    initArgs(null);
+    appendSql(sql);
     this.namedParameters = namedParameters;
     this.limitSql = limitSql;
   }
@@ -211,7 +229,7 @@ public final class SQLReady {
    * @return
    */
   public SQLReady where() {
-    if (appended.contains(WHERE_TRUE)) {
+    if (whereTrue) {
       return this;
     }
     return this.append(WHERE_TRUE);
@@ -377,15 +395,17 @@ public final class SQLReady {
    * @return SQL
    */
   public String getSql() {
-    return Joiner.on(SQL_SPLITTER).join(appended);
+    if (sql == null) {
+      sql = sqlBuf.toString();
+    }
+    return sql;
   }
 
   /**
-   * 返回所有的SQL参数，返回的顺序与SQL中占位符的顺序相同，数量相同
+   * 返回所有的SQL参数的副本，返回的顺序与SQL中占位符的顺序相同，数量相同
    */
   public Object[] getArgs() {
-    Object[] objs = new Object[args.size()];
-    return args.toArray(objs);
+    return Arrays.copyOf(args, argCount);
   }
 
   /**
@@ -394,11 +414,7 @@ public final class SQLReady {
    * @param args 查询参数。
    */
   public void setArgs(Object[] args) {
-    if (args != null) {
-      for (Object arg : args) {
-        this.args.add(arg);
-      }
-    }
+    addArgs(args);
   }
 
   /**
@@ -408,7 +424,8 @@ public final class SQLReady {
    * @return this instance.
    */
   public SQLReady addArg(Object arg) {
-    this.args.add(arg);
+    ensureArgsCapacity(argCount + 1);
+    args[argCount++] = arg;
     return this;
   }
 
@@ -440,12 +457,8 @@ public final class SQLReady {
     if (sqlSegment == null) {
       throw new IllegalArgumentException("Sql Segment must not be null.");
     }
-    appended.add(sqlSegment);
-    if (appendArgs != null && appendArgs.length > 0) {
-      for (Object arg : appendArgs) {
-        this.args.add(arg);
-      }
-    }
+    appendSql(sqlSegment);
+    addArgs(appendArgs);
     return this;
   }
 
@@ -489,7 +502,7 @@ public final class SQLReady {
     if (sqlSegment == null) {
       throw new IllegalArgumentException("Sql Segment must not be null.");
     }
-    appended.add(sqlSegment);
+    appendSql(sqlSegment);
     if (name != null) {
       this.namedParameters.put(name, value);
     }
@@ -542,7 +555,7 @@ public final class SQLReady {
     if (sqlSegment == null) {
       throw new IllegalArgumentException("Sql Segment must not be null.");
     }
-    appended.add(sqlSegment);
+    appendSql(sqlSegment);
     if (namedParams != null) {
       this.namedParameters.putAll(namedParams);
     }
@@ -638,8 +651,8 @@ public final class SQLReady {
       return this;
     }
 
-    String orderBy = getSql().indexOf(ORDER_BY) > 0 ? " , " : ORDER_BY;
-    appended.add(new StringBuilder(20).append(orderBy).append(column).append(" ").append(direction).toString());
+    String orderBy = sqlBuf.indexOf(ORDER_BY) > 0 ? " , " : ORDER_BY;
+    appendSql(new StringBuilder(20).append(orderBy).append(column).append(" ").append(direction).toString());
     return this;
   }
 
@@ -711,6 +724,17 @@ public final class SQLReady {
     return SQLFactory.getInstance().limitSql(getSql(), start, limit, limitSql);
   }
 
+  /**
+   * 将一个普通的SQL转换为Keyset分页的SQL，参见{@link SQLFactory#keysetSql(String, Object[], Page, LimitSQL)}。
+   * 只支持使用{@code ?}占位符的SQL
+   * 
+   * @param page 使用Keyset分页的{@link Page}
+   * @return 新的{@code SQLReady}，包括Keyset分页的SQL和参数
+   */
+  public SQLReady keysetSql(Page page) {
+    return SQLFactory.getInstance().keysetSql(getSql(), getArgs(), page, limitSql);
+  }
+
   /**
    * 设定本{@code SQLReady}实例所使用的{@code LimitSql}的实例，根据不同的数据库，{@code LimitSql}会不同。
    * 
@@ -722,11 +746,58 @@ public final class SQLReady {
     return this;
   }
 
+  /**
+   * 返回本实例所使用的{@code LimitSQL}
+   */
+  LimitSQL getLimitSqlInstance() {
+    return limitSql;
+  }
+
   @Override
   public String toString() {
     return getSql();
   }
   
+  /**
+   * 追加一个SQL片段，并使{@link #getSql()}缓存的结果失效
+   */
+  private void appendSql(String sqlSegment) {
+    if (fragments > 0) {
+      sqlBuf.append(SQL_SPLITTER);
+    }
+    sqlBuf.append(sqlSegment);
+    fragments++;
+    sql = null;
+    if (WHERE_TRUE.equals(sqlSegment)) {
+      whereTrue = true;
+    }
+  }
+  
+  private void initArgs(Object[] initArgs) {
+    if (initArgs != null && initArgs.length > 0) {
+      args = Arrays.copyOf(initArgs, Math.max(initArgs.length, 10));
+      argCount = initArgs.length;
+    } else {
+      args = new Object[10];
+      argCount = 0;
+    }
+  }
+  
+  private void addArgs(Object[] appendArgs) {
+    if (appendArgs == null || appendArgs.length == 0) {
+      return;
+    }
+    ensureArgsCapacity(argCount + appendArgs.length);
+    System.arraycopy(appendArgs, 0, args, argCount, appendArgs.length);
+    argCount += appendArgs.length;
+  }
+  
+  private void ensureArgsCapacity(int capacity) {
+    if (capacity > args.length) {
+      args = Arrays.copyOf(args, Math.max(capacity, args.length * 2));
+    }
+  }
+  
   private boolean andStart(String str) {
     if (StringUtils.isBlank(str)) {
       return false;
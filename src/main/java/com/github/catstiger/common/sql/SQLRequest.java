@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -13,6 +14,7 @@ import com.github.catstiger.common.sql.limit.LimitSQL;
 import com.github.catstiger.common.sql.limit.MySqlLimitSQL;
 import com.github.catstiger.common.sql.naming.CamelCaseNamingStrategy;
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 
 /**
  * 用于存放生成SQL所需的参数
@@ -338,6 +340,14 @@ public final class SQLRequest {
     return this.namingStrategy;
   }
 
+  /**
+   * 返回用于缓存SQL的Key，包括实体类、别名、必须包含/排除的属性、byId、namedParams以及命名策略。
+   * Key是不可变的，hashCode在创建的时候计算，可以直接作为缓存的Key。
+   */
+  public Key cacheKey() {
+    return new Key(this);
+  }
+
   @Override
   public String toString() {
     StringBuilder buf = new StringBuilder(200);
@@ -411,4 +421,57 @@ public final class SQLRequest {
     this.tableAlias = tableAlias;
   }
 
+  /**
+   * {@link SQLRequest}中决定SQL结构的部分，不可变，用于替代toString作为SQL缓存的Key
+   */
+  public static final class Key {
+    private final Class<?> entityClass;
+    private final boolean usingAlias;
+    private final String tableAlias;
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean byId;
+    private final boolean namedParams;
+    private final Class<?> namingStrategyClass;
+    private final int hash;
+
+    private Key(SQLRequest sqlRequest) {
+      this.entityClass = (sqlRequest.entity != null ? sqlRequest.entity.getClass() : sqlRequest.entityClass);
+      this.usingAlias = sqlRequest.usingAlias;
+      this.tableAlias = sqlRequest.tableAlias;
+      this.includes = CollectionUtils.isEmpty(sqlRequest.includes) ? ImmutableList.of() : ImmutableList.copyOf(sqlRequest.includes);
+      this.excludes = CollectionUtils.isEmpty(sqlRequest.excludes) ? ImmutableList.of() : ImmutableList.copyOf(sqlRequest.excludes);
+      this.byId = sqlRequest.byId;
+      this.namedParams = sqlRequest.namedParams;
+      this.namingStrategyClass = sqlRequest.namingStrategy.getClass();
+
+      int h = entityClass.hashCode();
+      h = 31 * h + (usingAlias ? 1 : 0);
+      h = 31 * h + (tableAlias == null ? 0 : tableAlias.hashCode());
+      h = 31 * h + includes.hashCode();
+      h = 31 * h + excludes.hashCode();
+      h = 31 * h + (byId ? 1 : 0);
+      h = 31 * h + (namedParams ? 1 : 0);
+      this.hash = 31 * h + namingStrategyClass.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && entityClass == other.entityClass && usingAlias == other.usingAlias
+          && byId == other.byId && namedParams == other.namedParams && namingStrategyClass == other.namingStrategyClass
+          && Objects.equals(tableAlias, other.tableAlias) && includes.equals(other.includes) && excludes.equals(other.excludes);
+    }
+  }
 }
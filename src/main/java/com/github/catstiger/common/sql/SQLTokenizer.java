@@ -0,0 +1,660 @@
+package com.github.catstiger.common.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import org.springframework.util.Assert;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 轻量级的SQL词法分析器，能够识别括号、字符串常量、引号标识符、参数占位符和注释，
+ * 并据此找出最外层（不在括号中）的SELECT列表、FROM、ORDER BY和LIMIT子句的位置。
+ * 用于改写COUNT SQL和LIMIT SQL，嵌套查询中的ORDER BY、LIMIT，以及字符串和注释中的关键字都不会被误改。
+ * <p>
+ * 分析的结果按照SQL文本缓存，同一个SQL只会分析一次，实例是不可变的。
+ * </p>
+ */
+public final class SQLTokenizer {
+  /**
+   * 缓存的SQL的最大数量
+   */
+  public static final int CACHE_SIZE = 2048;
+
+  static final int WORD = 1;
+  static final int QUOTED = 2;
+  static final int STRING = 3;
+  static final int NUMBER = 4;
+  static final int PARAM = 5;
+  static final int OPEN = 6;
+  static final int CLOSE = 7;
+  static final int SYMBOL = 8;
+
+  private static Cache<String, SQLTokenizer> cache = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  private final String sql;
+  private final List<Token> tokens;
+
+  /**
+   * 最外层FROM的位置，如果没有，为-1
+   */
+  private int fromStart = -1;
+
+  /**
+   * 可以删除的最外层ORDER BY子句的范围，如果没有，为-1
+   */
+  private int orderStart = -1;
+  private int orderEnd = -1;
+
+  /**
+   * 可以删除的最外层LIMIT子句的范围，如果没有，为-1
+   */
+  private int limitStart = -1;
+  private int limitEnd = -1;
+
+  /**
+   * 是否可以用COUNT(*)直接替换SELECT列表
+   */
+  private boolean simpleSelect;
+
+  /**
+   * 改写之后的SQL，第一次使用的时候生成
+   */
+  private volatile String withoutOrders;
+  private volatile String withoutLimit;
+  private volatile String countSql;
+
+  /**
+   * SQL引用的表名，第一次使用的时候分析
+   */
+  private volatile Set<String> tables;
+
+  private SQLTokenizer(String sql) {
+    this.sql = sql;
+    this.tokens = Collections.unmodifiableList(tokenize(sql));
+    analyze();
+  }
+
+  /**
+   * 返回给定SQL的分析结果，结果会被缓存
+   * @param sql 给出SQL
+   * @return Instance of {@code SQLTokenizer}
+   */
+  public static SQLTokenizer of(String sql) {
+    Assert.notNull(sql, "SQL must not be null.");
+    SQLTokenizer tokenizer = cache.getIfPresent(sql);
+    if (tokenizer == null) {
+      tokenizer = new SQLTokenizer(sql);
+      cache.put(sql, tokenizer);
+    }
+    return tokenizer;
+  }
+
+  /**
+   * 返回SQL引用的表名，参见{@link #getTables()}。如果SQL没有被缓存，分析的结果也不放入缓存，
+   * 用于INSERT、UPDATE等很少重复的语句，以免挤掉缓存中的查询语句
+   * @param sql 给出SQL
+   * @return 不可修改的集合，如果没有找到表名，返回空集合
+   */
+  public static Set<String> tablesOf(String sql) {
+    Assert.notNull(sql, "SQL must not be null.");
+    SQLTokenizer tokenizer = cache.getIfPresent(sql);
+    return tokenizer == null ? new SQLTokenizer(sql).getTables() : tokenizer.getTables();
+  }
+
+  /**
+   * SQL的分析结果是否在缓存中
+   */
+  static boolean isCached(String sql) {
+    return cache.getIfPresent(sql) != null;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * 删除最外层的SELECT列表，例如，SELECT ID FROM MY_TABLE，会变成 FROM MY_TABLE
+   */
+  public String removeSelect() {
+    Assert.isTrue(fromStart != -1, " sql : " + sql + " must has a keyword 'from'");
+    return sql.substring(fromStart);
+  }
+
+  /**
+   * 删除最外层的ORDER BY子句，如果ORDER BY子句中有参数占位符，则保留
+   */
+  public String removeOrders() {
+    String result = withoutOrders;
+    if (result == null) {
+      result = cut(orderStart, orderEnd, -1, -1);
+      withoutOrders = result;
+    }
+    return result;
+  }
+
+  /**
+   * 删除最外层的、使用数字常量的LIMIT子句，使用参数占位符的LIMIT子句会被保留，以免参数错位
+   */
+  public String removeLimit() {
+    String result = withoutLimit;
+    if (result == null) {
+      result = cut(limitStart, limitEnd, -1, -1);
+      withoutLimit = result;
+    }
+    return result;
+  }
+
+  /**
+   * 返回用于COUNT查询的SQL。最外层的ORDER BY和LIMIT子句被删除；如果是简单查询（没有DISTINCT、GROUP BY、
+   * HAVING、UNION，SELECT列表中没有函数、子查询和参数），直接用COUNT(*)替换SELECT列表，否则包装为
+   * {@code SELECT COUNT(*) FROM (...) table_}
+   */
+  public String countSql() {
+    String result = countSql;
+    if (result == null) {
+      String inner = cut(orderStart, orderEnd, limitStart, limitEnd);
+      if (simpleSelect) {
+        result = new StringBuilder(inner.length() - fromStart + 20).append("SELECT COUNT(*) ")
+            .append(inner, fromStart, inner.length()).toString();
+      } else {
+        result = new StringBuilder(inner.length() + 40).append("SELECT COUNT(*) FROM (").append(inner)
+            .append(") table_ ").toString();
+      }
+      countSql = result;
+    }
+    return result;
+  }
+
+  /**
+   * 是否可以用COUNT(*)直接替换SELECT列表
+   */
+  public boolean isSimpleSelect() {
+    return simpleSelect;
+  }
+
+  List<Token> getTokens() {
+    return tokens;
+  }
+
+  /**
+   * 删除最外层的ORDER BY和LIMIT子句，并在最外层的WHERE子句中追加一个条件（原有的条件用括号包围），
+   * 如果没有WHERE子句，则在FROM子句之后添加WHERE。条件中的参数排在原有参数之后。
+   * @param condition 追加的条件，如果为{@code null}，只删除ORDER BY和LIMIT子句
+   * @return 追加条件之后的SQL；如果不能直接追加（UNION查询、追加位置之后有参数占位符、ORDER BY或者LIMIT子句不能删除），
+   *     返回{@code null}
+   */
+  String appendCondition(String condition) {
+    if (fromStart < 0) {
+      return null;
+    }
+    int fromIndex = -1;
+    int whereIndex = -1;
+    int end = tokens.size();
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.depth != 0 || token.type != WORD) {
+        continue;
+      }
+      if (is(token, "UNION") || is(token, "INTERSECT") || is(token, "EXCEPT") || is(token, "MINUS")) {
+        return null;
+      }
+      if (fromIndex < 0) {
+        fromIndex = token.start == fromStart ? i : -1;
+      } else if (whereIndex < 0 && end == tokens.size() && is(token, "WHERE")) {
+        whereIndex = i;
+      } else if (end == tokens.size() && (is(token, "GROUP") || is(token, "HAVING") || is(token, "WINDOW")
+          || is(token, "ORDER") || is(token, "LIMIT") || is(token, "OFFSET") || is(token, "FETCH") || is(token, "FOR"))) {
+        end = i;
+      }
+    }
+    if (condition != null && hasParam(end, tokens.size())) { // 追加的参数会排在GROUP BY/HAVING的参数之前
+      return null;
+    }
+    for (int i = end; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.depth == 0 && ((is(token, "ORDER") && orderStart < 0) || (is(token, "LIMIT") && limitStart < 0))) {
+        return null;
+      }
+    }
+
+    String base = cut(orderStart, orderEnd, limitStart, limitEnd);
+    if (condition == null) {
+      return base;
+    }
+    int insertAt = end < tokens.size() ? Math.min(trimBack(tokens.get(end).start), base.length()) : base.length();
+    StringBuilder buf = new StringBuilder(base.length() + condition.length() + 20);
+    if (whereIndex >= 0) {
+      int whereEnd = tokens.get(whereIndex).end;
+      int condStart = whereIndex + 1 < tokens.size() ? Math.min(tokens.get(whereIndex + 1).start, insertAt)
+          : insertAt;
+      buf.append(base, 0, whereEnd).append(" (").append(base, condStart, insertAt).append(") AND ");
+    } else {
+      buf.append(base, 0, insertAt).append(" WHERE ");
+    }
+    return buf.append(condition).append(base, insertAt, base.length()).toString();
+  }
+
+  /**
+   * 是否是查询语句（以SELECT或者WITH开始）
+   */
+  public boolean isQuery() {
+    return !tokens.isEmpty() && (is(tokens.get(0), "SELECT") || is(tokens.get(0), "WITH"));
+  }
+
+  /**
+   * 返回SQL引用的表名（小写，不带Schema和引号），包括子查询中的表，用于判断查询缓存的失效。
+   * 表名是FROM（包括逗号分隔的多个表）、JOIN、INTO、USING、TABLE之后的名字，以及UPDATE语句的第一个名字。
+   * 分析是保守的：WITH子句定义的名字、{@code EXTRACT(YEAR FROM col)}中的字段也会被当作表名，只会导致多余的失效。
+   * @return 不可修改的集合，如果没有找到表名，返回空集合
+   */
+  public Set<String> getTables() {
+    Set<String> names = tables;
+    if (names == null) {
+      names = Collections.unmodifiableSet(extractTables());
+      tables = names;
+    }
+    return names;
+  }
+
+  private Set<String> extractTables() {
+    Set<String> names = new LinkedHashSet<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.type != WORD) {
+        continue;
+      }
+      boolean list = is(token, "FROM");
+      if (list || is(token, "JOIN") || is(token, "INTO") || is(token, "USING") || is(token, "TABLE")
+          || (i == 0 && is(token, "UPDATE"))) {
+        int j = i + 1;
+        if (j + 1 < tokens.size() && is(tokens.get(j), "IF")) { // DROP TABLE IF [NOT] EXISTS
+          j += is(tokens.get(j + 1), "NOT") ? 3 : 2;
+        }
+        while ((j = tableName(j, names)) > 0 && list) {
+          if (j < tokens.size() && is(tokens.get(j), "AS")) {
+            j++;
+          }
+          if (j + 1 < tokens.size() && isName(tokens.get(j)) && is(tokens.get(j + 1), ",")) { // 别名
+            j++;
+          }
+          if (j >= tokens.size() || !is(tokens.get(j), ",")) {
+            break;
+          }
+          j++;
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * 从给定的位置读取一个（可能带Schema的）表名，放入names
+   * @return 表名之后的位置，如果给定的位置不是名字，返回-1
+   */
+  private int tableName(int index, Set<String> names) {
+    if (index >= tokens.size() || !isName(tokens.get(index))) {
+      return -1;
+    }
+    int j = index;
+    while (j + 2 < tokens.size() && is(tokens.get(j + 1), ".") && isName(tokens.get(j + 2))) {
+      j += 2;
+    }
+    Token name = tokens.get(j);
+    String text = name.type == QUOTED ? sql.substring(name.start + 1, name.end - 1) : name.text(sql);
+    names.add(text.toLowerCase());
+    return j + 1;
+  }
+
+  private boolean isName(Token token) {
+    return token.type == WORD || token.type == QUOTED;
+  }
+
+  /**
+   * 在最外层的SELECT列表的最后追加一个字段，例如{@code COUNT(*) OVER() AS total_}
+   * @param column 追加的字段，不能有参数
+   * @return 追加字段之后的SQL，如果是DISTINCT或者UNION查询，返回{@code null}
+   */
+  public String appendSelectColumn(String column) {
+    if (fromStart < 0 || tokens.size() < 2 || !is(tokens.get(0), "SELECT") || is(tokens.get(1), "DISTINCT")) {
+      return null;
+    }
+    for (Token token : tokens) {
+      if (token.depth == 0 && token.type == WORD && (is(token, "UNION") || is(token, "INTERSECT")
+          || is(token, "EXCEPT") || is(token, "MINUS"))) {
+        return null;
+      }
+    }
+    int selectEnd = trimBack(fromStart);
+    return new StringBuilder(sql.length() + column.length() + 4).append(sql, 0, selectEnd).append(", ").append(column)
+        .append(' ').append(sql, fromStart, sql.length()).toString();
+  }
+
+  /**
+   * 将单表查询改写为延迟关联（Deferred Join）：子查询只选择主键，排序并分页，再关联回原表取出所有字段。
+   * 对于很大的OFFSET，数据库只需要扫描主键（或者覆盖索引），而不是读取所有被丢弃的整行数据：
+   * <pre>
+   * SELECT u.* FROM users u WHERE u.dept_id=? ORDER BY u.created
+   * --&gt;
+   * SELECT u.* FROM users u JOIN (SELECT u.id AS dj_id_ FROM users u WHERE u.dept_id=? ORDER BY u.created LIMIT ...) dj_
+   * ON u.id = dj_.dj_id_ ORDER BY u.created
+   * </pre>
+   * 只支持简单的单表查询：没有JOIN、DISTINCT、GROUP BY、HAVING、UNION、FOR UPDATE，ORDER BY和SELECT列表中没有参数，
+   * 没有LIMIT子句。参数都在子查询中，顺序不变。
+   * @param idColumn 主键字段名，不带表别名
+   * @param limiter 为子查询添加分页子句
+   * @return 改写之后的SQL，如果不能改写，返回{@code null}
+   */
+  public String deferredJoin(String idColumn, UnaryOperator<String> limiter) {
+    if (fromStart < 0 || tokens.isEmpty() || !is(tokens.get(0), "SELECT")) {
+      return null;
+    }
+    int fromIndex = -1;
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.start == fromStart) {
+        fromIndex = i;
+        break;
+      }
+      if (token.type == PARAM || (token.depth == 0 && is(token, "DISTINCT"))) {
+        return null;
+      }
+    }
+    // FROM table [[AS] alias]
+    int i = fromIndex + 1;
+    if (i >= tokens.size() || (tokens.get(i).type != WORD && tokens.get(i).type != QUOTED)) {
+      return null;
+    }
+    String table = tokens.get(i).text(sql);
+    while (i + 2 < tokens.size() && is(tokens.get(i + 1), ".") && tokens.get(i + 2).type != SYMBOL) {
+      i += 2;
+      table = sql.substring(tokens.get(fromIndex + 1).start, tokens.get(i).end);
+    }
+    int tableEnd = tokens.get(i).end;
+    String qualifier = table;
+    i++;
+    if (i < tokens.size() && is(tokens.get(i), "AS")) {
+      i++;
+    }
+    if (i < tokens.size() && (tokens.get(i).type == WORD || tokens.get(i).type == QUOTED)
+        && !is(tokens.get(i), "WHERE") && !is(tokens.get(i), "ORDER")) {
+      qualifier = tokens.get(i).text(sql);
+      tableEnd = tokens.get(i).end;
+      i++;
+    }
+    if (i < tokens.size() && !is(tokens.get(i), "WHERE") && !is(tokens.get(i), "ORDER")) {
+      return null; // JOIN、逗号、GROUP BY、LIMIT等
+    }
+    int orderIndex = -1;
+    for (int j = i; j < tokens.size(); j++) {
+      Token token = tokens.get(j);
+      if (token.depth != 0 || token.type != WORD) {
+        continue;
+      }
+      if (is(token, "ORDER") && orderIndex < 0) {
+        orderIndex = j;
+      } else if (is(token, "GROUP") || is(token, "HAVING") || is(token, "UNION") || is(token, "INTERSECT")
+          || is(token, "EXCEPT") || is(token, "MINUS") || is(token, "LIMIT") || is(token, "OFFSET")
+          || is(token, "FETCH") || is(token, "FOR") || is(token, "WINDOW")) {
+        return null;
+      }
+    }
+    if (orderIndex >= 0 && (orderStart < 0 || hasParam(orderIndex, tokens.size()))) {
+      return null;
+    }
+
+    int whereEnd = orderIndex >= 0 ? trimBack(tokens.get(orderIndex).start) : sql.length();
+    String orderBy = orderIndex >= 0 ? sql.substring(orderStart, orderEnd) : "";
+    String key = qualifier + "." + idColumn;
+    StringBuilder inner = new StringBuilder(sql.length()).append("SELECT ").append(key).append(" AS dj_id_ ")
+        .append(sql, fromStart, whereEnd);
+    if (!orderBy.isEmpty()) {
+      inner.append(' ').append(orderBy);
+    }
+    StringBuilder buf = new StringBuilder(sql.length() * 2 + 60);
+    if (fromIndex == 2 && is(tokens.get(1), "*")) { // SELECT *不能包括子查询的字段
+      buf.append(sql, 0, tokens.get(1).start).append(qualifier).append(".*").append(sql, tokens.get(1).end, tableEnd);
+    } else {
+      buf.append(sql, 0, tableEnd);
+    }
+    buf.append(" JOIN (")
+        .append(limiter.apply(inner.toString())).append(") dj_ ON ").append(key).append(" = dj_.dj_id_");
+    if (!orderBy.isEmpty()) {
+      buf.append(' ').append(orderBy);
+    }
+    return buf.toString();
+  }
+
+  private void analyze() {
+    int fromIndex = -1;
+    int orderIndex = -1;
+    int limitIndex = -1;
+    boolean simple = !tokens.isEmpty() && is(tokens.get(0), "SELECT");
+
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.depth != 0 || token.type != WORD) {
+        continue;
+      }
+      if (is(token, "FROM")) {
+        if (fromIndex < 0) {
+          fromIndex = i;
+        }
+      } else if (is(token, "UNION") || is(token, "INTERSECT") || is(token, "EXCEPT") || is(token, "MINUS")) {
+        simple = false;
+        orderIndex = -1; // 只有最后一个查询之后的ORDER BY/LIMIT作用于整个结果
+        limitIndex = -1;
+      } else if (is(token, "GROUP") || is(token, "HAVING") || (i == 1 && is(token, "DISTINCT"))) {
+        simple = false;
+      } else if (is(token, "ORDER") && i + 1 < tokens.size() && is(tokens.get(i + 1), "BY")) {
+        orderIndex = i;
+      } else if (is(token, "LIMIT")) {
+        limitIndex = i;
+      }
+    }
+
+    if (fromIndex < 0) {
+      simple = false;
+    } else {
+      fromStart = tokens.get(fromIndex).start;
+      for (int i = 1; i < fromIndex && simple; i++) {
+        int type = tokens.get(i).type;
+        if (type == OPEN || type == PARAM) { // 函数（可能是聚合函数）、子查询或者参数
+          simple = false;
+        }
+      }
+    }
+    simpleSelect = simple;
+
+    if (orderIndex > fromIndex && fromIndex >= 0) {
+      int end = clauseEnd(orderIndex + 2, false);
+      if (!hasParam(orderIndex, end)) {
+        orderStart = tokens.get(orderIndex).start;
+        orderEnd = end < tokens.size() ? trimBack(tokens.get(end).start) : sql.length();
+      }
+    }
+
+    if (limitIndex > fromIndex && fromIndex >= 0) {
+      int end = clauseEnd(limitIndex + 1, true);
+      boolean literal = end > limitIndex + 1;
+      for (int i = limitIndex + 1; i < end && literal; i++) {
+        Token token = tokens.get(i);
+        literal = token.type == NUMBER || is(token, ",") || is(token, "OFFSET");
+      }
+      if (literal) {
+        limitStart = tokens.get(limitIndex).start;
+        limitEnd = end < tokens.size() ? trimBack(tokens.get(end).start) : sql.length();
+      }
+    }
+  }
+
+  /**
+   * 从指定的位置开始，找到下一个最外层子句（LIMIT、OFFSET、FETCH、FOR UPDATE）的开始位置
+   * @param limitClause 如果为true，OFFSET属于LIMIT子句的一部分
+   */
+  private int clauseEnd(int from, boolean limitClause) {
+    for (int i = from; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.depth == 0 && token.type == WORD && (is(token, "LIMIT") || is(token, "FETCH") || is(token, "FOR")
+          || (!limitClause && is(token, "OFFSET")))) {
+        return i;
+      }
+    }
+    return tokens.size();
+  }
+
+  private boolean hasParam(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (tokens.get(i).type == PARAM) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 删除SQL中的两个范围，被删除的范围之前的空白也会被删除
+   */
+  private String cut(int start1, int end1, int start2, int end2) {
+    if (start1 < 0 && start2 < 0) {
+      return sql;
+    }
+    if (start1 < 0 || (start2 >= 0 && start2 < start1)) {
+      return cut(start2, end2, start1, end1);
+    }
+    StringBuilder buf = new StringBuilder(sql.length());
+    buf.append(sql, 0, trimBack(start1));
+    if (start2 >= 0) {
+      buf.append(sql, end1, Math.max(end1, trimBack(start2))).append(sql, end2, sql.length());
+    } else {
+      buf.append(sql, end1, sql.length());
+    }
+    int len = buf.length();
+    while (len > 0 && Character.isWhitespace(buf.charAt(len - 1))) {
+      len--;
+    }
+    buf.setLength(len);
+    return buf.toString();
+  }
+
+  private int trimBack(int pos) {
+    while (pos > 0 && Character.isWhitespace(sql.charAt(pos - 1))) {
+      pos--;
+    }
+    return pos;
+  }
+
+  private boolean is(Token token, String text) {
+    int len = token.end - token.start;
+    return len == text.length() && sql.regionMatches(true, token.start, text, 0, len);
+  }
+
+  /**
+   * 将SQL分解为Token，空白和注释被忽略
+   */
+  static List<Token> tokenize(String sql) {
+    List<Token> tokens = new ArrayList<>(sql.length() / 4 + 1);
+    int len = sql.length();
+    int depth = 0;
+    int i = 0;
+    while (i < len) {
+      char c = sql.charAt(i);
+      char next = i + 1 < len ? sql.charAt(i + 1) : 0;
+      int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '-' && next == '-') { // 单行注释
+        while (i < len && sql.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (c == '/' && next == '*') { // 多行注释
+        int close = sql.indexOf("*/", i + 2);
+        i = close < 0 ? len : close + 2;
+      } else if (c == '\'') {
+        i = skipQuoted(sql, i, c);
+        tokens.add(new Token(STRING, start, i, depth));
+      } else if (c == '"' || c == '`') {
+        i = skipQuoted(sql, i, c);
+        tokens.add(new Token(QUOTED, start, i, depth));
+      } else if (c == '(') {
+        tokens.add(new Token(OPEN, start, ++i, depth++));
+      } else if (c == ')') {
+        depth = depth > 0 ? depth - 1 : 0;
+        tokens.add(new Token(CLOSE, start, ++i, depth));
+      } else if (c == '?') {
+        tokens.add(new Token(PARAM, start, ++i, depth));
+      } else if (c == ':' && Character.isJavaIdentifierStart(next) && (i == 0 || sql.charAt(i - 1) != ':')) {
+        i++;
+        while (i < len && Character.isJavaIdentifierPart(sql.charAt(i))) {
+          i++;
+        }
+        tokens.add(new Token(PARAM, start, i, depth));
+      } else if (Character.isDigit(c)) {
+        while (i < len && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(new Token(NUMBER, start, i, depth));
+      } else if (Character.isJavaIdentifierStart(c)) {
+        while (i < len && Character.isJavaIdentifierPart(sql.charAt(i))) {
+          i++;
+        }
+        tokens.add(new Token(WORD, start, i, depth));
+      } else {
+        tokens.add(new Token(SYMBOL, start, ++i, depth));
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * 跳过引号中的内容，支持两个引号的转义，以及字符串中反斜杠的转义（MySQL）
+   */
+  private static int skipQuoted(String sql, int i, char quote) {
+    int len = sql.length();
+    i++;
+    while (i < len) {
+      char c = sql.charAt(i);
+      if (c == '\\' && quote == '\'') {
+        i += 2;
+      } else if (c == quote) {
+        if (i + 1 < len && sql.charAt(i + 1) == quote) {
+          i += 2;
+        } else {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+    return len;
+  }
+
+  /**
+   * SQL中的一个词法单元
+   */
+  static final class Token {
+    final int type;
+    final int start;
+    final int end;
+    /**
+     * 所在的括号的深度，最外层为0
+     */
+    final int depth;
+
+    Token(int type, int start, int end, int depth) {
+      this.type = type;
+      this.start = start;
+      this.end = end;
+      this.depth = depth;
+    }
+
+    String text(String sql) {
+      return sql.substring(start, end);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.github.catstiger.common.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.github.catstiger.common.sql.limit.DatabaseDetector;
+
+/**
+ * 流式查询，{@code ResultSet}只向前读取，每次从数据库获取fetchSize行，内存中只保留当前的一批数据，
+ * 用于导出、对账等需要遍历大量数据的场景。对于MySQL，使用{@code Integer.MIN_VALUE}作为fetchSize，
+ * 驱动会逐行读取（Streaming Result Set）；对于H2，在连接上打开{@code LAZY_QUERY_EXECUTION}，
+ * 关闭的时候恢复，否则H2在执行查询的时候就读出所有的结果；其他数据库使用给定的fetchSize。
+ * <p>
+ * 连接通过{@link DataSourceUtils}获取，如果当前有Spring管理的事务，则使用事务中的连接。
+ * 在关闭{@link Stream}之前，连接一直被占用。
+ * </p>
+ */
+final class StreamingQuery<T> implements Spliterator<T>, AutoCloseable {
+  private final JdbcTemplate jdbcTemplate;
+  private final String sql;
+  private final RowMapper<T> rowMapper;
+  private final DataSource dataSource;
+  private final boolean lazy;
+
+  private Connection connection;
+  private PreparedStatement statement;
+  private ResultSet resultSet;
+  private int rowNum = 0;
+  private boolean closed = false;
+
+  /**
+   * 执行查询，打开{@code ResultSet}
+   * @param databaseDetector 用于判断数据库：MySQL使用{@code Integer.MIN_VALUE}作为fetchSize，H2打开延迟执行
+   */
+  StreamingQuery(JdbcTemplate jdbcTemplate, String sql, Object[] args, RowMapper<T> rowMapper, int fetchSize,
+      DatabaseDetector databaseDetector) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.sql = sql;
+    this.rowMapper = rowMapper;
+    this.dataSource = jdbcTemplate.getDataSource();
+    this.lazy = databaseDetector.isH2();
+    boolean streaming = databaseDetector.isMySql();
+    try {
+      connection = DataSourceUtils.getConnection(dataSource);
+      if (lazy) {
+        setLazyExecution(connection, true);
+      }
+      statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(streaming ? Integer.MIN_VALUE : fetchSize);
+      if (jdbcTemplate.getQueryTimeout() > 0) {
+        statement.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+      }
+      new ArgumentPreparedStatementSetter(args).setValues(statement);
+      resultSet = statement.executeQuery();
+    } catch (SQLException e) {
+      close();
+      throw jdbcTemplate.getExceptionTranslator().translate("StreamingQuery", sql, e);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * 返回一个顺序的{@link Stream}，关闭{@code Stream}的时候释放数据库资源
+   */
+  Stream<T> stream() {
+    return StreamSupport.stream(this, false).onClose(this::close);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (closed) {
+      return false;
+    }
+    try {
+      if (!resultSet.next()) {
+        close();
+        return false;
+      }
+      action.accept(rowMapper.mapRow(resultSet, rowNum++));
+      return true;
+    } catch (SQLException e) {
+      close();
+      throw jdbcTemplate.getExceptionTranslator().translate("StreamingQuery", sql, e);
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    return null;
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED;
+  }
+
+  /**
+   * 关闭{@code ResultSet}、{@code Statement}并释放连接，可以重复调用
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    JdbcUtils.closeResultSet(resultSet);
+    JdbcUtils.closeStatement(statement);
+    if (lazy && connection != null) {
+      try {
+        setLazyExecution(connection, false);
+      } catch (SQLException e) {
+        // 连接已经不可用，释放即可
+      }
+    }
+    DataSourceUtils.releaseConnection(connection, dataSource);
+    resultSet = null;
+    statement = null;
+    connection = null;
+  }
+
+  /**
+   * H2的延迟执行：查询的结果在{@code ResultSet#next()}的时候逐行计算，而不是在执行的时候全部读入内存
+   */
+  private static void setLazyExecution(Connection connection, boolean lazy) throws SQLException {
+    try (Statement stmt = connection.createStatement()) {
+      stmt.execute(lazy ? "SET LAZY_QUERY_EXECUTION 1" : "SET LAZY_QUERY_EXECUTION 0");
+    }
+  }
+}
@@ -0,0 +1,467 @@
+package com.github.catstiger.common.sql.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.catstiger.common.sql.SQLTokenizer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+
+/**
+ * 查询结果的缓存，Key为SQL、参数和结果类型，用于频繁执行、而数据很少变化的查询，参见
+ * {@link com.github.catstiger.common.sql.JdbcTemplateProxy#setResultCache(QueryResultCache)}。
+ * <ul>
+ * <li>只缓存引用的表都设置了有效期的查询（参见{@link #setTableTtl(String, long, TimeUnit)}），
+ * 有效期取其中最短的一个。缺省有效期为0时，没有设置有效期的表不缓存。</li>
+ * <li>同时限制缓存的条数和估算的字节数：每条结果按照{@code max(估算的字节数, maxBytes / maxEntries)}计算权重。</li>
+ * <li>执行INSERT、UPDATE、DELETE等语句之后，调用{@link #invalidate(String)}，语句引用的表
+ * （{@link SQLTokenizer#getTables()}）的版本号加1，引用这些表的缓存全部失效。如果在事务中，事务结束（提交或者回滚）之前，
+ * 所有线程对这些表的查询都不使用缓存，事务结束之后再失效一次。</li>
+ * </ul>
+ * 缓存的结果对象是共享的，调用者不能修改。
+ */
+public class QueryResultCache {
+  /**
+   * 缺省的最大缓存条数
+   */
+  public static final long DEFAULT_MAX_ENTRIES = 10000L;
+
+  /**
+   * 缺省的最大字节数（估算）
+   */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private static final String ALL_TABLES = "*";
+
+  private static final ClassValue<Field[]> beanFields = new ClassValue<Field[]>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            try {
+              field.setAccessible(true);
+              fields.add(field);
+            } catch (RuntimeException e) { // 不能访问的字段不计算
+              continue;
+            }
+          }
+        }
+      }
+      return fields.toArray(new Field[fields.size()]);
+    }
+  };
+
+  private final Cache<Key, Entry> cache;
+  private final long maxEntries;
+  private final long maxBytes;
+  private final long defaultTtlMillis;
+
+  private final Map<String, Long> tableTtls = new ConcurrentHashMap<String, Long>();
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+  /**
+   * {@link #invalidateAll()}的版本号
+   */
+  private final AtomicLong globalGeneration = new AtomicLong();
+  /**
+   * 未结束的事务中修改过的表，以及修改这个表的事务数，{@link #ALL_TABLES}表示未找到表名的修改
+   */
+  private final Map<String, AtomicInteger> pendingWrites = new ConcurrentHashMap<String, AtomicInteger>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private final AtomicLong weightedSize = new AtomicLong();
+
+  /**
+   * 使用缺省的容量创建缓存，没有设置有效期的表不缓存
+   */
+  public QueryResultCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, 0L, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param maxEntries 最大缓存条数
+   * @param maxBytes 最大字节数（估算）
+   * @param defaultTtl 没有单独设置有效期的表的有效期，0表示不缓存
+   * @param unit 有效期的单位
+   */
+  public QueryResultCache(long maxEntries, long maxBytes, long defaultTtl, TimeUnit unit) {
+    if (maxEntries < 1 || maxBytes < maxEntries || defaultTtl < 0) {
+      throw new IllegalArgumentException("Invalid cache size or ttl.");
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.defaultTtlMillis = unit.toMillis(defaultTtl);
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes).<Key, Entry>weigher((key, entry) -> entry.weight)
+        .removalListener(notification -> {
+          Entry entry = notification.getValue();
+          if (entry != null) {
+            weightedSize.addAndGet(-entry.weight);
+          }
+          if (notification.getCause() == RemovalCause.SIZE) {
+            evictions.increment();
+          }
+        }).build();
+  }
+
+  /**
+   * 设置一个表的有效期，引用这个表的查询结果最多缓存这么长时间
+   * @param table 表名，不区分大小写
+   * @param ttl 有效期，0表示引用这个表的查询不缓存
+   * @param unit 有效期的单位
+   */
+  public void setTableTtl(String table, long ttl, TimeUnit unit) {
+    if (table == null || ttl < 0) {
+      throw new IllegalArgumentException("Table must not be null and ttl must not be negative.");
+    }
+    tableTtls.put(table.toLowerCase(), unit.toMillis(ttl));
+  }
+
+  /**
+   * 从缓存中取得查询结果，如果没有，或者已经过期、失效，则调用{@code loader}查询并缓存。
+   * 不能缓存的SQL（不是查询语句，或者引用了没有设置有效期的表）直接调用{@code loader}。
+   * @param sql 查询语句，参数使用?占位符
+   * @param args 参数
+   * @param type 结果类型，作为Key的一部分
+   * @param loader 执行查询
+   * @return 查询结果的副本，可以修改列表，但是不能修改其中的对象
+   */
+  public <T> List<T> get(String sql, Object[] args, Class<?> type, Supplier<List<T>> loader) {
+    SQLTokenizer tokenizer = SQLTokenizer.of(sql);
+    long ttl = ttlOf(tokenizer);
+    if (ttl <= 0 || isPending(tokenizer.getTables())) {
+      return loader.get();
+    }
+    Key key = new Key(sql, args, type);
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null) {
+      if (entry.isValid(this)) {
+        hits.increment();
+        @SuppressWarnings("unchecked")
+        List<T> rows = (List<T>) entry.rows;
+        return new ArrayList<T>(rows);
+      }
+      cache.asMap().remove(key, entry);
+      evictions.increment();
+    }
+    misses.increment();
+
+    long global = globalGeneration.get();
+    String[] tables = tokenizer.getTables().toArray(new String[0]);
+    long[] versions = new long[tables.length];
+    for (int i = 0; i < tables.length; i++) { // 在查询之前取得版本号，查询期间的修改会使结果立即失效
+      versions[i] = generation(tables[i]).get();
+    }
+    List<T> rows = loader.get();
+    int weight = (int) Math.min(Integer.MAX_VALUE, Math.max(estimate(rows), maxBytes / maxEntries));
+    Entry loaded = new Entry(new ArrayList<Object>(rows), global, tables, versions,
+        System.currentTimeMillis() + ttl, weight);
+    weightedSize.addAndGet(weight);
+    cache.put(key, loaded);
+    return rows;
+  }
+
+  /**
+   * 使SQL引用的表的缓存失效，如果没有找到表名，清空所有的缓存。如果当前线程有Spring管理的事务，
+   * 事务结束之前这些表的查询不读、也不写缓存（包括本事务内的查询，以免未提交的数据被其他线程看到），
+   * 事务结束之后（无论提交还是回滚）再失效一次。
+   * @param sql INSERT、UPDATE、DELETE或者DDL语句
+   */
+  public void invalidate(String sql) {
+    Set<String> tables = SQLTokenizer.tablesOf(sql);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      pendingWrites().add(tables.isEmpty() ? Collections.singleton(ALL_TABLES) : tables);
+    }
+    invalidateTables(tables);
+  }
+
+  /**
+   * 清空所有的缓存
+   */
+  public void invalidateAll() {
+    globalGeneration.incrementAndGet();
+    cache.invalidateAll();
+    invalidations.increment();
+  }
+
+  private boolean isPending(Set<String> tables) {
+    if (pendingWrites.isEmpty()) {
+      return false;
+    }
+    if (pendingWrites.containsKey(ALL_TABLES)) {
+      return true;
+    }
+    for (String table : tables) {
+      if (pendingWrites.containsKey(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 返回当前事务修改过的表，第一次调用时注册事务结束的回调
+   */
+  private PendingWrites pendingWrites() {
+    PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      pending = new PendingWrites();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    return pending;
+  }
+
+  private void invalidateTables(Set<String> tables) {
+    if (tables.isEmpty()) {
+      invalidateAll();
+      return;
+    }
+    for (String table : tables) {
+      generation(table).incrementAndGet();
+    }
+    invalidations.increment();
+  }
+
+  /**
+   * 返回命中、未命中和淘汰（包括容量淘汰和过期、失效）的次数
+   */
+  public CacheStats getStats() {
+    return new CacheStats(hits.sum(), misses.sum(), 0L, 0L, 0L, evictions.sum());
+  }
+
+  /**
+   * 调用{@link #invalidate(String)}和{@link #invalidateAll()}的次数
+   */
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  /**
+   * 当前缓存的条数
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * 当前缓存的权重之和（估算的字节数）
+   */
+  public long getWeightedSize() {
+    return weightedSize.get();
+  }
+
+  private long ttlOf(SQLTokenizer tokenizer) {
+    if (!tokenizer.isQuery() || tokenizer.getTables().isEmpty()) {
+      return 0L;
+    }
+    long ttl = Long.MAX_VALUE;
+    for (String table : tokenizer.getTables()) {
+      Long tableTtl = tableTtls.get(table);
+      ttl = Math.min(ttl, tableTtl == null ? defaultTtlMillis : tableTtl);
+    }
+    return ttl;
+  }
+
+  private AtomicLong generation(String table) {
+    AtomicLong generation = generations.get(table);
+    if (generation == null) {
+      generation = generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+    return generation;
+  }
+
+  /**
+   * 估算查询结果的字节数：集合、Map、数组和JavaBean的字段只计算一层，其中的对象按照类型估算
+   */
+  static long estimate(Object value) {
+    if (value instanceof Collection) {
+      long bytes = 40L;
+      for (Object element : (Collection<?>) value) {
+        bytes += 8L + estimateRow(element);
+      }
+      return bytes;
+    }
+    return estimateRow(value);
+  }
+
+  private static long estimateRow(Object row) {
+    if (row == null) {
+      return 0L;
+    }
+    if (row instanceof Map) {
+      long bytes = 48L;
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) row).entrySet()) {
+        bytes += 32L + estimateValue(e.getKey()) + estimateValue(e.getValue());
+      }
+      return bytes;
+    }
+    if (row instanceof Object[]) {
+      long bytes = 16L;
+      for (Object value : (Object[]) row) {
+        bytes += 8L + estimateValue(value);
+      }
+      return bytes;
+    }
+    if (isScalar(row) || row.getClass().getName().startsWith("java.")) {
+      return estimateValue(row);
+    }
+    long bytes = 16L;
+    for (Field field : beanFields.get(row.getClass())) {
+      bytes += 8L;
+      if (!field.getType().isPrimitive()) {
+        try {
+          bytes += estimateValue(field.get(row));
+        } catch (IllegalAccessException e) {
+          bytes += 16L;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static long estimateValue(Object value) {
+    if (value == null) {
+      return 0L;
+    }
+    if (value instanceof CharSequence) {
+      return 40L + 2L * ((CharSequence) value).length();
+    }
+    if (value instanceof byte[]) {
+      return 16L + ((byte[]) value).length;
+    }
+    if (isScalar(value)) {
+      return 24L;
+    }
+    return 64L; // 关联对象等，不再深入
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Date || value instanceof Enum || value instanceof byte[];
+  }
+
+  /**
+   * 一个事务修改过的表：事务结束之前，其他线程查询这些表时不使用缓存；事务结束之后再失效一次
+   */
+  private final class PendingWrites extends TransactionSynchronizationAdapter {
+    private final Set<String> tables = new HashSet<String>();
+
+    void add(Set<String> written) {
+      for (String table : written) {
+        if (tables.add(table)) {
+          pendingWrites.compute(table, (t, count) -> {
+            if (count == null) {
+              return new AtomicInteger(1);
+            }
+            count.incrementAndGet();
+            return count;
+          });
+        }
+      }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(QueryResultCache.this);
+      if (tables.contains(ALL_TABLES)) {
+        invalidateAll();
+      } else {
+        invalidateTables(tables);
+      }
+      for (String table : tables) {
+        pendingWrites.computeIfPresent(table, (t, count) -> count.decrementAndGet() <= 0 ? null : count);
+      }
+    }
+  }
+
+  /**
+   * 缓存的Key：SQL、参数和结果类型
+   */
+  private static final class Key {
+    private final String sql;
+    private final Object[] args;
+    private final Class<?> type;
+    private final int hash;
+
+    Key(String sql, Object[] args, Class<?> type) {
+      this.sql = sql;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.type = type;
+      this.hash = 31 * (31 * sql.hashCode() + Arrays.deepHashCode(this.args)) + (type == null ? 0 : type.hashCode());
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && type == other.type && sql.equals(other.sql) && Arrays.deepEquals(args, other.args);
+    }
+  }
+
+  /**
+   * 缓存的查询结果，以及查询之前各个表的版本号
+   */
+  private static final class Entry {
+    private final List<Object> rows;
+    private final long global;
+    private final String[] tables;
+    private final long[] versions;
+    private final long expiresAt;
+    private final int weight;
+
+    Entry(List<Object> rows, long global, String[] tables, long[] versions, long expiresAt, int weight) {
+      this.rows = rows;
+      this.global = global;
+      this.tables = tables;
+      this.versions = versions;
+      this.expiresAt = expiresAt;
+      this.weight = weight;
+    }
+
+    boolean isValid(QueryResultCache owner) {
+      if (System.currentTimeMillis() >= expiresAt || owner.globalGeneration.get() != global) {
+        return false;
+      }
+      for (int i = 0; i < tables.length; i++) {
+        if (owner.generation(tables[i]).get() != versions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.BitSet;
+
+/**
+ * {@link ColumnarResult}的一列：所有行的值保存在一个数组中，NULL值记录在位图中。
+ * 基本类型的列，NULL对应的数组元素为0。
+ */
+public abstract class Column {
+  static final int INITIAL_CAPACITY = 256;
+
+  private final String name;
+  private final int sqlType;
+  final BitSet nulls = new BitSet();
+  int size;
+
+  Column(String name, int sqlType) {
+    this.name = name;
+    this.sqlType = sqlType;
+  }
+
+  /**
+   * 列的标签
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 列的SQL类型，{@link java.sql.Types}
+   */
+  public int getSqlType() {
+    return sqlType;
+  }
+
+  /**
+   * 行数
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isNull(int row) {
+    return nulls.get(row);
+  }
+
+  public int nullCount() {
+    return nulls.cardinality();
+  }
+
+  /**
+   * 返回NULL值的位图，不要修改
+   */
+  public BitSet getNulls() {
+    return nulls;
+  }
+
+  /**
+   * 返回一行的值（装箱的），NULL返回{@code null}
+   */
+  public abstract Object getObject(int row);
+
+  /**
+   * 读取当前行的值，追加到列的末尾
+   */
+  abstract void read(ResultSet rs, int index) throws SQLException;
+
+  /**
+   * 读取完成之后，释放数组多余的容量
+   */
+  abstract void trim();
+
+  static int grow(int capacity) {
+    return capacity + (capacity >> 1) + 1;
+  }
+}
@@ -0,0 +1,234 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列保存的查询结果，用于报表和汇总。与{@code queryForList}每一行一个{@code Map}相比：
+ * <ul>
+ * <li>数值列保存在{@code long[]}、{@code int[]}、{@code double[]}中，没有装箱的对象，NULL记录在位图中；</li>
+ * <li>字符串列按字典编码，重复的字符串只保存一次，参见{@link StringColumn}；</li>
+ * <li>汇总（{@link LongColumn#sum()}、{@link #sumBy(String, String)}、{@link #topN(String, int, boolean)}等）
+ * 顺序访问连续的数组，对CPU缓存友好。</li>
+ * </ul>
+ * 由{@code JdbcTemplateProxy#queryColumnar(SQLReady)}或者{@link ColumnarResultExtractor}创建，创建之后不能修改。
+ */
+public final class ColumnarResult {
+  private final List<Column> columns;
+  private final Map<String, Column> columnsByName;
+  private final int rowCount;
+
+  ColumnarResult(List<Column> columns, int rowCount) {
+    this.columns = Collections.unmodifiableList(columns);
+    this.rowCount = rowCount;
+    this.columnsByName = new HashMap<>(columns.size() * 2);
+    for (Column column : columns) {
+      this.columnsByName.putIfAbsent(column.getName().toLowerCase(), column);
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /**
+   * 根据下标返回列
+   * @param index 列的下标，从0开始
+   */
+  public Column getColumn(int index) {
+    return columns.get(index);
+  }
+
+  /**
+   * 根据列的标签返回列，不区分大小写
+   * @throws IllegalArgumentException 没有这一列
+   */
+  public Column getColumn(String name) {
+    Column column = columnsByName.get(name.toLowerCase());
+    if (column == null) {
+      throw new IllegalArgumentException("No column '" + name + "' in " + columnsByName.keySet());
+    }
+    return column;
+  }
+
+  /**
+   * 根据列的标签返回指定类型的列
+   * @throws IllegalArgumentException 没有这一列，或者列的类型不符
+   */
+  public <C extends Column> C getColumn(String name, Class<C> type) {
+    Column column = getColumn(name);
+    if (!type.isInstance(column)) {
+      throw new IllegalArgumentException("Column '" + name + "' is " + column.getClass().getSimpleName() + ", not "
+          + type.getSimpleName());
+    }
+    return type.cast(column);
+  }
+
+  public LongColumn getLongColumn(String name) {
+    return getColumn(name, LongColumn.class);
+  }
+
+  public IntColumn getIntColumn(String name) {
+    return getColumn(name, IntColumn.class);
+  }
+
+  public DoubleColumn getDoubleColumn(String name) {
+    return getColumn(name, DoubleColumn.class);
+  }
+
+  public StringColumn getStringColumn(String name) {
+    return getColumn(name, StringColumn.class);
+  }
+
+  /**
+   * 返回一个单元格的值（装箱的）
+   */
+  public Object getValue(int row, String name) {
+    return getColumn(name).getObject(row);
+  }
+
+  /**
+   * 按keyColumn分组，计算valueColumn的和（NULL按0计算）。分组的顺序是第一次出现的顺序，NULL是单独的一组，Key为{@code null}。
+   * 字符串分组直接使用字典编号作为下标，不需要Hash。
+   * @param keyColumn 分组的列
+   * @param valueColumn 求和的列，必须是数值类型
+   */
+  public Map<Object, Double> sumBy(String keyColumn, String valueColumn) {
+    Column key = getColumn(keyColumn);
+    NumericColumn value = getColumn(valueColumn, NumericColumn.class);
+    if (key instanceof StringColumn) {
+      StringColumn strings = (StringColumn) key;
+      int[] codes = strings.codes();
+      double[] sums = new double[strings.cardinality() + 1]; // 最后一个是NULL
+      for (int i = 0; i < rowCount; i++) {
+        int code = codes[i];
+        sums[code == StringColumn.NULL_CODE ? sums.length - 1 : code] += value.doubleValue(i);
+      }
+      Map<Object, Double> result = new LinkedHashMap<>(sums.length * 2);
+      String[] dictionary = strings.dictionary();
+      for (int code = 0; code < dictionary.length; code++) {
+        result.put(dictionary[code], sums[code]);
+      }
+      if (strings.nullCount() > 0) {
+        result.put(null, sums[sums.length - 1]);
+      }
+      return result;
+    }
+    Map<Object, double[]> sums = new LinkedHashMap<>();
+    for (int i = 0; i < rowCount; i++) {
+      sums.computeIfAbsent(key.getObject(i), k -> new double[1])[0] += value.doubleValue(i);
+    }
+    Map<Object, Double> result = new LinkedHashMap<>(sums.size() * 2);
+    sums.forEach((k, sum) -> result.put(k, sum[0]));
+    return result;
+  }
+
+  /**
+   * 按keyColumn分组，计算每组的行数。分组的顺序是第一次出现的顺序，NULL是单独的一组，Key为{@code null}。
+   */
+  public Map<Object, Long> countBy(String keyColumn) {
+    Column key = getColumn(keyColumn);
+    Map<Object, Long> result = new LinkedHashMap<>();
+    if (key instanceof StringColumn) {
+      StringColumn strings = (StringColumn) key;
+      int[] counts = strings.countByCode();
+      String[] dictionary = strings.dictionary();
+      for (int code = 0; code < dictionary.length; code++) {
+        result.put(dictionary[code], (long) counts[code]);
+      }
+      if (strings.nullCount() > 0) {
+        result.put(null, (long) strings.nullCount());
+      }
+      return result;
+    }
+    for (int i = 0; i < rowCount; i++) {
+      result.merge(key.getObject(i), 1L, Long::sum);
+    }
+    return result;
+  }
+
+  /**
+   * 返回数值列最大（或者最小）的n行的下标，按值排序，不包括NULL。使用大小为n的堆，不对全部的行排序。
+   * @param column 数值列
+   * @param n 返回的行数
+   * @param descending {@code true}返回最大的n行，从大到小；{@code false}返回最小的n行，从小到大
+   */
+  public int[] topN(String column, int n, boolean descending) {
+    if (n < 0) {
+      throw new IllegalArgumentException("n must not be negative.");
+    }
+    NumericColumn values = getColumn(column, NumericColumn.class);
+    int[] heap = new int[Math.min(n, rowCount)];
+    int heapSize = 0;
+    if (heap.length == 0) {
+      return heap;
+    }
+    // 堆顶是保留的行中“最差”的一行
+    for (int row = values.nulls.nextClearBit(0); row < rowCount; row = values.nulls.nextClearBit(row + 1)) {
+      if (heapSize < heap.length) {
+        heap[heapSize] = row;
+        siftUp(heap, heapSize++, values, descending);
+      } else if (better(values, row, heap[0], descending)) {
+        heap[0] = row;
+        siftDown(heap, heapSize, values, descending);
+      }
+    }
+    int[] rows = new int[heapSize];
+    for (int i = heapSize - 1; i >= 0; i--) {
+      rows[i] = heap[0];
+      heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize, values, descending);
+    }
+    return rows;
+  }
+
+  private static boolean better(NumericColumn values, int row1, int row2, boolean descending) {
+    int compare = values.compare(row1, row2);
+    return descending ? compare > 0 : compare < 0;
+  }
+
+  private static void siftUp(int[] heap, int index, NumericColumn values, boolean descending) {
+    int row = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!better(values, heap[parent], row, descending)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = row;
+  }
+
+  private static void siftDown(int[] heap, int size, NumericColumn values, boolean descending) {
+    if (size == 0) {
+      return;
+    }
+    int index = 0;
+    int row = heap[0];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && better(values, heap[child], heap[child + 1], descending)) {
+        child++;
+      }
+      if (!better(values, row, heap[child], descending)) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = row;
+  }
+}
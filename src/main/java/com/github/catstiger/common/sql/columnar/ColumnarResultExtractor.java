@@ -0,0 +1,85 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * 将结果集按列读入{@link ColumnarResult}。列的类型由SQL类型决定：
+ * <ul>
+ * <li>BIGINT、没有小数并且精度不超过18位的NUMERIC/DECIMAL：{@link LongColumn}</li>
+ * <li>INTEGER、SMALLINT、TINYINT：{@link IntColumn}</li>
+ * <li>DOUBLE、FLOAT、REAL、其他NUMERIC/DECIMAL：{@link DoubleColumn}</li>
+ * <li>CHAR、VARCHAR等字符串：{@link StringColumn}</li>
+ * <li>其他：{@link ObjectColumn}</li>
+ * </ul>
+ * 实例是无状态的，可以共用。
+ */
+public class ColumnarResultExtractor implements ResultSetExtractor<ColumnarResult> {
+  @Override
+  public ColumnarResult extractData(ResultSet rs) throws SQLException {
+    ResultSetMetaData rsmd = rs.getMetaData();
+    int columnCount = rsmd.getColumnCount();
+    Column[] columns = new Column[columnCount];
+    for (int index = 1; index <= columnCount; index++) {
+      columns[index - 1] = columnFor(rsmd, index);
+    }
+
+    int rowCount = 0;
+    while (rs.next()) {
+      for (int index = 1; index <= columnCount; index++) {
+        columns[index - 1].read(rs, index);
+      }
+      rowCount++;
+    }
+
+    List<Column> list = new ArrayList<>(columnCount);
+    for (Column column : columns) {
+      column.trim();
+      list.add(column);
+    }
+    return new ColumnarResult(list, rowCount);
+  }
+
+  /**
+   * 根据列的SQL类型创建对应的列
+   */
+  private Column columnFor(ResultSetMetaData rsmd, int index) throws SQLException {
+    String name = JdbcUtils.lookupColumnName(rsmd, index);
+    int sqlType = rsmd.getColumnType(index);
+    switch (sqlType) {
+      case Types.BIGINT:
+        return new LongColumn(name, sqlType);
+      case Types.INTEGER:
+      case Types.SMALLINT:
+      case Types.TINYINT:
+        return new IntColumn(name, sqlType);
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+        int precision = rsmd.getPrecision(index);
+        if (rsmd.getScale(index) == 0 && precision > 0 && precision <= 18) {
+          return new LongColumn(name, sqlType);
+        }
+        return new DoubleColumn(name, sqlType);
+      case Types.DOUBLE:
+      case Types.FLOAT:
+      case Types.REAL:
+        return new DoubleColumn(name, sqlType);
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return new StringColumn(name, sqlType);
+      default:
+        return new ObjectColumn(name, sqlType);
+    }
+  }
+}
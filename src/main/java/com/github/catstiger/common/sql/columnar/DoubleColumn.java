@@ -0,0 +1,116 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.OptionalDouble;
+
+/**
+ * {@code double}类型的列，用于DOUBLE、FLOAT、REAL和有小数的NUMERIC/DECIMAL列。
+ * 金额等需要精确计算的场合，汇总的结果可能有舍入误差
+ */
+public final class DoubleColumn extends NumericColumn {
+  private double[] values = new double[INITIAL_CAPACITY];
+
+  DoubleColumn(String name, int sqlType) {
+    super(name, sqlType);
+  }
+
+  public double get(int row) {
+    return values[row];
+  }
+
+  /**
+   * 返回保存值的数组，长度等于{@link #size()}，不要修改
+   */
+  public double[] values() {
+    return values;
+  }
+
+  /**
+   * 所有行的和，NULL按0计算
+   */
+  public double sum() {
+    double sum = 0D;
+    for (int i = 0; i < size; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * 非NULL值中的最小值，没有非NULL值的时候返回{@link OptionalDouble#empty()}
+   */
+  public OptionalDouble min() {
+    int first = nulls.nextClearBit(0);
+    if (first >= size) {
+      return OptionalDouble.empty();
+    }
+    double min = values[first];
+    if (nulls.isEmpty()) {
+      for (int i = first + 1; i < size; i++) {
+        min = Math.min(min, values[i]);
+      }
+    } else {
+      for (int i = nulls.nextClearBit(first + 1); i < size; i = nulls.nextClearBit(i + 1)) {
+        min = Math.min(min, values[i]);
+      }
+    }
+    return OptionalDouble.of(min);
+  }
+
+  /**
+   * 非NULL值中的最大值，没有非NULL值的时候返回{@link OptionalDouble#empty()}
+   */
+  public OptionalDouble max() {
+    int first = nulls.nextClearBit(0);
+    if (first >= size) {
+      return OptionalDouble.empty();
+    }
+    double max = values[first];
+    if (nulls.isEmpty()) {
+      for (int i = first + 1; i < size; i++) {
+        max = Math.max(max, values[i]);
+      }
+    } else {
+      for (int i = nulls.nextClearBit(first + 1); i < size; i = nulls.nextClearBit(i + 1)) {
+        max = Math.max(max, values[i]);
+      }
+    }
+    return OptionalDouble.of(max);
+  }
+
+  @Override
+  public double doubleValue(int row) {
+    return values[row];
+  }
+
+  @Override
+  int compare(int row1, int row2) {
+    return Double.compare(values[row1], values[row2]);
+  }
+
+  @Override
+  public Object getObject(int row) {
+    return nulls.get(row) ? null : Double.valueOf(values[row]);
+  }
+
+  @Override
+  void read(ResultSet rs, int index) throws SQLException {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    double value = rs.getDouble(index);
+    if (value == 0D && rs.wasNull()) {
+      nulls.set(size);
+    }
+    values[size++] = value;
+  }
+
+  @Override
+  void trim() {
+    if (values.length != size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.OptionalInt;
+
+/**
+ * {@code int}类型的列，用于INTEGER、SMALLINT和TINYINT列
+ */
+public final class IntColumn extends NumericColumn {
+  private int[] values = new int[INITIAL_CAPACITY];
+
+  IntColumn(String name, int sqlType) {
+    super(name, sqlType);
+  }
+
+  public int get(int row) {
+    return values[row];
+  }
+
+  /**
+   * 返回保存值的数组，长度等于{@link #size()}，不要修改
+   */
+  public int[] values() {
+    return values;
+  }
+
+  /**
+   * 所有行的和（{@code long}，不会溢出），NULL按0计算
+   */
+  public long sum() {
+    long sum = 0L;
+    for (int i = 0; i < size; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * 非NULL值中的最小值，没有非NULL值的时候返回{@link OptionalInt#empty()}
+   */
+  public OptionalInt min() {
+    int first = nulls.nextClearBit(0);
+    if (first >= size) {
+      return OptionalInt.empty();
+    }
+    int min = values[first];
+    if (nulls.isEmpty()) {
+      for (int i = first + 1; i < size; i++) {
+        min = Math.min(min, values[i]);
+      }
+    } else {
+      for (int i = nulls.nextClearBit(first + 1); i < size; i = nulls.nextClearBit(i + 1)) {
+        min = Math.min(min, values[i]);
+      }
+    }
+    return OptionalInt.of(min);
+  }
+
+  /**
+   * 非NULL值中的最大值，没有非NULL值的时候返回{@link OptionalInt#empty()}
+   */
+  public OptionalInt max() {
+    int first = nulls.nextClearBit(0);
+    if (first >= size) {
+      return OptionalInt.empty();
+    }
+    int max = values[first];
+    if (nulls.isEmpty()) {
+      for (int i = first + 1; i < size; i++) {
+        max = Math.max(max, values[i]);
+      }
+    } else {
+      for (int i = nulls.nextClearBit(first + 1); i < size; i = nulls.nextClearBit(i + 1)) {
+        max = Math.max(max, values[i]);
+      }
+    }
+    return OptionalInt.of(max);
+  }
+
+  @Override
+  public double doubleValue(int row) {
+    return values[row];
+  }
+
+  @Override
+  int compare(int row1, int row2) {
+    return Integer.compare(values[row1], values[row2]);
+  }
+
+  @Override
+  public Object getObject(int row) {
+    return nulls.get(row) ? null : Integer.valueOf(values[row]);
+  }
+
+  @Override
+  void read(ResultSet rs, int index) throws SQLException {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    int value = rs.getInt(index);
+    if (value == 0 && rs.wasNull()) {
+      nulls.set(size);
+    }
+    values[size++] = value;
+  }
+
+  @Override
+  void trim() {
+    if (values.length != size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+}
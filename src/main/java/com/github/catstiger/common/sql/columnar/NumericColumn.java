@@ -0,0 +1,20 @@
+package com.github.catstiger.common.sql.columnar;
+
+/**
+ * 数值类型的列，用于分组汇总和排序
+ */
+public abstract class NumericColumn extends Column {
+  NumericColumn(String name, int sqlType) {
+    super(name, sqlType);
+  }
+
+  /**
+   * 一行的值转换为{@code double}，NULL返回0
+   */
+  public abstract double doubleValue(int row);
+
+  /**
+   * 比较两行的值，不考虑NULL
+   */
+  abstract int compare(int row1, int row2);
+}
@@ -0,0 +1,42 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * 其他类型（日期、二进制等）的列，保存{@link JdbcUtils#getResultSetValue(ResultSet, int)}返回的对象
+ */
+public final class ObjectColumn extends Column {
+  private Object[] values = new Object[INITIAL_CAPACITY];
+
+  ObjectColumn(String name, int sqlType) {
+    super(name, sqlType);
+  }
+
+  @Override
+  public Object getObject(int row) {
+    return values[row];
+  }
+
+  @Override
+  void read(ResultSet rs, int index) throws SQLException {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, grow(size));
+    }
+    Object value = JdbcUtils.getResultSetValue(rs, index);
+    if (value == null) {
+      nulls.set(size);
+    }
+    values[size++] = value;
+  }
+
+  @Override
+  void trim() {
+    if (values.length != size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+}
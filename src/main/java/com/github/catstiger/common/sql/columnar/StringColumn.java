@@ -0,0 +1,116 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字典编码的字符串列：不同的字符串只保存一次（{@link #dictionary()}），每一行保存字符串在字典中的编号（{@link #codes()}），
+ * NULL的编号为-1。报表中的维度列（部门、状态、地区等）重复度很高，编码之后占用的内存很少，并且可以按编号分组。
+ */
+public final class StringColumn extends Column {
+  /**
+   * NULL的编号
+   */
+  public static final int NULL_CODE = -1;
+
+  private int[] codes = new int[INITIAL_CAPACITY];
+  private String[] dictionary = new String[16];
+  private int cardinality;
+  private Map<String, Integer> encoding = new HashMap<>();
+
+  StringColumn(String name, int sqlType) {
+    super(name, sqlType);
+  }
+
+  public String get(int row) {
+    int code = codes[row];
+    return code == NULL_CODE ? null : dictionary[code];
+  }
+
+  /**
+   * 一行的字符串在字典中的编号，NULL返回{@link #NULL_CODE}
+   */
+  public int code(int row) {
+    return codes[row];
+  }
+
+  /**
+   * 每一行的编号，长度等于{@link #size()}，不要修改
+   */
+  public int[] codes() {
+    return codes;
+  }
+
+  /**
+   * 字典，下标是编号，长度等于{@link #cardinality()}，不要修改
+   */
+  public String[] dictionary() {
+    return dictionary;
+  }
+
+  /**
+   * 不同的字符串的数量
+   */
+  public int cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * 统计每个编号出现的次数，下标是编号，不包括NULL
+   */
+  public int[] countByCode() {
+    int[] counts = new int[cardinality];
+    for (int i = 0; i < size; i++) {
+      int code = codes[i];
+      if (code != NULL_CODE) {
+        counts[code]++;
+      }
+    }
+    return counts;
+  }
+
+  @Override
+  public Object getObject(int row) {
+    return get(row);
+  }
+
+  @Override
+  void read(ResultSet rs, int index) throws SQLException {
+    if (size == codes.length) {
+      codes = Arrays.copyOf(codes, grow(size));
+    }
+    String value = rs.getString(index);
+    int code;
+    if (value == null) {
+      nulls.set(size);
+      code = NULL_CODE;
+    } else {
+      Integer existing = encoding.get(value);
+      if (existing == null) {
+        if (cardinality == dictionary.length) {
+          dictionary = Arrays.copyOf(dictionary, grow(cardinality));
+        }
+        code = cardinality++;
+        dictionary[code] = value;
+        encoding.put(value, code);
+      } else {
+        code = existing;
+      }
+    }
+    codes[size++] = code;
+  }
+
+  @Override
+  void trim() {
+    if (codes.length != size) {
+      codes = Arrays.copyOf(codes, size);
+    }
+    if (dictionary.length != cardinality) {
+      dictionary = Arrays.copyOf(dictionary, cardinality);
+    }
+    encoding = null; // 读取完成之后不再需要
+  }
+}
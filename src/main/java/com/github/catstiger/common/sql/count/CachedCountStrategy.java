@@ -0,0 +1,64 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.catstiger.common.sql.Page;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * 按照COUNT SQL和参数缓存总行数，在有效期内翻页不再执行COUNT查询。从缓存中读取的总行数可能已经过时，
+ * 所以{@link Page#isTotalExact()}为{@code false}。
+ */
+public class CachedCountStrategy implements CountStrategy {
+  public static final String NAME = "cached";
+
+  /**
+   * 缓存的最大数量
+   */
+  public static final int CACHE_SIZE = 1024;
+
+  private final Cache<List<Object>, Long> cache;
+
+  /**
+   * @param ttl 缓存的有效期
+   * @param unit 有效期的单位
+   */
+  public CachedCountStrategy(long ttl, TimeUnit unit) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).expireAfterWrite(ttl, unit).recordStats().build();
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> Page execute(PagedQuery<T> query) {
+    List<Object> key = Arrays.asList(query.getCountSql(), Arrays.asList(query.getArgs()));
+    long start = query.getPage().getStart();
+    Long cached = cache.getIfPresent(key);
+    if (cached == null) {
+      long total = query.queryCount();
+      cache.put(key, total);
+      return query.complete(total > start ? query.queryRows() : Collections.<T>emptyList(), total);
+    }
+    List<T> rows = query.queryRows();
+    return query.complete(rows, cached, false, start + rows.size() < cached);
+  }
+
+  /**
+   * 清除所有缓存的总行数，例如在大量修改数据之后
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
+}
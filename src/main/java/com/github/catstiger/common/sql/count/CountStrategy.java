@@ -0,0 +1,28 @@
+package com.github.catstiger.common.sql.count;
+
+import com.github.catstiger.common.sql.Page;
+
+/**
+ * 分页查询时，查询当前页的数据和计算总行数的策略。不同的策略在精确度和开销之间取舍：
+ * <ul>
+ * <li>{@link ExactCountStrategy}：依次执行COUNT查询和分页查询，总行数是精确的</li>
+ * <li>{@link ParallelCountStrategy}：在另一个线程（另一个连接）上同时执行COUNT查询</li>
+ * <li>{@link WindowCountStrategy}：使用{@code COUNT(*) OVER()}，一次查询同时返回数据和总行数</li>
+ * <li>{@link CachedCountStrategy}：按照COUNT SQL和参数缓存总行数</li>
+ * <li>{@link HasNextCountStrategy}：多查询一行，只判断是否有下一页，不计算总行数</li>
+ * </ul>
+ * 实现类必须是线程安全的，参见{@code JdbcTemplateProxy#queryPage}。
+ */
+public interface CountStrategy {
+  /**
+   * 策略的名字，记录在{@link Page#getCountStrategy()}中
+   */
+  String getName();
+
+  /**
+   * 执行分页查询，并通过{@link PagedQuery#complete(java.util.List, long, boolean, boolean)}填充{@link Page}
+   * @param query 分页查询
+   * @return 填充了数据和总行数的{@link Page}
+   */
+  <T> Page execute(PagedQuery<T> query);
+}
@@ -0,0 +1,25 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.github.catstiger.common.sql.Page;
+
+/**
+ * 先执行COUNT查询，再查询当前页的数据，总行数是精确的。如果总行数为0，或者起始位置已经超过总行数，不再查询数据。
+ */
+public class ExactCountStrategy implements CountStrategy {
+  public static final String NAME = "exact";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> Page execute(PagedQuery<T> query) {
+    long total = query.queryCount();
+    List<T> rows = total > query.getPage().getStart() ? query.queryRows() : Collections.<T>emptyList();
+    return query.complete(rows, total);
+  }
+}
@@ -0,0 +1,32 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.catstiger.common.sql.Page;
+
+/**
+ * 不执行COUNT查询，只多查询一行，判断是否还有下一页，适合“加载更多”式的翻页。
+ * {@link Page#getTotal()}是已知的最少行数（如果有下一页，为已经查询的行数加1），只有在没有下一页的时候才是精确的。
+ */
+public class HasNextCountStrategy implements CountStrategy {
+  public static final String NAME = "has-next";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> Page execute(PagedQuery<T> query) {
+    int limit = query.getPage().getLimit();
+    List<T> rows = query.queryRows(limit + 1);
+    boolean hasNext = rows.size() > limit;
+    if (hasNext) {
+      rows = new ArrayList<>(rows.subList(0, limit));
+    }
+    long start = query.getPage().getStart();
+    boolean exact = !hasNext && (start == 0 || !rows.isEmpty());
+    return query.complete(rows, start + rows.size() + (hasNext ? 1 : 0), exact, hasNext);
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.github.catstiger.common.sql.Page;
+import com.github.catstiger.common.sql.SQLFactory;
+import com.github.catstiger.common.sql.SQLRequest;
+import com.github.catstiger.common.sql.limit.LimitSQL;
+
+/**
+ * 一次分页查询，包括使用{@code ?}占位符的SQL、参数、分页参数，以及执行查询所需的{@link JdbcTemplate}，
+ * 由{@link CountStrategy}决定如何查询数据和总行数。
+ *
+ * @param <T> 每一行数据的类型
+ */
+public final class PagedQuery<T> {
+  private final JdbcTemplate jdbcTemplate;
+  private final String sql;
+  private final Object[] args;
+  private final Page page;
+  private final RowMapper<T> rowMapper;
+  private final LimitSQL limitSql;
+  private final CountStrategy strategy;
+
+  /**
+   * 构造一个分页查询
+   * @param jdbcTemplate 用于执行查询
+   * @param sql 使用{@code ?}占位符的SQL
+   * @param args 参数
+   * @param page 分页参数，查询的结果也保存在其中
+   * @param rowMapper 将每一行转换为对象
+   * @param limitSql 如果为{@code null}，使用缺省的{@code LimitSQL}
+   * @param strategy 执行查询的策略
+   */
+  public PagedQuery(JdbcTemplate jdbcTemplate, String sql, Object[] args, Page page, RowMapper<T> rowMapper,
+      LimitSQL limitSql, CountStrategy strategy) {
+    if (jdbcTemplate == null || sql == null || page == null || rowMapper == null || strategy == null) {
+      throw new IllegalArgumentException("JdbcTemplate, SQL, page, row mapper and strategy must not be null.");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.sql = sql;
+    this.args = args == null ? new Object[0] : args;
+    this.page = page;
+    this.rowMapper = rowMapper;
+    this.limitSql = limitSql == null ? SQLRequest.DEFAULT_LIMIT_SQL : limitSql;
+    this.strategy = strategy;
+  }
+
+  /**
+   * 使用{@link #getStrategy()}执行查询
+   */
+  public Page execute() {
+    return strategy.execute(this);
+  }
+
+  /**
+   * 查询当前页的数据
+   */
+  public List<T> queryRows() {
+    return queryRows(page.getLimit());
+  }
+
+  /**
+   * 从{@link Page#getStart()}开始，查询指定的行数
+   */
+  public List<T> queryRows(int limit) {
+    return jdbcTemplate.query(SQLFactory.getInstance().limitSql(sql, page.getStart(), limit, limitSql), rowMapper, args);
+  }
+
+  /**
+   * 执行COUNT查询
+   */
+  public long queryCount() {
+    Long total = jdbcTemplate.queryForObject(getCountSql(), Long.class, args);
+    return total == null ? 0L : total;
+  }
+
+  public String getCountSql() {
+    return SQLFactory.getInstance().countSql(sql);
+  }
+
+  /**
+   * 将数据和总行数保存到{@link Page}中
+   * @param rows 当前页的数据
+   * @param total 总行数
+   * @param exact 总行数是否精确
+   * @param hasNext 是否还有下一页
+   * @return {@link Page}
+   */
+  public Page complete(List<T> rows, long total, boolean exact, boolean hasNext) {
+    page.setRows(rows);
+    page.setTotal(total);
+    page.setTotalExact(exact);
+    page.setHasNext(hasNext);
+    page.setCountStrategy(strategy.getName());
+    return page;
+  }
+
+  /**
+   * 根据精确的总行数填充{@link Page}
+   */
+  public Page complete(List<T> rows, long total) {
+    return complete(rows, total, true, page.getStart() + rows.size() < total);
+  }
+
+  public JdbcTemplate getJdbcTemplate() {
+    return jdbcTemplate;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public Object[] getArgs() {
+    return args;
+  }
+
+  public Page getPage() {
+    return page;
+  }
+
+  public RowMapper<T> getRowMapper() {
+    return rowMapper;
+  }
+
+  public LimitSQL getLimitSql() {
+    return limitSql;
+  }
+
+  public CountStrategy getStrategy() {
+    return strategy;
+  }
+}
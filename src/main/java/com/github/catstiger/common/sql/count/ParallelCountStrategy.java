@@ -0,0 +1,76 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.catstiger.common.sql.Page;
+
+/**
+ * 在另一个线程上执行COUNT查询，同时在当前线程上查询数据，响应时间是两个查询中较慢的一个，而不是两者之和。
+ * COUNT查询使用另一个数据库连接，不在当前线程的事务中，看不到当前事务中未提交的修改。
+ */
+public class ParallelCountStrategy implements CountStrategy {
+  public static final String NAME = "parallel";
+
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  private final Executor executor;
+
+  /**
+   * 使用一个固定大小的线程池执行COUNT查询，线程数为CPU的数量
+   */
+  public ParallelCountStrategy() {
+    this(newExecutor(Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * @param executor 用于执行COUNT查询，应该是有界的，例如一个固定大小的线程池
+   */
+  public ParallelCountStrategy(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null.");
+    }
+    this.executor = executor;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> Page execute(PagedQuery<T> query) {
+    CompletableFuture<Long> total = CompletableFuture.supplyAsync(query::queryCount, executor);
+    List<T> rows;
+    try {
+      rows = query.queryRows();
+    } catch (RuntimeException e) {
+      total.cancel(false);
+      throw e;
+    }
+    try {
+      return query.complete(rows, total.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while counting.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static ExecutorService newExecutor(int threads) {
+    return Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "parallel-count-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
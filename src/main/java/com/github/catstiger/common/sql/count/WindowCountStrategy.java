@@ -0,0 +1,62 @@
+package com.github.catstiger.common.sql.count;
+
+import java.util.List;
+
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.github.catstiger.common.sql.Page;
+import com.github.catstiger.common.sql.SQLFactory;
+import com.github.catstiger.common.sql.SQLTokenizer;
+
+/**
+ * 在SELECT列表中追加{@code COUNT(*) OVER()}，一次查询同时返回当前页的数据和总行数（窗口函数在LIMIT之前计算）。
+ * 需要数据库支持窗口函数（MySQL 8、H2 1.4.198以上、Oracle、PostgreSQL）。以下情况使用{@link ExactCountStrategy}：
+ * <ul>
+ * <li>DISTINCT或者UNION查询</li>
+ * <li>数据库不支持窗口函数（{@link BadSqlGrammarException}）</li>
+ * <li>起始位置超过总行数，当前页没有数据</li>
+ * </ul>
+ */
+public class WindowCountStrategy implements CountStrategy {
+  public static final String NAME = "window";
+
+  /**
+   * 总行数的字段别名
+   */
+  static final String TOTAL_COLUMN = "total_count_";
+
+  private final CountStrategy fallback = new ExactCountStrategy();
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public <T> Page execute(PagedQuery<T> query) {
+    String sql = SQLTokenizer.of(query.getSql()).appendSelectColumn("COUNT(*) OVER() AS " + TOTAL_COLUMN);
+    if (sql == null) {
+      return fallback.execute(query);
+    }
+    Page page = query.getPage();
+    RowMapper<T> rowMapper = query.getRowMapper();
+    long[] total = {-1L};
+    List<T> rows;
+    try {
+      rows = query.getJdbcTemplate().query(SQLFactory.getInstance().limitSql(sql, page.getStart(), page.getLimit(),
+          query.getLimitSql()), (rs, rowNum) -> {
+            if (rowNum == 0) {
+              total[0] = rs.getLong(TOTAL_COLUMN);
+            }
+            return rowMapper.mapRow(rs, rowNum);
+          }, query.getArgs());
+    } catch (BadSqlGrammarException e) {
+      return fallback.execute(query);
+    }
+    if (total[0] < 0) { // 没有数据，无法得到总行数
+      return page.getStart() == 0 ? query.complete(rows, 0L) : query.complete(rows, query.queryCount());
+    }
+    return query.complete(rows, total[0]);
+  }
+}
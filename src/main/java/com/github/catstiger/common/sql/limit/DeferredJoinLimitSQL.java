@@ -0,0 +1,78 @@
+package com.github.catstiger.common.sql.limit;
+
+import com.github.catstiger.common.sql.SQLTokenizer;
+
+/**
+ * 对于很大的起始位置，将单表查询改写为延迟关联（Deferred Join）的{@link LimitSQL}装饰器：子查询只选择主键并分页，
+ * 再关联回原表取出所有字段，数据库不需要读取被OFFSET丢弃的整行数据。参见{@link SQLTokenizer#deferredJoin}。
+ * <p>
+ * 起始位置小于阈值，或者SQL不是简单的单表查询时，直接使用被装饰的{@code LimitSQL}。
+ * 因为是否改写取决于起始位置，{@link #getLimitSqlTemplate(String)}返回{@code null}，
+ * {@link com.github.catstiger.common.sql.PreparedQuery}的每次分页都会生成新的SQL。
+ * </p>
+ * <pre>
+ * SQLReady sqlReady = SQLReady.select(User.class).orderBy("created")
+ *     .withLimitSql(new DeferredJoinLimitSQL(new MySqlLimitSQL()));
+ * </pre>
+ */
+public class DeferredJoinLimitSQL implements LimitSQL {
+  /**
+   * 缺省的阈值，起始位置大于等于这个值的时候改写
+   */
+  public static final int DEFAULT_THRESHOLD = 10000;
+
+  private final LimitSQL delegate;
+  private final int threshold;
+  private final String idColumn;
+
+  public DeferredJoinLimitSQL(LimitSQL delegate) {
+    this(delegate, DEFAULT_THRESHOLD, "id");
+  }
+
+  /**
+   * 构造一个延迟关联的{@code LimitSQL}
+   * @param delegate 被装饰的{@code LimitSQL}，用于为原SQL或者子查询添加分页子句
+   * @param threshold 起始位置大于等于这个值的时候改写
+   * @param idColumn 主键字段名，不带表别名
+   */
+  public DeferredJoinLimitSQL(LimitSQL delegate, int threshold, String idColumn) {
+    if (delegate == null || idColumn == null) {
+      throw new IllegalArgumentException("LimitSQL and id column must not be null.");
+    }
+    if (threshold < 0) {
+      throw new IllegalArgumentException("threshold must not be negative.");
+    }
+    this.delegate = delegate;
+    this.threshold = threshold;
+    this.idColumn = idColumn;
+  }
+
+  @Override
+  public String getLimitSql(String sql, int start, int limit) {
+    if (start >= threshold) {
+      String deferred = SQLTokenizer.of(sql).deferredJoin(idColumn, inner -> delegate.getLimitSql(inner, start, limit));
+      if (deferred != null) {
+        return deferred;
+      }
+    }
+    return delegate.getLimitSql(sql, start, limit);
+  }
+
+  @Override
+  public String getKeysetPredicate(String sortColumn, String idColumn, boolean desc) {
+    return delegate.getKeysetPredicate(sortColumn, idColumn, desc);
+  }
+
+  @Override
+  public Object[] getKeysetArgs(Object sortValue, Object id) {
+    return delegate.getKeysetArgs(sortValue, id);
+  }
+
+  public LimitSQL getDelegate() {
+    return delegate;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+}
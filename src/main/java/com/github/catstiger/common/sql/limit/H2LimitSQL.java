@@ -10,4 +10,14 @@ public class H2LimitSQL implements LimitSQL {
     .toString();
   }
 
+  @Override
+  public String getLimitSqlTemplate(String sql) {
+    return new StringBuilder(sql.length() + 20).append(sql).append(" limit ? offset ?").toString();
+  }
+
+  @Override
+  public Object[] getLimitArgs(int start, int limit) {
+    return new Object[] {limit, start};
+  }
+
 }
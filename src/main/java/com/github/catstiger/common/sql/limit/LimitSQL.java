@@ -14,4 +14,47 @@ public interface LimitSQL {
    * @return 被limit子句加工过的SQL
    */
   String getLimitSql(String sql, int start, int limit);
+  
+  /**
+   * 将一个普通的SQL加工成限制抓取范围的SQL，提取位置和抓取数量用参数占位符{@code ?}代替，
+   * 这样同一个SQL的所有分页都可以共用一个SQL文本，参见{@link com.github.catstiger.common.sql.PreparedQuery}
+   * @param sql 给定一个SQL
+   * @return 带有占位符的Limit SQL，如果不支持，返回{@code null}
+   */
+  default String getLimitSqlTemplate(String sql) {
+    return null;
+  }
+  
+  /**
+   * 返回与{@link #getLimitSqlTemplate(String)}中的占位符对应的参数，这些参数追加在查询参数的后面
+   * @param start 提取位置，第一条数据为0
+   * @param limit 抓取数量
+   * @return 分页参数
+   */
+  default Object[] getLimitArgs(int start, int limit) {
+    return new Object[] {start, limit};
+  }
+  
+  /**
+   * 返回Keyset分页（Seek Method）的条件，即“排序字段和ID组成的元组大于（或者小于）上一页的最后一行”。
+   * 缺省使用行值比较{@code (sort, id) > (?, ?)}，MySQL、H2和PostgreSQL都支持，并且可以使用(sort, id)上的索引
+   * @param sortColumn 排序字段
+   * @param idColumn ID字段，用于区分排序字段相同的行
+   * @param desc 是否倒序
+   * @return 条件，参数与{@link #getKeysetArgs(Object, Object)}对应
+   */
+  default String getKeysetPredicate(String sortColumn, String idColumn, boolean desc) {
+    return new StringBuilder(sortColumn.length() + idColumn.length() + 20).append("(").append(sortColumn).append(", ")
+        .append(idColumn).append(desc ? ") < (?, ?)" : ") > (?, ?)").toString();
+  }
+  
+  /**
+   * 返回与{@link #getKeysetPredicate(String, String, boolean)}中的占位符对应的参数
+   * @param sortValue 上一页最后一行的排序字段的值
+   * @param id 上一页最后一行的ID
+   * @return Keyset分页的参数
+   */
+  default Object[] getKeysetArgs(Object sortValue, Object id) {
+    return new Object[] {sortValue, id};
+  }
 }
@@ -8,4 +8,9 @@ public class MySqlLimitSQL implements LimitSQL {
         .append(" limit ").append(start).append(",").append(limit).toString();
   }
 
+  @Override
+  public String getLimitSqlTemplate(String sql) {
+    return new StringBuilder(sql.length() + 20).append(sql).append(" limit ?,?").toString();
+  }
+
 }
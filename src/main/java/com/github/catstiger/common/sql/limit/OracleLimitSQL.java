@@ -31,4 +31,46 @@ public class OracleLimitSQL implements LimitSQL {
     return pagingSelect.toString();
   }
 
+  /**
+   * 总是使用带有起始位置的形式，这样第一页和后续的分页可以共用同一个SQL
+   */
+  @Override
+  public String getLimitSqlTemplate(String sql) {
+    sql = sql.trim();
+    boolean isForUpdate = false;
+    if (sql.toLowerCase().endsWith(" for update")) {
+      sql = sql.substring(0, sql.length() - 11);
+      isForUpdate = true;
+    }
+
+    StringBuilder pagingSelect = new StringBuilder(sql.length() + 100)
+        .append("select * from ( select row_.*, rownum rownum_ from ( ")
+        .append(sql)
+        .append(" ) row_ where rownum <= ?) where rownum_ > ?");
+    if (isForUpdate) {
+      pagingSelect.append(" for update");
+    }
+    return pagingSelect.toString();
+  }
+
+  @Override
+  public Object[] getLimitArgs(int start, int limit) {
+    return new Object[] {start + limit, start};
+  }
+
+  /**
+   * Oracle不支持行值的大小比较，展开为{@code sort > ? OR (sort = ? AND id > ?)}
+   */
+  @Override
+  public String getKeysetPredicate(String sortColumn, String idColumn, boolean desc) {
+    String op = desc ? " < ?" : " > ?";
+    return new StringBuilder(sortColumn.length() * 2 + idColumn.length() + 30).append("(").append(sortColumn).append(op)
+        .append(" OR (").append(sortColumn).append(" = ? AND ").append(idColumn).append(op).append("))").toString();
+  }
+
+  @Override
+  public Object[] getKeysetArgs(Object sortValue, Object id) {
+    return new Object[] {sortValue, sortValue, id};
+  }
+
 }
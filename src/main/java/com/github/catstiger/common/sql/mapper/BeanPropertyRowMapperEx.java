@@ -1,13 +1,15 @@
 package com.github.catstiger.common.sql.mapper;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
@@ -16,19 +18,28 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.NotWritablePropertyException;
+import org.springframework.beans.SimpleTypeConverter;
 import org.springframework.beans.TypeMismatchException;
-import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.core.convert.ConversionService;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 import com.github.catstiger.common.util.ReflectUtil;
 
 public class BeanPropertyRowMapperEx<T> extends BeanPropertyRowMapper<T> {
+  private static final Field MAPPED_FIELDS = accessibleField("mappedFields");
+  private static final Field MAPPED_PROPERTIES = accessibleField("mappedProperties");
+
+  /**
+   * 按结果集的列名缓存的映射计划
+   */
+  private final Map<String, RowMappingPlan> plans = new ConcurrentHashMap<>();
+  private volatile PlanHolder lastPlan;
+
   /**
    * Create a new {@code BeanPropertyRowMapper} for bean-style configuration.
    * 
@@ -92,82 +103,149 @@ public class BeanPropertyRowMapperEx<T> extends BeanPropertyRowMapper<T> {
    * 注意：只能装入引用表的ID字段
    * </p>
    * 
+   * <p>
+   * 列与属性的对应关系按结果集的列名缓存为{@link RowMappingPlan}，映射每一行的时候直接调用Setter，不再创建BeanWrapper。
+   * </p>
+   * 
    * @see BeanPropertyRowMapper#mapRow(ResultSet, int)
    * @see java.sql.ResultSetMetaData
    */
   @Override
   public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
     Assert.state(this.getMappedClass() != null, "Mapped class was not specified");
+    RowMappingPlan plan = planFor(rs);
     T mappedObject = BeanUtils.instantiateClass(this.getMappedClass());
-    BeanWrapper bw = new BeanWrapperImplEx(mappedObject); // PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
-    initBeanWrapper(bw);
 
-    ResultSetMetaData rsmd = rs.getMetaData();
-    int columnCount = rsmd.getColumnCount();
-    Set<String> populatedProperties = (isCheckFullyPopulated() ? new HashSet<String>() : null);
-
-    for (int index = 1; index <= columnCount; index++) {
-      String column = JdbcUtils.lookupColumnName(rsmd, index);
-      String field = lowerCaseName(column.replaceAll(" ", ""));
-      PropertyDescriptor pd = this.getMappedFields().get(field);
-      // 如果没有找到PropertyDescriptor，并且字段名称为**_id(表示外键，_id前面是snake_case格式的field名)，则取_id前面的部分作为field
-      if (pd == null && field.endsWith("_id")) {
-        field = field.substring(0, field.lastIndexOf("_id"));
-        pd = this.getMappedFields().get(field);
-      }
-      if (pd != null) {
-        Object value = getColumnValue(rs, index, pd);
-        mapColumn(value, bw, pd, column, rowNumber);
-        if (populatedProperties != null) {
-          populatedProperties.add(pd.getName());
-        }
-      } else {
-        // No PropertyDescriptor found
-        if (rowNumber == 0) {
-          logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
-        }
-      }
+    for (RowMappingPlan.ColumnMapping mapping : plan.getColumns()) {
+      mapColumn(mappedObject, rs, mapping, rowNumber);
     }
+    checkPopulated(plan);
 
-    if (populatedProperties != null && !populatedProperties.equals(this.getMappedProperties())) {
+    return mappedObject;
+  }
+
+  /**
+   * 用反射将一列的值设置到Bean中：有{@link ColumnReader}的列直接读取属性类型的值，其他的列需要的时候转换类型
+   */
+  void mapColumn(Object mappedObject, ResultSet rs, RowMappingPlan.ColumnMapping mapping, int rowNumber)
+      throws SQLException {
+    Object value;
+    if (mapping.reader != null) { // 专门化的读取，不需要转换类型
+      value = mapping.reader.read(rs, mapping, mappedObject);
+    } else if (mapping.foreign) { // 外键，将ID装入关联对象
+      value = mapping.foreignValue(mappedObject, JdbcUtils.getResultSetValue(rs, mapping.index));
+    } else {
+      value = convert(getColumnValue(rs, mapping.index, mapping.pd), mapping);
+    }
+    if (value == null && mapping.type.isPrimitive()) {
+      nullPrimitive(mappedObject, mapping, rowNumber);
+      return;
+    }
+    mapping.set(mappedObject, value);
+  }
+
+  /**
+   * 基本类型的属性遇到NULL值：如果{@link #isPrimitivesDefaultedForNullValue()}，则跳过，否则抛出{@link TypeMismatchException}
+   */
+  void nullPrimitive(Object mappedObject, RowMappingPlan.ColumnMapping mapping, int rowNumber) {
+    if (this.isPrimitivesDefaultedForNullValue()) {
+      logger.debug("Intercepted null value for row " + rowNumber + " and column '" + mapping.column
+          + "' when setting property '" + mapping.pd.getName() + "' of type '"
+          + ClassUtils.getQualifiedName(mapping.type));
+      return;
+    }
+    throw new TypeMismatchException(new PropertyChangeEvent(mappedObject, mapping.pd.getName(), null, null),
+        mapping.type);
+  }
+
+  void checkPopulated(RowMappingPlan plan) {
+    if (isCheckFullyPopulated() && !plan.getPopulatedProperties().equals(this.getMappedProperties())) {
       throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields "
           + "necessary to populate object of class [" + this.getMappedClass().getName() + "]: " + this.getMappedProperties());
     }
+  }
 
-    return mappedObject;
+  @Override
+  protected void initialize(Class<T> mappedClass) {
+    super.initialize(mappedClass);
+    if (this.plans != null) { // 父类的构造函数中调用的时候，字段还没有初始化
+      this.plans.clear();
+      this.lastPlan = null;
+    }
   }
-  
-  private void mapColumn(Object value, BeanWrapper bw, PropertyDescriptor pd, String column, int rowNumber) {
-    try {
-      try {
-        bw.setPropertyValue(pd.getName(), value);
-      } catch (TypeMismatchException ex) {
-        if (value == null && this.isPrimitivesDefaultedForNullValue()) {
-          logger.debug("Intercepted TypeMismatchException for row " + rowNumber + " and column '" + column
-              + "' with null value when setting property '" + pd.getName() + "' of type '"
-              + ClassUtils.getQualifiedName(pd.getPropertyType()), ex);
-
-        } else {
-          throw ex;
-        }
+
+  /**
+   * 返回结果集的映射计划。同一个结果集的各行使用上一次的计划，不同的结果集根据列名查找缓存的计划
+   */
+  RowMappingPlan planFor(ResultSet rs) throws SQLException {
+    PlanHolder holder = this.lastPlan;
+    if (holder != null && holder.resultSet.get() == rs) {
+      return holder.plan;
+    }
+    ResultSetMetaData rsmd = rs.getMetaData();
+    String signature = RowMappingPlan.signature(rsmd);
+    RowMappingPlan plan = plans.get(signature);
+    if (plan == null) {
+      plan = RowMappingPlan.build(rsmd, signature, this);
+      RowMappingPlan existing = plans.putIfAbsent(signature, plan);
+      if (existing != null) {
+        plan = existing;
       }
-    } catch (NotWritablePropertyException ex) {
-      throw new DataRetrievalFailureException("Unable to map column '" + column + "' to property '" + pd.getName() + "'", ex);
+    }
+    this.lastPlan = new PlanHolder(rs, plan);
+    return plan;
+  }
+
+  /**
+   * JDBC取得的值与属性类型不一致的时候，使用ConversionService或者属性编辑器转换
+   */
+  private Object convert(Object value, RowMappingPlan.ColumnMapping mapping) {
+    if (value == null || ClassUtils.isAssignableValue(mapping.type, value)) {
+      return value;
+    }
+    ConversionService conversionService = getConversionService();
+    if (conversionService != null && conversionService.canConvert(value.getClass(), mapping.type)) {
+      return conversionService.convert(value, mapping.type);
+    }
+    return new SimpleTypeConverter().convertIfNecessary(value, mapping.type);
+  }
+
+  /**
+   * 列名去掉空格并转为小写，用于查找属性
+   */
+  String fieldName(String column) {
+    return lowerCaseName(column.replace(" ", ""));
+  }
+
+  void debug(String message) {
+    if (logger.isDebugEnabled()) {
+      logger.debug(message);
     }
   }
 
   @SuppressWarnings("unchecked")
   protected Map<String, PropertyDescriptor> getMappedFields() {
-    Field field = ReflectUtil.findField(getClass(), "mappedFields");
-    field.setAccessible(true);
-
-    return (Map<String, PropertyDescriptor>) ReflectUtil.getField(field, this);
+    return (Map<String, PropertyDescriptor>) ReflectUtil.getField(MAPPED_FIELDS, this);
   }
 
   @SuppressWarnings("unchecked")
   protected Set<String> getMappedProperties() {
-    Field field = ReflectUtil.findField(getClass(), "mappedProperties");
-    field.setAccessible(true);
-    return (Set<String>) ReflectUtil.getField(field, this);
+    return (Set<String>) ReflectUtil.getField(MAPPED_PROPERTIES, this);
+  }
+
+  private static Field accessibleField(String name) {
+    Field field = ReflectUtil.findField(BeanPropertyRowMapper.class, name);
+    ReflectionUtils.makeAccessible(field);
+    return field;
+  }
+
+  private static final class PlanHolder {
+    private final WeakReference<ResultSet> resultSet;
+    private final RowMappingPlan plan;
+
+    private PlanHolder(ResultSet resultSet, RowMappingPlan plan) {
+      this.resultSet = new WeakReference<>(resultSet);
+      this.plan = plan;
+    }
   }
 }
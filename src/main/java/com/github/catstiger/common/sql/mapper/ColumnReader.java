@@ -0,0 +1,126 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * 按属性类型专门化的列读取：用对应的JDBC方法（{@code getLong/getInt/getDouble/getBoolean}等）读取，
+ * 用{@code wasNull}判断NULL，读取的值就是属性的类型，不需要再经过ConversionService或者属性编辑器转换。
+ * 外键列直接读取{@code long}类型的ID装入关联对象，不再经过字符串转换。
+ * <p>
+ * 基本类型的属性，NULL值返回{@code null}，由调用者决定跳过还是抛出异常。
+ * </p>
+ */
+enum ColumnReader {
+  LONG {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      long value = rs.getLong(mapping.index);
+      return value == 0L && rs.wasNull() ? null : Long.valueOf(value);
+    }
+  },
+  INT {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      int value = rs.getInt(mapping.index);
+      return value == 0 && rs.wasNull() ? null : Integer.valueOf(value);
+    }
+  },
+  DOUBLE {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      double value = rs.getDouble(mapping.index);
+      return value == 0D && rs.wasNull() ? null : Double.valueOf(value);
+    }
+  },
+  BOOLEAN {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      boolean value = rs.getBoolean(mapping.index);
+      return !value && rs.wasNull() ? null : Boolean.valueOf(value);
+    }
+  },
+  STRING {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      return rs.getString(mapping.index);
+    }
+  },
+  BIG_DECIMAL {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      return rs.getBigDecimal(mapping.index);
+    }
+  },
+  /**
+   * {@link java.util.Date}和{@link Timestamp}类型的属性
+   */
+  TIMESTAMP {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      return rs.getTimestamp(mapping.index);
+    }
+  },
+  /**
+   * 数字类型的外键列，返回装入ID的关联对象
+   */
+  FOREIGN_ID {
+    @Override
+    Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException {
+      long id = rs.getLong(mapping.index);
+      return id == 0L && rs.wasNull() ? null : mapping.foreignEntity(target, id);
+    }
+  };
+
+  /**
+   * 读取一列的值
+   * @param rs 结果集
+   * @param mapping 列的映射
+   * @param target 正在映射的对象，外键列从中取得已有的关联对象
+   * @return 属性类型的值，NULL返回{@code null}
+   */
+  abstract Object read(ResultSet rs, RowMappingPlan.ColumnMapping mapping, Object target) throws SQLException;
+
+  /**
+   * 根据属性类型和列的SQL类型选择专门化的读取方式，没有对应的专门化返回{@code null}
+   * @param type 属性类型
+   * @param foreign 是否外键
+   * @param sqlType 列的SQL类型，{@link Types}
+   */
+  static ColumnReader of(Class<?> type, boolean foreign, int sqlType) {
+    if (foreign) {
+      return isNumeric(sqlType) ? FOREIGN_ID : null;
+    }
+    if (type == long.class || type == Long.class) {
+      return LONG;
+    }
+    if (type == int.class || type == Integer.class) {
+      return INT;
+    }
+    if (type == double.class || type == Double.class) {
+      return DOUBLE;
+    }
+    if (type == boolean.class || type == Boolean.class) {
+      return BOOLEAN;
+    }
+    if (type == String.class) {
+      return STRING;
+    }
+    if (type == BigDecimal.class) {
+      return BIG_DECIMAL;
+    }
+    if (type == Date.class || type == Timestamp.class) {
+      return TIMESTAMP;
+    }
+    return null;
+  }
+
+  private static boolean isNumeric(int sqlType) {
+    return sqlType == Types.BIGINT || sqlType == Types.INTEGER || sqlType == Types.SMALLINT
+        || sqlType == Types.TINYINT || sqlType == Types.NUMERIC || sqlType == Types.DECIMAL;
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 只读的一行数据：列的标签保存在同一个结果集所有行共用的{@link RowHeader}中，每一行只有一个{@code Object[]}。
+ * 查找列不区分大小写，迭代的顺序是列的顺序。修改操作抛出{@link UnsupportedOperationException}。
+ * @see CompactRowMapper
+ */
+public final class CompactRow extends AbstractMap<String, Object> implements Serializable {
+  private static final long serialVersionUID = -2170254946356931478L;
+
+  private final RowHeader header;
+  private final Object[] values;
+
+  CompactRow(RowHeader header, Object[] values) {
+    this.header = header;
+    this.values = values;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = header.indexOf(key);
+    return index < 0 ? null : values[index];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return header.indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return header.keySet();
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new Iterator<Map.Entry<String, Object>>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < values.length;
+          }
+
+          @Override
+          public Map.Entry<String, Object> next() {
+            if (index >= values.length) {
+              throw new NoSuchElementException();
+            }
+            int current = index++;
+            return new AbstractMap.SimpleImmutableEntry<>(header.key(current), values[current]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return values.length;
+      }
+    };
+  }
+
+  RowHeader getHeader() {
+    return header;
+  }
+}
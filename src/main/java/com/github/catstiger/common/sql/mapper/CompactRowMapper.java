@@ -0,0 +1,33 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * 将每一行映射为{@link CompactRow}，用于代替{@link org.springframework.jdbc.core.ColumnMapRowMapper}：
+ * 同一个结果集的所有行共用一个{@link RowHeader}，每一行只保存值的数组，不再为每一行创建
+ * {@link org.springframework.util.LinkedCaseInsensitiveMap}和它的Hash表。
+ * <p>
+ * 返回的Map是只读的。列头在每个结果集的第一行创建，实例不是线程安全的，每次查询创建一个。
+ * </p>
+ */
+public class CompactRowMapper implements RowMapper<Map<String, Object>> {
+  private RowHeader header;
+
+  @Override
+  public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+    if (header == null || rowNum == 0) {
+      header = RowHeader.of(rs.getMetaData());
+    }
+    Object[] values = new Object[header.size()];
+    int columnCount = header.columnCount();
+    for (int index = 1; index <= columnCount; index++) {
+      values[header.slot(index - 1)] = JdbcUtils.getResultSetValue(rs, index);
+    }
+    return new CompactRow(header, values);
+  }
+}
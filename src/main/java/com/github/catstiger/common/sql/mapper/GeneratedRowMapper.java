@@ -0,0 +1,205 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.util.Assert;
+
+import com.github.catstiger.common.sql.BaseEntity;
+
+/**
+ * 为每一个实体类和结果集的列生成专门的映射：构造函数、Setter和外键的Getter由{@link LambdaAccessors}生成，
+ * 常用类型的列由{@link ColumnReader}直接调用{@code ResultSet.getLong/getInt/getDouble/getString}等方法取值，
+ * 基本类型不装箱，外键直接创建关联对象并设置ID。
+ * <p>
+ * 其他类型的列、非public的类或者方法，仍然使用{@link BeanPropertyRowMapperEx}的反射和类型转换。
+ * 由{@link Mappers#byClass(Class)}创建和缓存。
+ * </p>
+ */
+public class GeneratedRowMapper<T> extends BeanPropertyRowMapperEx<T> {
+  private final Map<RowMappingPlan, CompiledRow> compiledRows = new ConcurrentHashMap<>();
+  private volatile CompiledRow lastCompiled;
+
+  public GeneratedRowMapper(Class<T> mappedClass) {
+    super(mappedClass);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+    Assert.state(this.getMappedClass() != null, "Mapped class was not specified");
+    RowMappingPlan plan = planFor(rs);
+    CompiledRow compiled = this.lastCompiled;
+    if (compiled == null || compiled.plan != plan) {
+      compiled = compiledRows.get(plan);
+      if (compiled == null) {
+        compiled = compile(plan);
+        compiledRows.put(plan, compiled);
+      }
+      this.lastCompiled = compiled;
+    }
+    if (compiled.constructor == null) {
+      return super.mapRow(rs, rowNumber);
+    }
+
+    Object mappedObject = compiled.constructor.get();
+    for (ColumnWriter writer : compiled.writers) {
+      writer.write(mappedObject, rs, rowNumber);
+    }
+    checkPopulated(plan);
+    return (T) mappedObject;
+  }
+
+  @Override
+  protected void initialize(Class<T> mappedClass) {
+    super.initialize(mappedClass);
+    if (this.compiledRows != null) { // 父类的构造函数中调用的时候，字段还没有初始化
+      this.compiledRows.clear();
+      this.lastCompiled = null;
+    }
+  }
+
+  private CompiledRow compile(RowMappingPlan plan) {
+    Supplier<Object> constructor = LambdaAccessors.constructor(getMappedClass());
+    RowMappingPlan.ColumnMapping[] columns = plan.getColumns();
+    ColumnWriter[] writers = new ColumnWriter[columns.length];
+    int generated = 0;
+    for (int i = 0; i < columns.length; i++) {
+      ColumnWriter writer = generate(columns[i]);
+      if (writer != null) {
+        generated++;
+      } else {
+        RowMappingPlan.ColumnMapping mapping = columns[i];
+        writer = (target, rs, rowNumber) -> mapColumn(target, rs, mapping, rowNumber);
+      }
+      writers[i] = writer;
+    }
+    debug("Compiled row mapper for " + getMappedClass().getName() + ": " + generated + " of " + columns.length
+        + " columns generated" + (constructor == null ? ", constructor not accessible" : ""));
+    return new CompiledRow(plan, constructor, writers);
+  }
+
+  /**
+   * 为一列生成直接取值和设值的实现，没有{@link ColumnReader}的列返回{@code null}。
+   * {@code long/int/double}类型的属性直接调用基本类型的Setter，不装箱
+   */
+  private ColumnWriter generate(RowMappingPlan.ColumnMapping mapping) {
+    ColumnReader reader = mapping.reader;
+    if (reader == null || mapping.setter == null) {
+      return null;
+    }
+    if (reader == ColumnReader.FOREIGN_ID) {
+      return foreignWriter(mapping);
+    }
+    int index = mapping.index;
+    Class<?> type = mapping.type;
+    if (type == long.class) {
+      ObjLongConsumer<Object> setter = LambdaAccessors.longSetter(mapping.setter);
+      return setter == null ? null : (target, rs, rowNumber) -> {
+        long value = rs.getLong(index);
+        if (value == 0L && rs.wasNull()) {
+          nullPrimitive(target, mapping, rowNumber);
+        } else {
+          setter.accept(target, value);
+        }
+      };
+    }
+    if (type == int.class) {
+      ObjIntConsumer<Object> setter = LambdaAccessors.intSetter(mapping.setter);
+      return setter == null ? null : (target, rs, rowNumber) -> {
+        int value = rs.getInt(index);
+        if (value == 0 && rs.wasNull()) {
+          nullPrimitive(target, mapping, rowNumber);
+        } else {
+          setter.accept(target, value);
+        }
+      };
+    }
+    if (type == double.class) {
+      ObjDoubleConsumer<Object> setter = LambdaAccessors.doubleSetter(mapping.setter);
+      return setter == null ? null : (target, rs, rowNumber) -> {
+        double value = rs.getDouble(index);
+        if (value == 0D && rs.wasNull()) {
+          nullPrimitive(target, mapping, rowNumber);
+        } else {
+          setter.accept(target, value);
+        }
+      };
+    }
+    BiConsumer<Object, Object> setter = LambdaAccessors.setter(mapping.setter);
+    if (setter == null) {
+      return null;
+    }
+    if (type.isPrimitive()) { // boolean
+      return (target, rs, rowNumber) -> {
+        Object value = reader.read(rs, mapping, target);
+        if (value == null) {
+          nullPrimitive(target, mapping, rowNumber);
+        } else {
+          setter.accept(target, value);
+        }
+      };
+    }
+    return (target, rs, rowNumber) -> setter.accept(target, reader.read(rs, mapping, target));
+  }
+
+  /**
+   * 外键列：读取ID，创建关联对象（如果Getter返回已有的对象，则使用已有的对象）并设置ID
+   */
+  private ColumnWriter foreignWriter(RowMappingPlan.ColumnMapping mapping) {
+    if (!BaseEntity.class.isAssignableFrom(mapping.type)) {
+      return null;
+    }
+    Supplier<Object> constructor = LambdaAccessors.constructor(mapping.type);
+    BiConsumer<Object, Object> setter = LambdaAccessors.setter(mapping.setter);
+    Method readMethod = mapping.pd.getReadMethod();
+    Function<Object, Object> getter = readMethod == null ? null : LambdaAccessors.getter(readMethod);
+    if (constructor == null || setter == null || (readMethod != null && getter == null)) {
+      return null;
+    }
+    int index = mapping.index;
+    return (target, rs, rowNumber) -> {
+      long id = rs.getLong(index);
+      if (id == 0L && rs.wasNull()) {
+        setter.accept(target, null);
+        return;
+      }
+      mapping.checkForeignType();
+      Object entity = getter == null ? null : getter.apply(target);
+      if (entity == null) {
+        entity = constructor.get();
+      }
+      ((BaseEntity) entity).setId(id);
+      setter.accept(target, entity);
+    };
+  }
+
+  @FunctionalInterface
+  private interface ColumnWriter {
+    void write(Object target, ResultSet rs, int rowNumber) throws SQLException;
+  }
+
+  /**
+   * 一个映射计划生成的实现。构造函数无法生成的时候为{@code null}，使用反射映射整行
+   */
+  private static final class CompiledRow {
+    private final RowMappingPlan plan;
+    private final Supplier<Object> constructor;
+    private final ColumnWriter[] writers;
+
+    private CompiledRow(RowMappingPlan plan, Supplier<Object> constructor, ColumnWriter[] writers) {
+      this.plan = plan;
+      this.constructor = constructor;
+      this.writers = writers;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * 使用{@link LambdaMetafactory}为构造函数、Getter和Setter生成函数接口的实现，调用的时候与直接调用方法一样，没有反射的开销。
+ * 只能为当前ClassLoader可见的public类的public成员生成，否则返回{@code null}，由调用者使用反射。
+ */
+final class LambdaAccessors {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType SUPPLIER = MethodType.methodType(Supplier.class);
+  private static final MethodType FUNCTION = MethodType.methodType(Function.class);
+  private static final MethodType BI_CONSUMER = MethodType.methodType(BiConsumer.class);
+  private static final MethodType OBJ_LONG_CONSUMER = MethodType.methodType(ObjLongConsumer.class);
+  private static final MethodType OBJ_INT_CONSUMER = MethodType.methodType(ObjIntConsumer.class);
+  private static final MethodType OBJ_DOUBLE_CONSUMER = MethodType.methodType(ObjDoubleConsumer.class);
+
+  /**
+   * 生成的实现，Key为构造函数或者方法。生成失败的成员对应{@link #UNSUPPORTED}
+   */
+  private static final Map<Member, Object> accessors = new ConcurrentHashMap<>();
+  private static final Object UNSUPPORTED = new Object();
+
+  /**
+   * 无参数的构造函数
+   */
+  @SuppressWarnings("unchecked")
+  static Supplier<Object> constructor(Class<?> type) {
+    Constructor<?> constructor;
+    try {
+      constructor = type.getConstructor();
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+    return (Supplier<Object>) accessor(constructor, () -> {
+      MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+      return spin("get", SUPPLIER, MethodType.methodType(Object.class), handle, handle.type());
+    });
+  }
+
+  /**
+   * Getter
+   */
+  @SuppressWarnings("unchecked")
+  static Function<Object, Object> getter(Method method) {
+    return (Function<Object, Object>) accessor(method, () -> {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      return spin("apply", FUNCTION, MethodType.methodType(Object.class, Object.class), handle,
+          handle.type().wrap());
+    });
+  }
+
+  /**
+   * 引用类型（包括基本类型的包装类）参数的Setter，{@code boolean}等其他基本类型自动拆箱
+   */
+  @SuppressWarnings("unchecked")
+  static BiConsumer<Object, Object> setter(Method method) {
+    return (BiConsumer<Object, Object>) accessor(method, () -> {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      return spin("accept", BI_CONSUMER, MethodType.methodType(void.class, Object.class, Object.class), handle,
+          handle.type().wrap().changeReturnType(void.class));
+    });
+  }
+
+  /**
+   * {@code long}参数的Setter
+   */
+  @SuppressWarnings("unchecked")
+  static ObjLongConsumer<Object> longSetter(Method method) {
+    return (ObjLongConsumer<Object>) primitiveSetter(method, long.class, "accept", OBJ_LONG_CONSUMER);
+  }
+
+  /**
+   * {@code int}参数的Setter
+   */
+  @SuppressWarnings("unchecked")
+  static ObjIntConsumer<Object> intSetter(Method method) {
+    return (ObjIntConsumer<Object>) primitiveSetter(method, int.class, "accept", OBJ_INT_CONSUMER);
+  }
+
+  /**
+   * {@code double}参数的Setter
+   */
+  @SuppressWarnings("unchecked")
+  static ObjDoubleConsumer<Object> doubleSetter(Method method) {
+    return (ObjDoubleConsumer<Object>) primitiveSetter(method, double.class, "accept", OBJ_DOUBLE_CONSUMER);
+  }
+
+  private static Object primitiveSetter(Method method, Class<?> primitive, String name, MethodType factoryType) {
+    if (method.getParameterCount() != 1 || method.getParameterTypes()[0] != primitive) {
+      throw new IllegalArgumentException(method + " does not accept " + primitive);
+    }
+    return accessor(method, () -> {
+      MethodHandle handle = LOOKUP.unreflect(method);
+      return spin(name, factoryType, MethodType.methodType(void.class, Object.class, primitive), handle,
+          handle.type().changeReturnType(void.class));
+    });
+  }
+
+  private static Object accessor(Member member, Generator generator) {
+    if (!isAccessible(member)) {
+      return null;
+    }
+    Object accessor = accessors.get(member);
+    if (accessor == null) {
+      try {
+        accessor = generator.generate();
+      } catch (Throwable e) { // 生成失败的时候使用反射
+        accessor = UNSUPPORTED;
+      }
+      accessors.put(member, accessor);
+    }
+    return accessor == UNSUPPORTED ? null : accessor;
+  }
+
+  private static boolean isAccessible(Member member) {
+    Class<?> type = member.getDeclaringClass();
+    return Modifier.isPublic(member.getModifiers()) && Modifier.isPublic(type.getModifiers())
+        && ClassUtils.isVisible(type, LambdaAccessors.class.getClassLoader());
+  }
+
+  private static Object spin(String name, MethodType factoryType, MethodType samType, MethodHandle handle,
+      MethodType instantiatedType) throws Throwable {
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, name, factoryType, samType, handle, instantiatedType);
+    return site.getTarget().invoke();
+  }
+
+  @FunctionalInterface
+  private interface Generator {
+    Object generate() throws Throwable;
+  }
+
+  private LambdaAccessors() {
+  }
+}
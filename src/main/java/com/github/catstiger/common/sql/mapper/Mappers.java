@@ -19,8 +19,8 @@ public final class Mappers {
   private static Map<String, RowMapper> mapperCache = new ConcurrentHashMap<>();
   
   /**
-   * 创建一个{@link BeanPropertyRowMapperEx}的实例（泛型的），如果根据<code>mappingClass</code>创建
-   * 的实例已经缓存，则不会重复创建。
+   * 创建一个{@link GeneratedRowMapper}的实例（泛型的），如果根据<code>mappingClass</code>创建
+   * 的实例已经缓存，则不会重复创建。无法生成的列使用{@link BeanPropertyRowMapperEx}的反射实现。
    * @param mappingClass 给出mappingClass
    * @return
    */
@@ -30,8 +30,8 @@ public final class Mappers {
     if (mapperCache.containsKey(className)) {
       return mapperCache.get(className);
     }
-    RowMapper<T> rowMapper = new BeanPropertyRowMapperEx<T>(mappingClass);
-    logger.debug("创建 BeanPropertyRowMapperEx {}", className);
+    RowMapper<T> rowMapper = new GeneratedRowMapper<T>(mappingClass);
+    logger.debug("创建 GeneratedRowMapper {}", className);
     mapperCache.put(className, rowMapper);
     return rowMapper;
   }
@@ -0,0 +1,99 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * 一个结果集所有{@link CompactRow}共用的列头：列的标签和下标，创建之后不能修改。
+ * 与{@link org.springframework.util.LinkedCaseInsensitiveMap}一样，查找列不区分大小写；重复的标签只保留一列，值取最后一列。
+ */
+final class RowHeader implements Serializable {
+  private static final long serialVersionUID = 4383472915063120791L;
+
+  private final String[] keys;
+  /**
+   * 结果集的每一列（从0开始）对应的{@link #keys}的下标
+   */
+  private final int[] slots;
+  private final Map<String, Integer> exactIndex;
+  private final Map<String, Integer> lowerCaseIndex;
+  private final Set<String> keySet;
+
+  private RowHeader(String[] keys, int[] slots) {
+    this.keys = keys;
+    this.slots = slots;
+    this.exactIndex = new HashMap<>(keys.length * 2);
+    this.lowerCaseIndex = new HashMap<>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) {
+      exactIndex.put(keys[i], i);
+      lowerCaseIndex.put(keys[i].toLowerCase(), i);
+    }
+    this.keySet = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(keys)));
+  }
+
+  static RowHeader of(ResultSetMetaData rsmd) throws SQLException {
+    int columnCount = rsmd.getColumnCount();
+    List<String> keys = new ArrayList<>(columnCount);
+    Map<String, Integer> seen = new HashMap<>(columnCount * 2);
+    int[] slots = new int[columnCount];
+    for (int index = 1; index <= columnCount; index++) {
+      String key = JdbcUtils.lookupColumnName(rsmd, index);
+      Integer slot = seen.get(key.toLowerCase());
+      if (slot == null) {
+        slot = keys.size();
+        keys.add(key);
+        seen.put(key.toLowerCase(), slot);
+      }
+      slots[index - 1] = slot;
+    }
+    return new RowHeader(keys.toArray(new String[keys.size()]), slots);
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  int columnCount() {
+    return slots.length;
+  }
+
+  String key(int slot) {
+    return keys[slot];
+  }
+
+  /**
+   * 结果集的一列（从0开始）对应的值的下标
+   */
+  int slot(int column) {
+    return slots[column];
+  }
+
+  /**
+   * 返回标签对应的值的下标，不区分大小写，没有这一列返回-1
+   */
+  int indexOf(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    Integer index = exactIndex.get(key);
+    if (index == null) {
+      index = lowerCaseIndex.get(((String) key).toLowerCase());
+    }
+    return index == null ? -1 : index;
+  }
+
+  Set<String> keySet() {
+    return keySet;
+  }
+}
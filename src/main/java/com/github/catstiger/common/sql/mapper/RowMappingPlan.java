@@ -0,0 +1,202 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Entity;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.ReflectionUtils;
+
+import com.github.catstiger.common.sql.BaseEntity;
+import com.github.catstiger.common.util.ReflectUtil;
+
+/**
+ * 一个结果集的列与Bean属性的映射计划：每一列对应的属性、Setter、属性类型，以及是否是外键。
+ * 计划只与列名有关，同样列名的结果集共用一个计划，映射每一行的时候不再查找属性，也不再创建BeanWrapper。
+ */
+final class RowMappingPlan {
+  private final String signature;
+  private final ColumnMapping[] columns;
+  private final Set<String> populatedProperties;
+
+  private RowMappingPlan(String signature, ColumnMapping[] columns, Set<String> populatedProperties) {
+    this.signature = signature;
+    this.columns = columns;
+    this.populatedProperties = populatedProperties;
+  }
+
+  /**
+   * 返回结果集所有列的标签和SQL类型，用'\u0001'连接，作为计划的Key
+   */
+  static String signature(ResultSetMetaData rsmd) throws SQLException {
+    int columnCount = rsmd.getColumnCount();
+    StringBuilder buf = new StringBuilder(columnCount * 16);
+    for (int index = 1; index <= columnCount; index++) {
+      buf.append(JdbcUtils.lookupColumnName(rsmd, index)).append(':').append(rsmd.getColumnType(index))
+          .append('\u0001');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * 根据结果集的列和Bean的属性创建映射计划，列名去掉空格并转为小写之后查找属性；如果没有找到，并且列名以_id结尾，
+   * 则取_id前面的部分作为外键属性。
+   * @param rsmd 结果集的元数据
+   * @param signature {@link #signature(ResultSetMetaData)}
+   * @param mapper 提供属性表和小写转换
+   */
+  static RowMappingPlan build(ResultSetMetaData rsmd, String signature, BeanPropertyRowMapperEx<?> mapper)
+      throws SQLException {
+    Map<String, PropertyDescriptor> mappedFields = mapper.getMappedFields();
+    Class<?> mappedClass = mapper.getMappedClass();
+    int columnCount = rsmd.getColumnCount();
+    List<ColumnMapping> columns = new ArrayList<>(columnCount);
+    Set<String> populated = new HashSet<>();
+
+    for (int index = 1; index <= columnCount; index++) {
+      String column = JdbcUtils.lookupColumnName(rsmd, index);
+      String field = mapper.fieldName(column);
+      PropertyDescriptor pd = mappedFields.get(field);
+      if (pd == null && field.endsWith("_id")) {
+        field = field.substring(0, field.lastIndexOf("_id"));
+        pd = mappedFields.get(field);
+      }
+      if (pd != null) {
+        columns.add(new ColumnMapping(index, column, rsmd.getColumnType(index), pd, mappedClass));
+        populated.add(pd.getName());
+      } else {
+        mapper.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+      }
+    }
+    return new RowMappingPlan(signature, columns.toArray(new ColumnMapping[columns.size()]), populated);
+  }
+
+  String getSignature() {
+    return signature;
+  }
+
+  ColumnMapping[] getColumns() {
+    return columns;
+  }
+
+  Set<String> getPopulatedProperties() {
+    return populatedProperties;
+  }
+
+  /**
+   * 一列的映射
+   */
+  static final class ColumnMapping {
+    final int index;
+    final String column;
+    final int sqlType;
+    final PropertyDescriptor pd;
+    final Class<?> type;
+    final Method setter;
+    final boolean foreign;
+    /**
+     * 专门化的读取方式，为{@code null}的时候使用{@code getColumnValue}读取并转换类型
+     */
+    final ColumnReader reader;
+    /**
+     * 外键属性对应的Field，用于取得已有的关联对象
+     */
+    private final Field foreignField;
+    private final boolean foreignEntityType;
+
+    ColumnMapping(int index, String column, int sqlType, PropertyDescriptor pd, Class<?> mappedClass) {
+      this.index = index;
+      this.column = column;
+      this.sqlType = sqlType;
+      this.pd = pd;
+      this.type = pd.getPropertyType();
+      this.setter = pd.getWriteMethod();
+      ReflectionUtils.makeAccessible(setter);
+      Field field = ReflectUtil.findField(mappedClass, pd.getName());
+      this.foreign = isForeign(field, pd);
+      if (foreign && field != null) {
+        ReflectionUtils.makeAccessible(field);
+        this.foreignField = field;
+      } else {
+        this.foreignField = null;
+      }
+      this.foreignEntityType = type.getAnnotation(Entity.class) != null || type.getAnnotation(Table.class) != null;
+      this.reader = ColumnReader.of(type, foreign, sqlType);
+    }
+
+    private static boolean isForeign(Field field, PropertyDescriptor pd) {
+      if (field != null && (field.isAnnotationPresent(ManyToOne.class) || field.isAnnotationPresent(JoinColumn.class))) {
+        return true;
+      }
+      for (Method method : new Method[] { pd.getReadMethod(), pd.getWriteMethod() }) {
+        if (method != null && (method.isAnnotationPresent(ManyToOne.class) || method.isAnnotationPresent(JoinColumn.class))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * 外键：将ID装入关联对象中，如果关联对象为{@code null}，则创建一个。值为空或者不是数字的时候返回{@code null}
+     * @see BeanWrapperImplEx
+     */
+    Object foreignValue(Object target, Object value) {
+      if (value == null || !NumberUtils.isCreatable(value.toString())) {
+        return null;
+      }
+      return foreignEntity(target, Long.valueOf(value.toString()));
+    }
+
+    /**
+     * 外键：将ID装入关联对象中，如果关联对象为{@code null}，则创建一个
+     */
+    Object foreignEntity(Object target, long id) {
+      checkForeignType();
+      Object entity = foreignField == null ? null : ReflectUtil.getField(foreignField, target);
+      if (entity == null) {
+        entity = BeanUtils.instantiateClass(type);
+      }
+      if (entity instanceof BaseEntity) {
+        ((BaseEntity) entity).setId(id);
+      }
+      return entity;
+    }
+
+    /**
+     * 外键属性的类型必须是实体类
+     */
+    void checkForeignType() {
+      if (!foreignEntityType) {
+        throw new IllegalStateException("无法实现外键转换 " + pd.getName() + " class: " + type);
+      }
+    }
+
+    void set(Object target, Object value) {
+      try {
+        setter.invoke(target, value);
+      } catch (InvocationTargetException e) {
+        throw new DataRetrievalFailureException("Unable to map column '" + column + "' to property '" + pd.getName()
+            + "'", e.getTargetException());
+      } catch (IllegalAccessException | IllegalArgumentException e) {
+        throw new DataRetrievalFailureException("Unable to map column '" + column + "' to property '" + pd.getName()
+            + "'", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.catstiger.common.sql.metamodel;
+
+/**
+ * 编译期生成的实体类元数据，参见{@link EntityMetamodelProcessor}。每个实体类{@code User}对应一个生成的类
+ * {@code User_Meta}，其中包括表名、主键、各个字段名的常量，以及每个属性的{@link PropertyAccessor}。
+ * 表名和字段名按照缺省的命名规则生成（标注中的名字，或者Snake Case）。
+ *
+ * @param <T> 实体类
+ */
+public interface EntityMetamodel<T> {
+  Class<T> getEntityClass();
+
+  String getTablename();
+
+  /**
+   * 主键字段名
+   */
+  String getPrimaryColumn();
+
+  /**
+   * 所有对应数据库字段的属性名
+   */
+  String[] getProperties();
+
+  /**
+   * 返回属性的访问器，如果没有这个属性，或者Getter/Setter不是public的，返回{@code null}
+   */
+  PropertyAccessor<T> getAccessor(String property);
+}
@@ -0,0 +1,364 @@
+package com.github.catstiger.common.sql.metamodel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * 编译期生成实体类元数据的注解处理器。对每个被{@code @Entity}标注的类{@code User}，生成一个同包的{@code User_Meta}类，
+ * 实现{@link EntityMetamodel}，包括表名、主键、各个字段名的常量，以及直接调用Getter/Setter的{@link PropertyAccessor}；
+ * 同时生成实体类索引{@value Metamodels#ENTITY_INDEX}，运行时不需要扫描classpath。
+ * <p>
+ * 处理器不会自动注册（没有{@code META-INF/services}），需要使用的项目在编译时显式指定：
+ * </p>
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;artifactId&gt;maven-compiler-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;annotationProcessors&gt;
+ *       &lt;annotationProcessor&gt;com.github.catstiger.common.sql.metamodel.EntityMetamodelProcessor&lt;/annotationProcessor&gt;
+ *     &lt;/annotationProcessors&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * 属性的识别规则与{@code EntityMeta}一致，字段名使用缺省的命名规则（{@code @Column}、{@code @JoinColumn}标注的名字，
+ * 或者属性名的Snake Case，外键加_id）。处理器只使用JDK的API，编译时不需要其他依赖。索引只包括本次编译的实体类，
+ * 所以应该使用全量编译。
+ */
+@SupportedAnnotationTypes(EntityMetamodelProcessor.ENTITY)
+public class EntityMetamodelProcessor extends AbstractProcessor {
+  static final String ENTITY = "javax.persistence.Entity";
+  private static final String TABLE = "javax.persistence.Table";
+  private static final String COLUMN = "javax.persistence.Column";
+  private static final String JOIN_COLUMN = "javax.persistence.JoinColumn";
+  private static final String ID = "javax.persistence.Id";
+  private static final String TRANSIENT = "javax.persistence.Transient";
+  private static final String BEANS_TRANSIENT = "java.beans.Transient";
+
+  private final Set<String> entityNames = new TreeSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      writeIndex();
+      return false;
+    }
+    TypeElement entityAnn = processingEnv.getElementUtils().getTypeElement(ENTITY);
+    if (entityAnn == null) {
+      return false;
+    }
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(entityAnn))) {
+      if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue;
+      }
+      if (type.getEnclosingElement().getKind() != ElementKind.PACKAGE || !type.getTypeParameters().isEmpty()) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "只为顶层、非泛型的实体类生成元数据", type);
+        continue;
+      }
+      try {
+        generate(type);
+        entityNames.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成元数据：" + e.getMessage(), type);
+      }
+    }
+    return false;
+  }
+
+  private void writeIndex() {
+    if (entityNames.isEmpty()) {
+      return;
+    }
+    try {
+      FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Metamodels.ENTITY_INDEX);
+      try (Writer writer = index.openWriter()) {
+        for (String name : entityNames) {
+          writer.write(name);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成实体类索引：" + e.getMessage());
+    }
+  }
+
+  private void generate(TypeElement type) throws IOException {
+    String simpleName = type.getSimpleName().toString();
+    String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String entity = type.getQualifiedName().toString();
+    String metaName = simpleName + Metamodels.SUFFIX;
+
+    String tablename = annotationValue(type, TABLE, "name");
+    tablename = isBlank(tablename) ? snakeCase(simpleName) : tablename;
+    List<Property> properties = properties(type);
+    String primaryColumn = "id";
+    for (Property property : properties) {
+      if (property.primary) {
+        primaryColumn = property.column;
+        break;
+      }
+    }
+
+    StringBuilder src = new StringBuilder(4096);
+    if (!pkg.isEmpty()) {
+      src.append("package ").append(pkg).append(";\n\n");
+    }
+    src.append("/**\n * Generated by ").append(getClass().getName()).append(", do not edit.\n */\n")
+        .append("public final class ").append(metaName).append(" implements ")
+        .append(EntityMetamodel.class.getName()).append('<').append(entity).append("> {\n")
+        .append("  public static final String TABLE = ").append(literal(tablename)).append(";\n")
+        .append("  public static final String PRIMARY_KEY = ").append(literal(primaryColumn)).append(";\n");
+    // 私有成员使用小写的名字，不会与属性对应的常量重名
+    for (Property property : properties) {
+      String constant = snakeCase(property.name).toUpperCase();
+      if (!"TABLE".equals(constant) && !"PRIMARY_KEY".equals(constant)) {
+        src.append("  public static final String ").append(constant).append(" = ").append(literal(property.column))
+            .append(";\n");
+      }
+    }
+    src.append("\n  private static final String[] properties = {");
+    for (int i = 0; i < properties.size(); i++) {
+      src.append(i == 0 ? "" : ", ").append(literal(properties.get(i).name));
+    }
+    src.append("};\n");
+
+    String accessorType = PropertyAccessor.class.getName() + "<" + entity + ">";
+    for (int i = 0; i < properties.size(); i++) {
+      Property property = properties.get(i);
+      if (property.setter == null) {
+        continue;
+      }
+      src.append("\n  private static final ").append(accessorType).append(" accessor").append(i).append(" = new ")
+          .append(accessorType).append("() {\n")
+          .append("    @Override\n    public Object get(").append(entity).append(" entity) {\n")
+          .append("      return entity.").append(property.getter).append("();\n    }\n\n")
+          .append("    @Override\n    public void set(").append(entity).append(" entity, Object value) {\n")
+          .append("      entity.").append(property.setter).append('(').append(castValue(property.type)).append(");\n")
+          .append("    }\n  };\n");
+    }
+
+    src.append("\n  @Override\n  public Class<").append(entity).append("> getEntityClass() {\n")
+        .append("    return ").append(entity).append(".class;\n  }\n")
+        .append("\n  @Override\n  public String getTablename() {\n    return TABLE;\n  }\n")
+        .append("\n  @Override\n  public String getPrimaryColumn() {\n    return PRIMARY_KEY;\n  }\n")
+        .append("\n  @Override\n  public String[] getProperties() {\n    return properties.clone();\n  }\n")
+        .append("\n  @Override\n  public ").append(accessorType).append(" getAccessor(String property) {\n")
+        .append("    switch (property) {\n");
+    for (int i = 0; i < properties.size(); i++) {
+      if (properties.get(i).setter != null) {
+        src.append("      case ").append(literal(properties.get(i).name)).append(":\n")
+            .append("        return accessor").append(i).append(";\n");
+      }
+    }
+    src.append("      default:\n        return null;\n    }\n  }\n}\n");
+
+    String qualifiedMetaName = pkg.isEmpty() ? metaName : pkg + "." + metaName;
+    try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedMetaName, type).openWriter()) {
+      writer.write(src.toString());
+    }
+  }
+
+  /**
+   * 找出对应数据库字段的属性，父类的属性在前。规则与{@code EntityMeta}一致：必须有Field和Getter，
+   * 没有被Transient标注，不是集合或者数组
+   */
+  private List<Property> properties(TypeElement type) {
+    List<TypeElement> hierarchy = new ArrayList<>();
+    for (TypeElement t = type; t != null && !"java.lang.Object".equals(t.getQualifiedName().toString());
+        t = superclass(t)) {
+      hierarchy.add(0, t);
+    }
+    Map<String, ExecutableElement> methods = new LinkedHashMap<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      if (method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC)) {
+        methods.putIfAbsent(method.getSimpleName() + "/" + method.getParameters().size(), method);
+      }
+    }
+
+    TypeMirror collectionType = processingEnv.getTypeUtils().erasure(
+        processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+    Map<String, Property> properties = new LinkedHashMap<>();
+    for (TypeElement t : hierarchy) {
+      for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+        String name = field.getSimpleName().toString();
+        if (field.getModifiers().contains(Modifier.STATIC) || properties.containsKey(name)) {
+          continue;
+        }
+        TypeMirror fieldType = field.asType();
+        String cap = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        ExecutableElement getter = methods.get("get" + cap + "/0");
+        if (getter == null && fieldType.getKind() == TypeKind.BOOLEAN) {
+          getter = methods.get("is" + cap + "/0");
+        }
+        if (getter == null || hasAnnotation(field, getter, TRANSIENT) || hasAnnotation(field, getter, BEANS_TRANSIENT)) {
+          continue;
+        }
+        if (fieldType.getKind() == TypeKind.ARRAY
+            || processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(fieldType), collectionType)) {
+          continue;
+        }
+        ExecutableElement setter = methods.get("set" + cap + "/1");
+        boolean settable = setter != null && processingEnv.getTypeUtils().isSameType(
+            processingEnv.getTypeUtils().erasure(setter.getParameters().get(0).asType()),
+            processingEnv.getTypeUtils().erasure(fieldType));
+        properties.put(name, new Property(name, columnName(field, getter), fieldType, getter.getSimpleName().toString(),
+            settable ? setter.getSimpleName().toString() : null, hasAnnotation(field, getter, ID)));
+      }
+    }
+    return new ArrayList<>(properties.values());
+  }
+
+  /**
+   * 与{@code AbstractNamingStrategy#buildColumnName}一致
+   */
+  private String columnName(VariableElement field, ExecutableElement getter) {
+    String name = annotationValue(field, COLUMN, "name");
+    if (isBlank(name)) {
+      name = annotationValue(getter, COLUMN, "name");
+    }
+    if (!isBlank(name)) {
+      return name.toLowerCase();
+    }
+    boolean joinColumn = hasAnnotation(field, getter, JOIN_COLUMN);
+    name = annotationValue(field, JOIN_COLUMN, "name");
+    if (isBlank(name)) {
+      name = annotationValue(getter, JOIN_COLUMN, "name");
+    }
+    if (!isBlank(name)) {
+      return name.toLowerCase();
+    }
+    String colname = snakeCase(field.getSimpleName().toString());
+    boolean refEntity = field.asType().getKind() == TypeKind.DECLARED
+        && findAnnotation(((DeclaredType) field.asType()).asElement(), ENTITY) != null;
+    return (joinColumn || refEntity) ? colname + "_id" : colname;
+  }
+
+  private String castValue(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      String boxed = processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+      String zero;
+      switch (type.getKind()) {
+        case BOOLEAN:
+          zero = "false";
+          break;
+        case CHAR:
+          zero = "'\\0'";
+          break;
+        default:
+          zero = "(" + type.toString() + ") 0";
+      }
+      return "value == null ? " + zero + " : (" + boxed + ") value";
+    }
+    return "(" + processingEnv.getTypeUtils().erasure(type).toString() + ") value";
+  }
+
+  private TypeElement superclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+  }
+
+  private static boolean hasAnnotation(Element field, Element getter, String annotation) {
+    return findAnnotation(field, annotation) != null || findAnnotation(getter, annotation) != null;
+  }
+
+  private static AnnotationMirror findAnnotation(Element element, String annotation) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (annotation.contentEquals(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName())) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  private static String annotationValue(Element element, String annotation, String attribute) {
+    AnnotationMirror mirror = findAnnotation(element, annotation);
+    if (mirror == null) {
+      return null;
+    }
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+      if (attribute.contentEquals(entry.getKey().getSimpleName())) {
+        return String.valueOf(entry.getValue().getValue());
+      }
+    }
+    return null;
+  }
+
+  private static boolean isBlank(String str) {
+    return str == null || str.trim().isEmpty();
+  }
+
+  /**
+   * Camel Case转换为Snake Case，与Guava的{@code CaseFormat.LOWER_UNDERSCORE}一致
+   */
+  static String snakeCase(String name) {
+    StringBuilder buf = new StringBuilder(name.length() + 8);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c)) {
+        if (i > 0) {
+          buf.append('_');
+        }
+        buf.append(Character.toLowerCase(c));
+      } else {
+        buf.append(c);
+      }
+    }
+    return buf.toString();
+  }
+
+  private static String literal(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static final class Property {
+    final String name;
+    final String column;
+    final TypeMirror type;
+    final String getter;
+    /**
+     * 如果没有类型匹配的public Setter，为{@code null}，运行时使用反射
+     */
+    final String setter;
+    final boolean primary;
+
+    Property(String name, String column, TypeMirror type, String getter, String setter, boolean primary) {
+      this.name = name;
+      this.column = column;
+      this.type = type;
+      this.getter = getter;
+      this.setter = setter;
+      this.primary = primary;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.github.catstiger.common.sql.metamodel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 查找编译期生成的元数据。如果实体类没有生成的元数据（没有使用{@link EntityMetamodelProcessor}），
+ * 返回{@code null}，调用者应该回退到反射。
+ */
+public final class Metamodels {
+  /**
+   * 生成的元数据类名的后缀
+   */
+  public static final String SUFFIX = "_Meta";
+
+  /**
+   * 实体类索引文件，每行一个实体类的类名
+   */
+  public static final String ENTITY_INDEX = "META-INF/catstiger-entities";
+
+  private static final EntityMetamodel<?> NONE = new NoneMetamodel();
+
+  private static final ClassValue<EntityMetamodel<?>> metamodels = new ClassValue<EntityMetamodel<?>>() {
+    @Override
+    protected EntityMetamodel<?> computeValue(Class<?> type) {
+      try {
+        Class<?> metaClass = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+        if (EntityMetamodel.class.isAssignableFrom(metaClass)) {
+          return (EntityMetamodel<?>) metaClass.getDeclaredConstructor().newInstance();
+        }
+      } catch (ClassNotFoundException | LinkageError e) {
+        // 没有生成的元数据
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("无法创建元数据 " + type.getName() + SUFFIX, e);
+      }
+      return NONE;
+    }
+  };
+
+  private Metamodels() {
+  }
+
+  /**
+   * 返回实体类的编译期元数据，如果没有，返回{@code null}。结果按照实体类缓存。
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> EntityMetamodel<T> of(Class<T> entityClass) {
+    EntityMetamodel<?> metamodel = metamodels.get(entityClass);
+    return metamodel == NONE ? null : (EntityMetamodel<T>) metamodel;
+  }
+
+  /**
+   * 读取classpath中所有的{@link #ENTITY_INDEX}，返回其中的实体类名
+   * @param classLoader 用于查找索引文件
+   * @return 实体类名，如果没有索引文件，返回空集合
+   */
+  public static Set<String> indexedEntities(ClassLoader classLoader) {
+    Set<String> classNames = new LinkedHashSet<>();
+    try {
+      Enumeration<URL> urls = classLoader.getResources(ENTITY_INDEX);
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (StringUtils.isNotBlank(line) && !line.startsWith("#")) {
+              classNames.add(line);
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read " + ENTITY_INDEX, e);
+    }
+    return classNames;
+  }
+
+  /**
+   * 返回classpath中包含{@link #ENTITY_INDEX}的根路径（目录或者JAR），这些根路径中的实体类都在索引中
+   * @param classLoader 用于查找索引文件
+   * @return 根路径的URL字符串，以“/”结尾
+   */
+  public static Set<String> indexedRoots(ClassLoader classLoader) {
+    Set<String> roots = new LinkedHashSet<>();
+    try {
+      Enumeration<URL> urls = classLoader.getResources(ENTITY_INDEX);
+      while (urls.hasMoreElements()) {
+        String url = urls.nextElement().toString();
+        roots.add(url.substring(0, url.length() - ENTITY_INDEX.length()));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read " + ENTITY_INDEX, e);
+    }
+    return roots;
+  }
+
+  /**
+   * 表示没有生成的元数据，ClassValue中不能保存{@code null}
+   */
+  private static final class NoneMetamodel implements EntityMetamodel<Object> {
+    @Override
+    public Class<Object> getEntityClass() {
+      return Object.class;
+    }
+
+    @Override
+    public String getTablename() {
+      return null;
+    }
+
+    @Override
+    public String getPrimaryColumn() {
+      return null;
+    }
+
+    @Override
+    public String[] getProperties() {
+      return new String[0];
+    }
+
+    @Override
+    public PropertyAccessor<Object> getAccessor(String property) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.github.catstiger.common.sql.metamodel;
+
+/**
+ * 直接调用Getter和Setter访问实体类的一个属性，由{@link EntityMetamodelProcessor}生成，不使用反射。
+ *
+ * @param <T> 实体类
+ */
+public interface PropertyAccessor<T> {
+  /**
+   * 调用Getter，返回属性值
+   */
+  Object get(T entity);
+
+  /**
+   * 调用Setter设置属性值，基本类型的属性，{@code null}被转换为缺省值
+   */
+  void set(T entity, Object value);
+}
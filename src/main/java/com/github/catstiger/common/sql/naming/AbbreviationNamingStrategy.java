@@ -57,23 +57,17 @@ public class AbbreviationNamingStrategy extends AbstractNamingStrategy {
     return abbr.toString().toLowerCase();
   }
 
+  /**
+   * 表名中每个单词的首字母作为别名
+   */
   @Override
-  public String tableAlias(Class<?> entityClass) {
-    String key = new StringBuilder(150).append(entityClass.getName()).append("_").append(getClass().getName()).toString();
-    if (aliasCache.containsKey(key)) {
-      return aliasCache.get(key);
-    } else {
-      Iterable<String> iterable = Splitter.on("_").split(tablename(entityClass));
-      StringBuilder alias = new StringBuilder(10);
-      for (Iterator<String> itr = iterable.iterator(); itr.hasNext();) {
-        alias.append(itr.next().charAt(0));
-      }
-
-      String a = alias.toString().toLowerCase();
-      aliasCache.put(key, a);
-      return a;
+  protected String buildTableAlias(Class<?> entityClass) {
+    Iterable<String> iterable = Splitter.on("_").split(tablename(entityClass));
+    StringBuilder alias = new StringBuilder(10);
+    for (Iterator<String> itr = iterable.iterator(); itr.hasNext();) {
+      alias.append(itr.next().charAt(0));
     }
-
+    return alias.toString().toLowerCase();
   }
 
 }
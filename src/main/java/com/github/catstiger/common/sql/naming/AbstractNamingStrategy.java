@@ -17,66 +17,66 @@ import com.github.catstiger.common.sql.NamingStrategy;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Splitter;
 
+/**
+ * 命名策略的基类。每一种命名策略（按照策略的类区分）有自己的名称表，每个实体类对应一个{@link ClassValue}，
+ * 表名、别名，以及按照属性名索引的字段名，都只计算一次，命中缓存时不创建任何对象。
+ */
 public abstract class AbstractNamingStrategy implements NamingStrategy {
-  protected static Map<String, String> tablenameCache = new ConcurrentHashMap<>(64);
-  protected static Map<String, String> colnameCache = new ConcurrentHashMap<>(64);
-  protected static Map<String, String> aliasCache = new ConcurrentHashMap<>(64);
-  protected static Map<String, String> simpleAliasCache = new ConcurrentHashMap<>(64);
-
   /**
-   * 根据@Table标注获取表名，如果没有标注，则取类名的Snake Case作为表名
+   * Key是命名策略的类，不同的命名策略不会共用名称
    */
-  @Override
-  public String tablename(Class<?> entityClass) {
-    if (tablenameCache.containsKey(entityClass.getName())) {
-      return tablenameCache.get(entityClass.getName());
-    }
-    Entity entity = entityClass.getAnnotation(Entity.class);
-    if (entity == null) {
-      throw new RuntimeException("实体类必须用@Entity标注:" + entityClass.getName());
+  private static final Map<Class<?>, ClassValue<Names>> namesByStrategy = new ConcurrentHashMap<>(8);
+
+  private final ClassValue<Names> names;
+
+  protected AbstractNamingStrategy() {
+    ClassValue<Names> classValue = namesByStrategy.get(getClass());
+    if (classValue == null) {
+      classValue = new ClassValue<Names>() {
+        @Override
+        protected Names computeValue(Class<?> type) {
+          return new Names();
+        }
+      };
+      ClassValue<Names> existing = namesByStrategy.putIfAbsent(getClass(), classValue);
+      if (existing != null) {
+        classValue = existing;
+      }
     }
+    this.names = classValue;
+  }
 
-    String tablename;
-    Table table = entityClass.getAnnotation(Table.class);
-    if (table != null && StringUtils.isNotBlank(table.name())) {
-      tablename = table.name();
-    } else {
-      tablename = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, entityClass.getSimpleName());
+  @Override
+  public String tablename(Class<?> entityClass) {
+    Names n = names.get(entityClass);
+    String tablename = n.tablename;
+    if (tablename == null) {
+      tablename = buildTablename(entityClass);
+      n.tablename = tablename;
     }
-
-    tablenameCache.put(entityClass.getName(), tablename);
     return tablename;
   }
 
-  /**
-   * 表名缩写作为别名
-   */
   @Override
   public String tableAlias(Class<?> entityClass) {
-    if (aliasCache.containsKey(entityClass.getName())) {
-      return aliasCache.get(entityClass.getName());
-    } else {
-      String alias = entityClass.getSimpleName();
-      aliasCache.put(entityClass.getName(), alias);
-      return alias;
+    Names n = names.get(entityClass);
+    String alias = n.tableAlias;
+    if (alias == null) {
+      alias = buildTableAlias(entityClass);
+      n.tableAlias = alias;
     }
+    return alias;
   }
 
   @Override
   public String simpleAlias(Class<?> entityClass) {
-    if (simpleAliasCache.containsKey(entityClass.getName())) {
-      return simpleAliasCache.get(entityClass.getName());
-    } else {
-      String underScore = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, entityClass.getSimpleName());
-      StringBuilder buf = new StringBuilder(20);
-      Splitter.on("_").split(underScore).forEach(s -> {
-        buf.append(s.charAt(0));
-      });
-
-      String alias = buf.toString();
-      simpleAliasCache.put(entityClass.getName(), alias);
-      return alias;
+    Names n = names.get(entityClass);
+    String alias = n.simpleAlias;
+    if (alias == null) {
+      alias = buildSimpleAlias(entityClass);
+      n.simpleAlias = alias;
     }
+    return alias;
   }
 
   @Override
@@ -87,6 +87,10 @@ public abstract class AbstractNamingStrategy implements NamingStrategy {
     if (StringUtils.isBlank(fieldname)) {
       throw new IllegalArgumentException("属性名不可为空！");
     }
+    String colname = names.get(entityClass).columns.get(fieldname);
+    if (colname != null) {
+      return colname;
+    }
     Field field = ReflectionUtils.findField(entityClass, fieldname);
     return this.columnName(entityClass, field);
   }
@@ -96,25 +100,65 @@ public abstract class AbstractNamingStrategy implements NamingStrategy {
     if (field == null) {
       throw new java.lang.IllegalArgumentException("属性不可为空！");
     }
-    String key = new StringBuilder(100).append(entityClass.getName()).append("#").append(field.getName()).toString();
-    if (colnameCache.containsKey(key)) {
-      return colnameCache.get(key);
+    Map<String, String> columns = names.get(entityClass).columns;
+    String colname = columns.get(field.getName());
+    if (colname == null) {
+      colname = buildColumnName(entityClass, field);
+      columns.put(field.getName(), colname);
     }
+    return colname;
+  }
 
+  /**
+   * 根据@Table标注获取表名，如果没有标注，则取类名的Snake Case作为表名
+   */
+  protected String buildTablename(Class<?> entityClass) {
+    Entity entity = entityClass.getAnnotation(Entity.class);
+    if (entity == null) {
+      throw new RuntimeException("实体类必须用@Entity标注:" + entityClass.getName());
+    }
+
+    Table table = entityClass.getAnnotation(Table.class);
+    if (table != null && StringUtils.isNotBlank(table.name())) {
+      return table.name();
+    } else {
+      return CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, entityClass.getSimpleName());
+    }
+  }
+
+  /**
+   * 类名作为别名
+   */
+  protected String buildTableAlias(Class<?> entityClass) {
+    return entityClass.getSimpleName();
+  }
+
+  /**
+   * 类名的缩写作为简单别名
+   */
+  protected String buildSimpleAlias(Class<?> entityClass) {
+    String underScore = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, entityClass.getSimpleName());
+    StringBuilder buf = new StringBuilder(20);
+    Splitter.on("_").split(underScore).forEach(s -> {
+      buf.append(s.charAt(0));
+    });
+    return buf.toString();
+  }
+
+  /**
+   * 根据@Column或者@JoinColumn标注获取字段名，如果没有标注，则取属性名的Snake Case，外键加_id
+   */
+  protected String buildColumnName(Class<?> entityClass, Field field) {
     Method getter = ReflectionUtils.findMethod(entityClass, "get" + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, field.getName()));
 
     Column colAnn = getColumnAnn(field, getter);
     if (colAnn != null && StringUtils.isNotBlank(colAnn.name())) {
-      String colname = colAnn.name().toLowerCase();
-      colnameCache.put(key, colname);
-      return colname;
+      return colAnn.name().toLowerCase();
     }
 
     JoinColumn joinColAnn = getJoinColumnAnn(field, getter);
     if (joinColAnn != null && StringUtils.isNotBlank(joinColAnn.name())) {
-      String colname = joinColAnn.name().toLowerCase();
-      colnameCache.put(key, colname);
-      return colname;
+      return joinColAnn.name().toLowerCase();
     }
 
     String colname = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, field.getName());
@@ -122,8 +166,6 @@ public abstract class AbstractNamingStrategy implements NamingStrategy {
     if (joinColAnn != null || refEntityAnn != null) { // 外键加_id
       colname = colname + "_id";
     }
-    colnameCache.put(key, colname);
-
     return colname;
   }
   
@@ -147,4 +189,16 @@ public abstract class AbstractNamingStrategy implements NamingStrategy {
     return joinColAnn;
   }
   
+  /**
+   * 一个实体类在一种命名策略下的名称，按需计算。重复计算的结果相同，所以不需要加锁
+   */
+  private static final class Names {
+    private volatile String tablename;
+    private volatile String tableAlias;
+    private volatile String simpleAlias;
+    /**
+     * Key是属性名
+     */
+    private final Map<String, String> columns = new ConcurrentHashMap<>(16);
+  }
 }
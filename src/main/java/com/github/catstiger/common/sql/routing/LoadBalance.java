@@ -0,0 +1,47 @@
+package com.github.catstiger.common.sql.routing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 在多个只读副本之间选择一个的策略
+ */
+public enum LoadBalance {
+  /**
+   * 依次使用每个副本
+   */
+  ROUND_ROBIN {
+    int select(AtomicInteger sequence, AtomicIntegerArray inFlight) {
+      return (sequence.getAndIncrement() & Integer.MAX_VALUE) % inFlight.length();
+    }
+  },
+
+  /**
+   * 使用当前借出连接最少的副本，相同的时候依次使用
+   */
+  LEAST_IN_FLIGHT {
+    int select(AtomicInteger sequence, AtomicIntegerArray inFlight) {
+      int n = inFlight.length();
+      int offset = (sequence.getAndIncrement() & Integer.MAX_VALUE) % n;
+      int selected = offset;
+      int least = Integer.MAX_VALUE;
+      for (int i = 0; i < n; i++) {
+        int index = (offset + i) % n;
+        int count = inFlight.get(index);
+        if (count < least) {
+          least = count;
+          selected = index;
+        }
+      }
+      return selected;
+    }
+  };
+
+  /**
+   * 选择一个副本
+   * @param sequence 每次选择递增的序号
+   * @param inFlight 每个副本当前借出的连接数
+   * @return 副本的下标
+   */
+  abstract int select(AtomicInteger sequence, AtomicIntegerArray inFlight);
+}
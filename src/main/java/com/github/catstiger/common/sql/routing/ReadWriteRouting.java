@@ -0,0 +1,98 @@
+package com.github.catstiger.common.sql.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程的读写路由状态，配合{@link ReadWriteRoutingDataSource}使用：
+ * <ul>
+ * <li>{@link #onReplica(Supplier)}：明确标记的查询，使用只读副本。</li>
+ * <li>{@link #onPrimary(Supplier)}：强制使用主库，例如读取刚刚写入的数据。</li>
+ * <li>写操作之后，在粘滞时间窗口之内，当前线程的读操作也使用主库（Read-your-writes）。</li>
+ * </ul>
+ * 在Web环境中，{@link com.github.catstiger.common.web.WebObjectsHolderFilter}在请求结束的时候调用{@link #clear()}，
+ * 粘滞只在同一个请求中有效。
+ */
+public final class ReadWriteRouting {
+  /**
+   * 路由方式
+   */
+  public enum Route {
+    /**
+     * 根据事务判断，只读事务使用副本，其他使用主库
+     */
+    DEFAULT,
+    /**
+     * 使用主库
+     */
+    PRIMARY,
+    /**
+     * 使用只读副本
+     */
+    REPLICA
+  }
+
+  private static final ThreadLocal<Route> routeHolder = new ThreadLocal<Route>();
+  private static final ThreadLocal<Long> lastWriteHolder = new ThreadLocal<Long>();
+
+  private ReadWriteRouting() {
+  }
+
+  /**
+   * 在只读副本上执行查询，在写操作之后的粘滞时间窗口之内，仍然使用主库
+   */
+  public static <T> T onReplica(Supplier<T> action) {
+    return on(Route.REPLICA, action);
+  }
+
+  /**
+   * 在主库上执行
+   */
+  public static <T> T onPrimary(Supplier<T> action) {
+    return on(Route.PRIMARY, action);
+  }
+
+  private static <T> T on(Route route, Supplier<T> action) {
+    Route previous = routeHolder.get();
+    routeHolder.set(route);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        routeHolder.remove();
+      } else {
+        routeHolder.set(previous);
+      }
+    }
+  }
+
+  /**
+   * 当前线程的路由方式
+   */
+  public static Route currentRoute() {
+    Route route = routeHolder.get();
+    return route == null ? Route.DEFAULT : route;
+  }
+
+  /**
+   * 记录当前线程的写操作
+   */
+  public static void markWrite() {
+    lastWriteHolder.set(System.currentTimeMillis());
+  }
+
+  /**
+   * 当前线程在{@code windowMillis}毫秒之内是否有写操作
+   */
+  public static boolean isSticky(long windowMillis) {
+    Long lastWrite = lastWriteHolder.get();
+    return lastWrite != null && System.currentTimeMillis() - lastWrite < windowMillis;
+  }
+
+  /**
+   * 清除当前线程的路由状态
+   */
+  public static void clear() {
+    routeHolder.remove();
+    lastWriteHolder.remove();
+  }
+}
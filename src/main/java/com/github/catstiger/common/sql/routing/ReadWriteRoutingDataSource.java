@@ -0,0 +1,245 @@
+package com.github.catstiger.common.sql.routing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离的{@code DataSource}：只读事务（{@code @Transactional(readOnly = true)}）和
+ * {@link ReadWriteRouting#onReplica(java.util.function.Supplier)}标记的查询使用只读副本，其他使用主库。
+ * <ul>
+ * <li>多个副本之间按照{@link LoadBalance}选择，缺省为{@link LoadBalance#ROUND_ROBIN}。</li>
+ * <li>在主库上写入数据之后，从提交（自动提交模式下，从关闭连接）的时候开始，在粘滞时间窗口之内，
+ * 当前线程的读操作也使用主库，保证能读到刚刚写入的数据。只有查询的连接不会引起粘滞。</li>
+ * <li>获取副本的连接失败的时候，使用主库。</li>
+ * </ul>
+ * 事务管理器在设置只读标志之前获取连接，因此需要用{@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * 包装，在第一次执行SQL的时候才获取连接：
+ * <pre>
+ * &#64;Bean
+ * public DataSource dataSource() {
+ *   ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, Arrays.asList(replica1, replica2));
+ *   routing.setLoadBalance(LoadBalance.LEAST_IN_FLIGHT);
+ *   return new LazyConnectionDataSourceProxy(routing);
+ * }
+ * </pre>
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+  private static Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+  /**
+   * 缺省的粘滞时间窗口（毫秒）
+   */
+  public static final long DEFAULT_STICKY_MILLIS = 1000L;
+
+  private final DataSource primary;
+  private final List<DataSource> replicas;
+  private final AtomicIntegerArray inFlight;
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  private LoadBalance loadBalance = LoadBalance.ROUND_ROBIN;
+  private long stickyMillis = DEFAULT_STICKY_MILLIS;
+
+  /**
+   * @param primary 主库
+   * @param replicas 只读副本，如果为空，所有的操作都使用主库
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    if (primary == null) {
+      throw new IllegalArgumentException("Primary DataSource must not be null.");
+    }
+    this.primary = primary;
+    this.replicas = replicas == null ? Collections.<DataSource>emptyList()
+        : Collections.unmodifiableList(new ArrayList<DataSource>(replicas));
+    this.inFlight = new AtomicIntegerArray(this.replicas.size());
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getConnection(null, null);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    if (isReadRoute()) {
+      int index = loadBalance.select(sequence, inFlight);
+      try {
+        Connection connection = connect(replicas.get(index), username, password);
+        inFlight.incrementAndGet(index);
+        return trackInFlight(connection, index);
+      } catch (SQLException e) {
+        logger.warn("Failed to connect replica {}, using primary: {}", index, e.getMessage());
+        return connect(primary, username, password);
+      }
+    }
+    Connection connection = connect(primary, username, password);
+    if (ReadWriteRouting.currentRoute() == ReadWriteRouting.Route.PRIMARY) {
+      return connection;
+    }
+    return trackWrites(connection);
+  }
+
+  /**
+   * 判断当前线程是否使用只读副本
+   */
+  protected boolean isReadRoute() {
+    if (replicas.isEmpty()) {
+      return false;
+    }
+    ReadWriteRouting.Route route = ReadWriteRouting.currentRoute();
+    if (route == ReadWriteRouting.Route.PRIMARY) {
+      return false;
+    }
+    boolean read = route == ReadWriteRouting.Route.REPLICA
+        || (TransactionSynchronizationManager.isActualTransactionActive()
+            && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    return read && !ReadWriteRouting.isSticky(stickyMillis);
+  }
+
+  private Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+    return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+  }
+
+  /**
+   * 返回连接的代理，关闭连接的时候减少副本的借出数量
+   */
+  private Connection trackInFlight(Connection connection, int index) {
+    AtomicBoolean closed = new AtomicBoolean(false);
+    InvocationHandler handler = (proxy, method, args) -> {
+      if ("close".equals(method.getName()) && method.getParameterCount() == 0 && closed.compareAndSet(false, true)) {
+        inFlight.decrementAndGet(index);
+      }
+      try {
+        return method.invoke(connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    };
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+        handler);
+  }
+
+  /**
+   * 返回主库连接的代理，在这个连接上执行了写操作（不是SELECT的SQL）的时候，提交之后（自动提交模式下，关闭的时候）
+   * 调用{@link ReadWriteRouting#markWrite()}；回滚的写操作不记录
+   */
+  private Connection trackWrites(Connection connection) {
+    AtomicBoolean dirty = new AtomicBoolean(false);
+    InvocationHandler handler = (proxy, method, args) -> {
+      String name = method.getName();
+      if (("prepareStatement".equals(name) || "prepareCall".equals(name)) && args != null
+          && args[0] instanceof String && ("prepareCall".equals(name) || !isQuery((String) args[0]))) {
+        dirty.set(true);
+      } else if ("close".equals(name) && method.getParameterCount() == 0 && dirty.get() && !connection.isClosed()
+          && connection.getAutoCommit()) {
+        ReadWriteRouting.markWrite();
+        dirty.set(false);
+      }
+      Object result;
+      try {
+        result = method.invoke(connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+      if ("commit".equals(name) && dirty.compareAndSet(true, false)) {
+        ReadWriteRouting.markWrite();
+      } else if ("rollback".equals(name) && method.getParameterCount() == 0) {
+        dirty.set(false);
+      } else if ("createStatement".equals(name)) {
+        return trackWrites((Statement) result, dirty);
+      }
+      return result;
+    };
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+        handler);
+  }
+
+  /**
+   * 返回{@link Statement}的代理，执行写操作的时候设置{@code dirty}，{@code executeQuery}不是写操作
+   */
+  private Statement trackWrites(Statement statement, AtomicBoolean dirty) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      String name = method.getName();
+      if ("executeUpdate".equals(name) || "executeLargeUpdate".equals(name) || "addBatch".equals(name)
+          || ("execute".equals(name) && args != null && args[0] instanceof String && !isQuery((String) args[0]))) {
+        dirty.set(true);
+      }
+      try {
+        return method.invoke(statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+    };
+    return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+        handler);
+  }
+
+  /**
+   * 是否SELECT语句，其他语句（包括WITH，可能修改数据）都当作写操作
+   */
+  static boolean isQuery(String sql) {
+    int index = 0;
+    while (index < sql.length() && (Character.isWhitespace(sql.charAt(index)) || sql.charAt(index) == '(')) {
+      index++;
+    }
+    return sql.regionMatches(true, index, "SELECT", 0, 6);
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    return replicas;
+  }
+
+  /**
+   * 副本当前借出的连接数
+   * @param index 副本的下标
+   */
+  public int getInFlight(int index) {
+    return inFlight.get(index);
+  }
+
+  public LoadBalance getLoadBalance() {
+    return loadBalance;
+  }
+
+  public void setLoadBalance(LoadBalance loadBalance) {
+    if (loadBalance == null) {
+      throw new IllegalArgumentException("LoadBalance must not be null.");
+    }
+    this.loadBalance = loadBalance;
+  }
+
+  public long getStickyMillis() {
+    return stickyMillis;
+  }
+
+  /**
+   * 设置写操作之后的粘滞时间窗口，0表示不粘滞
+   */
+  public void setStickyWindow(long window, TimeUnit unit) {
+    if (window < 0) {
+      throw new IllegalArgumentException("Sticky window must not be negative.");
+    }
+    this.stickyMillis = unit.toMillis(window);
+  }
+}
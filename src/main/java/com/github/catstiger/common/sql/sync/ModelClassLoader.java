@@ -18,6 +18,8 @@ import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
 import org.springframework.util.ClassUtils;
 
+import com.github.catstiger.common.sql.metamodel.Metamodels;
+
 public class ModelClassLoader {
   private static final String RESOURCE_PATTERN = "/**/*.class";
   private static Set<Class<?>> entityClasses = new HashSet<>();
@@ -31,12 +33,24 @@ public class ModelClassLoader {
   }
 
   /**
-   * 扫描所有package，找到Entity类，并且缓存起来
+   * 扫描所有package，找到Entity类，并且缓存起来。如果classpath中有编译期生成的实体类索引
+   * （{@value Metamodels#ENTITY_INDEX}），有索引的目录或者JAR中的实体类直接从索引中读取，
+   * 只扫描其他目录和JAR中的class文件
    */
   public void scanPackages(String... packagesToScan) {
     ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
     Set<String> entityClassNames = new TreeSet<String>();
 
+    for (String className : Metamodels.indexedEntities(resourcePatternResolver.getClassLoader())) {
+      for (String pkg : packagesToScan) {
+        if (className.startsWith(pkg + ".")) {
+          entityClassNames.add(className);
+          break;
+        }
+      }
+    }
+    Set<String> indexedRoots = Metamodels.indexedRoots(resourcePatternResolver.getClassLoader());
+
     try {
       for (String pkg : packagesToScan) {
         String pattern = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + ClassUtils.convertClassNameToResourcePath(pkg)
@@ -44,7 +58,7 @@ public class ModelClassLoader {
         Resource[] resources = resourcePatternResolver.getResources(pattern);
         MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
         for (Resource resource : resources) {
-          if (resource.isReadable()) {
+          if (resource.isReadable() && !isIndexed(resource, indexedRoots)) {
             MetadataReader reader = readerFactory.getMetadataReader(resource);
             String className = reader.getClassMetadata().getClassName();
             if (matchesEntityTypeFilter(reader, readerFactory)) {
@@ -56,8 +70,27 @@ public class ModelClassLoader {
     } catch (IOException ex) {
       throw new RuntimeException("Failed to scan classpath for unlisted classes", ex);
     }
+    loadClasses(resourcePatternResolver.getClassLoader(), entityClassNames);
+  }
+
+  /**
+   * class文件是否在有实体类索引的目录或者JAR中，这些class文件不需要读取
+   */
+  private boolean isIndexed(Resource resource, Set<String> indexedRoots) throws IOException {
+    if (indexedRoots.isEmpty()) {
+      return false;
+    }
+    String url = resource.getURL().toString();
+    for (String root : indexedRoots) {
+      if (url.startsWith(root)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void loadClasses(ClassLoader cl, Set<String> entityClassNames) {
     try {
-      ClassLoader cl = resourcePatternResolver.getClassLoader();
       for (String className : entityClassNames) {
         addAnnotatedClass(cl.loadClass(className));
       }
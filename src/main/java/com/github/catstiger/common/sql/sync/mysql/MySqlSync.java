@@ -1,17 +1,15 @@
 package com.github.catstiger.common.sql.sync.mysql;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import javax.persistence.JoinColumn;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 
+import com.github.catstiger.common.sql.EntityMeta;
 import com.github.catstiger.common.sql.NamingStrategy;
 import com.github.catstiger.common.sql.ORMHelper;
 import com.github.catstiger.common.sql.sync.ColumnCreator;
@@ -128,41 +126,22 @@ public class MySqlSync implements DbSync, InitializingBean {
    * 创建外键，多对一
    */
   private void syncForeignKey(Class<?> entityClass) {
-    ORMHelper ormHelper = ORMHelper.getInstance(namingStrategy);
-    Field[] fields = ReflectUtil.getFields(entityClass); // .getFields();
-    for (Field field : fields) {
-      if (ormHelper.isFieldIgnore(field)) {
-        continue;
-      }
-      JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
-      if (joinColumn == null) {
-        Method getter = ormHelper.getAccessMethod(entityClass, field.getName());
-        joinColumn = getter.getAnnotation(JoinColumn.class);
-      }
-      if (joinColumn == null) {
+    EntityMeta meta = ORMHelper.getInstance(namingStrategy).getEntityMeta(entityClass);
+    for (EntityMeta.Column column : meta.getColumns()) {
+      if (column.isSyncIgnored() || !column.isJoinColumn()) {
         continue;
       }
-
-      columnCreator.addForeignKeyIfNotExists(entityClass, field.getName(), field.getType(), "id");
+      columnCreator.addForeignKeyIfNotExists(entityClass, column.getFieldname(), column.getType(), "id");
     }
   }
 
   private void syncIndexes(Class<?> entityClass) {
-    ORMHelper ormHelper = ORMHelper.getInstance(namingStrategy);
-    Field[] fields = ReflectUtil.getFields(entityClass);
-    for (Field field : fields) {
-      if (ormHelper.isFieldIgnore(field)) {
-        continue;
-      }
-      JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
-      if (joinColumn == null) {
-        Method getter = ormHelper.getAccessMethod(entityClass, field.getName());
-        joinColumn = getter.getAnnotation(JoinColumn.class);
-      }
-      if (joinColumn != null) { // 外键不重复建立索引
+    EntityMeta meta = ORMHelper.getInstance(namingStrategy).getEntityMeta(entityClass);
+    for (EntityMeta.Column column : meta.getColumns()) {
+      if (column.isSyncIgnored() || column.isJoinColumn()) { // 外键不重复建立索引
         continue;
       }
-      indexCreator.addIndexIfNotExists(entityClass, field.getName());
+      indexCreator.addIndexIfNotExists(entityClass, column.getFieldname());
     }
   }
 
@@ -9,6 +9,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.github.catstiger.common.sql.routing.ReadWriteRouting;
+
 /**
  * 保存HttpServletRequest和HttpServletResponse对象，这样可以在任何地方使用这两个变量（Web环境中）。
  * <pre>
@@ -40,6 +42,7 @@ public class WebObjectsHolderFilter extends OncePerRequestFilter {
       filterChain.doFilter(request, response);
     } finally {
       WebObjectsHolder.clear();
+      ReadWriteRouting.clear(); // 写操作之后的粘滞只在同一个请求中有效
     }
   }
 
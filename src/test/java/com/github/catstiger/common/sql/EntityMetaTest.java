@@ -0,0 +1,33 @@
+package com.github.catstiger.common.sql;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class EntityMetaTest {
+
+  @Test
+  public void testColumns() {
+    EntityMeta meta = EntityMeta.of(TestEntity.class);
+    Assert.isTrue(meta == EntityMeta.of(TestEntity.class), "Meta must be cached.");
+    Assert.isTrue("t_test".equals(meta.getTablename()), "Table name must be t_test");
+    Assert.isTrue("id".equals(meta.getColumns().get(0).getColumn()), "Primary key must be the first column.");
+    Assert.isTrue(meta.getPrimary() != null && meta.getPrimary().isPrimaryKey(), "Primary key must be found.");
+
+    EntityMeta.Column testOut = meta.getColumn("testOut");
+    Assert.isTrue(testOut != null && testOut.isForeign(), "testOut must be a foreign key.");
+    Assert.isTrue("test_out_id".equals(testOut.getColumn()), "Foreign key column must be test_out_id");
+  }
+
+  @Test
+  public void testGetValue() {
+    TestOut out = new TestOut();
+    out.setId(100L);
+    TestEntity entity = new TestEntity();
+    entity.setTitle("title");
+    entity.setTestOut(out);
+
+    EntityMeta meta = EntityMeta.of(TestEntity.class);
+    Assert.isTrue("title".equals(meta.getColumn("title").getValue(entity)), "Value of title must be 'title'");
+    Assert.isTrue(Long.valueOf(100L).equals(meta.getColumn("testOut").getValue(entity)), "Foreign key value must be the id.");
+  }
+}
@@ -0,0 +1,321 @@
+package com.github.catstiger.common.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+import com.github.catstiger.common.sql.count.CachedCountStrategy;
+import com.github.catstiger.common.sql.count.CountStrategy;
+import com.github.catstiger.common.sql.count.ExactCountStrategy;
+import com.github.catstiger.common.sql.count.HasNextCountStrategy;
+import com.github.catstiger.common.sql.count.ParallelCountStrategy;
+import com.github.catstiger.common.sql.count.WindowCountStrategy;
+import com.github.catstiger.common.sql.limit.H2LimitSQL;
+import com.github.catstiger.common.sql.mapper.BeanPropertyRowMapperEx;
+import com.github.catstiger.common.util.IDUtil;
+
+public class JdbcTemplateProxyTest {
+  private static final int ROWS = 10000;
+  private static final AtomicInteger evaluated = new AtomicInteger();
+
+  private JdbcTemplateProxy jdbcTemplateProxy;
+  private CountingJdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:proxy;DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new CountingJdbcTemplate(dataSource);
+    jdbcTemplate.execute("DROP TABLE IF EXISTS t_test");
+    jdbcTemplate.execute("CREATE TABLE t_test (id BIGINT PRIMARY KEY, title VARCHAR(100), content VARCHAR(100), "
+        + "last_modified TIMESTAMP, test_out_id BIGINT)");
+    jdbcTemplateProxy = new JdbcTemplateProxy();
+    jdbcTemplateProxy.setJdbcTemplate(jdbcTemplate);
+  }
+
+  @Test
+  public void testUpdateAllById() {
+    List<TestEntity> entities = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setTitle("title" + i);
+      entities.add(entity);
+    }
+    Assert.isTrue(jdbcTemplateProxy.insertAll(entities) == ROWS, "All rows must be inserted.");
+
+    for (int i = 0; i < ROWS; i++) {
+      TestEntity entity = entities.get(i);
+      entity.setTitle("updated" + i);
+      if (i % 2 == 0) {
+        entity.setContent("content" + i);
+      }
+    }
+    jdbcTemplate.batches.set(0);
+    int[] counts = jdbcTemplateProxy.updateAllById(entities);
+
+    Assert.isTrue(counts.length == ROWS, "Must return a count for every row.");
+    for (int count : counts) {
+      Assert.isTrue(count == 1, "Every row must be updated.");
+    }
+    // 两种字段组合，每组ROWS / 2行，每批DEFAULT_BATCH_SIZE行
+    int expected = 2 * (ROWS / 2 / JdbcTemplateProxy.DEFAULT_BATCH_SIZE);
+    Assert.isTrue(jdbcTemplate.batches.get() == expected, "Round trips: " + jdbcTemplate.batches.get());
+    Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_test WHERE title LIKE 'updated%'",
+        Long.class) == ROWS, "Titles must be updated.");
+    Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_test WHERE content IS NOT NULL",
+        Long.class) == ROWS / 2, "Contents must be updated.");
+  }
+
+  @Test
+  public void testUpsertAll() {
+    TestEntity existing = new TestEntity();
+    existing.setTitle("existing");
+    existing.setContent("content");
+    jdbcTemplateProxy.insertAll(Arrays.asList(existing));
+
+    existing.setTitle("updated");
+    existing.setContent(null);
+    TestEntity created = new TestEntity();
+    created.setId(IDUtil.nextId());
+    created.setTitle("created");
+    int[] counts = jdbcTemplateProxy.upsertAll(Arrays.asList(existing, created));
+
+    Assert.isTrue(counts.length == 2 && counts[0] == 1 && counts[1] == 1, "Both rows must be written.");
+    Assert.isTrue("updated".equals(jdbcTemplate.queryForObject("SELECT title FROM t_test WHERE id=?", String.class,
+        existing.getId())), "Existing row must be updated.");
+    Assert.isTrue("content".equals(jdbcTemplate.queryForObject("SELECT content FROM t_test WHERE id=?", String.class,
+        existing.getId())), "Null columns must be left alone.");
+    Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_test", Long.class) == 2L, "New row must be inserted.");
+  }
+
+  @Test
+  public void testNamedParameters() {
+    List<TestEntity> entities = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setId(IDUtil.nextId());
+      entity.setTitle("title" + i);
+      entities.add(entity);
+    }
+    Assert.isTrue(jdbcTemplateProxy.update(new SQLRequest(entities.get(0)).namedParams(true).insert()) == 1,
+        "Named insert must be executed.");
+    String insert = new SQLRequest(entities.get(1)).namedParams(true).insert().getSql();
+    int[] counts = jdbcTemplateProxy.batchUpdateEntities(insert, entities.subList(1, 3));
+    Assert.isTrue(counts.length == 2 && counts[0] == 1 && counts[1] == 1, "Named batch must be executed.");
+
+    Map<String, Object> params = new HashMap<>();
+    params.put("ids", Arrays.asList(entities.get(0).getId(), entities.get(2).getId()));
+    List<TestEntity> found = jdbcTemplateProxy.queryNamed("SELECT id, title FROM t_test WHERE id IN (:ids) ORDER BY title",
+        params, TestEntity.class);
+    Assert.isTrue(found.size() == 2 && "title2".equals(found.get(1).getTitle()), "Collections must be expanded.");
+    Assert.isTrue(NamedSQL.of(insert) == NamedSQL.of(insert), "Parsed SQL must be cached.");
+  }
+
+  @Test
+  public void testStream() {
+    List<TestEntity> entities = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setTitle("title" + i);
+      entities.add(entity);
+    }
+    jdbcTemplateProxy.insertAll(entities);
+
+    SQLReady sqlReady = new SQLReady("SELECT id, title FROM t_test WHERE title LIKE ?", "title%");
+    AtomicInteger visited = new AtomicInteger();
+    long rows = jdbcTemplateProxy.forEach(sqlReady, TestEntity.class, entity -> visited.incrementAndGet());
+    Assert.isTrue(rows == ROWS && visited.get() == ROWS, "Every row must be visited.");
+
+    try (Stream<TestEntity> stream = jdbcTemplateProxy.stream(sqlReady, (rs, rowNum) -> {
+      TestEntity entity = new TestEntity();
+      entity.setTitle(rs.getString("title"));
+      return entity;
+    }, 100)) {
+      Assert.isTrue(stream.filter(entity -> entity.getTitle().endsWith("9")).count() == ROWS / 10,
+          "Stream must be filtered lazily.");
+    }
+
+    // H2的延迟执行：只计算读取的行
+    jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS EVALUATE_ROW FOR \"" + getClass().getName() + ".evaluateRow\"");
+    evaluated.set(0);
+    try (Stream<Long> stream = jdbcTemplateProxy.stream(new SQLReady("SELECT EVALUATE_ROW(id) AS id FROM t_test"),
+        (rs, rowNum) -> rs.getLong("id"), 100)) {
+      Assert.isTrue(stream.findFirst().isPresent(), "Stream must not be empty.");
+    }
+    Assert.isTrue(evaluated.get() < ROWS, "H2 must execute streaming queries lazily: " + evaluated.get());
+  }
+
+  /**
+   * H2函数，记录计算的行数
+   */
+  public static long evaluateRow(long id) {
+    evaluated.incrementAndGet();
+    return id;
+  }
+
+  @Test
+  public void testKeysetPage() {
+    List<TestEntity> entities = new ArrayList<>();
+    for (int i = 0; i < 95; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setTitle("title" + (i % 7)); // 排序字段有重复的值
+      entities.add(entity);
+    }
+    jdbcTemplateProxy.insertAll(entities);
+
+    SQLReady sqlReady = new SQLReady("SELECT id, title FROM t_test t WHERE t.title LIKE ? ORDER BY t.id", "title%")
+        .withLimitSql(new H2LimitSQL());
+    Page page = new Page(0, 10).keyset("t.title", "t.id", false);
+    List<TestEntity> all = new ArrayList<>();
+    int pages = 0;
+    do {
+      all.addAll(jdbcTemplateProxy.queryBySqlReady(sqlReady, page, TestEntity.class));
+      page.after(page.getNextToken());
+      pages++;
+    } while (page.getAfter() != null);
+
+    Assert.isTrue(pages == 10 && all.size() == 95, "Pages: " + pages + ", rows: " + all.size());
+    for (int i = 1; i < all.size(); i++) {
+      TestEntity prev = all.get(i - 1);
+      TestEntity cur = all.get(i);
+      int cmp = prev.getTitle().compareTo(cur.getTitle());
+      Assert.isTrue(cmp < 0 || (cmp == 0 && prev.getId() < cur.getId()), "Rows must be ordered by (title, id).");
+    }
+  }
+
+  @Test
+  public void testGetAll() {
+    List<TestEntity> entities = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setTitle("title" + i);
+      entities.add(entity);
+    }
+    jdbcTemplateProxy.insertAll(entities);
+    jdbcTemplateProxy.setInListSize(4);
+
+    List<Long> ids = new ArrayList<>();
+    for (int i = 19; i >= 0; i -= 2) {
+      ids.add(entities.get(i).getId());
+    }
+    ids.add(entities.get(19).getId()); // 重复的ID
+    ids.add(-1L); // 不存在的ID
+    List<TestEntity> found = jdbcTemplateProxy.getAll(TestEntity.class, ids);
+    Assert.isTrue(found.size() == 10, "Found: " + found.size());
+    for (int i = 0; i < found.size(); i++) {
+      Assert.isTrue(found.get(i).getId().equals(ids.get(i)) && found.get(i).getTitle().equals("title" + (19 - i * 2)),
+          "Results must be in id order.");
+    }
+
+    Map<Long, TestEntity> map = jdbcTemplateProxy.getAllAsMap(TestEntity.class, Arrays.asList(ids.get(0), -1L));
+    Assert.isTrue(map.size() == 1 && map.containsKey(ids.get(0)), "Missing ids must be skipped.");
+    Assert.isTrue(jdbcTemplateProxy.getAll(TestEntity.class, new ArrayList<Long>()).isEmpty(), "Empty ids.");
+  }
+
+  @Test
+  public void testAsync() throws Exception {
+    TestEntity entity = new TestEntity();
+    entity.setTitle("async");
+    jdbcTemplateProxy.insertAll(Arrays.asList(entity));
+    AsyncQueryExecutor executor = AsyncQueryExecutor.fixed(2);
+    jdbcTemplateProxy.setAsyncExecutor(executor);
+
+    CompletableFuture<TestEntity> found = jdbcTemplateProxy.getAsync(TestEntity.class, entity.getId());
+    CompletableFuture<List<TestEntity>> list = jdbcTemplateProxy.queryAsync(
+        new SQLReady("SELECT id, title FROM t_test WHERE title=?", "async"), TestEntity.class);
+    CompletableFuture<Integer> updated = jdbcTemplateProxy.updateAsync(
+        new SQLReady("UPDATE t_test SET content=? WHERE id=?", "content", entity.getId()));
+    CompletableFuture.allOf(found, list, updated).get(10, TimeUnit.SECONDS);
+    Assert.isTrue("async".equals(found.get().getTitle()) && list.get().size() == 1 && updated.get() == 1,
+        "Async calls must complete.");
+
+    // 占满两个线程，后续的查询在队列中等待直到超时，超时之后不再执行
+    CountDownLatch latch = new CountDownLatch(1);
+    for (int i = 0; i < 2; i++) {
+      executor.submit(new CancellableCall(0), () -> {
+        try {
+          return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          return false;
+        }
+      }, 0L, TimeUnit.MILLISECONDS);
+    }
+    CompletableFuture<Integer> timedOut = jdbcTemplateProxy.updateAsync(
+        new SQLReady("UPDATE t_test SET content=? WHERE id=?", "late", entity.getId()), 50, TimeUnit.MILLISECONDS);
+    try {
+      timedOut.get(10, TimeUnit.SECONDS);
+      Assert.isTrue(false, "Must time out.");
+    } catch (ExecutionException e) {
+      Assert.isTrue(e.getCause() instanceof TimeoutException, "Must time out.");
+    }
+    latch.countDown();
+    executor.close();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    Assert.isTrue("content".equals(jdbcTemplate.queryForObject("SELECT content FROM t_test WHERE id=?", String.class,
+        entity.getId())), "Timed out update must not run.");
+  }
+
+  @Test
+  public void testCountStrategies() {
+    List<TestEntity> entities = new ArrayList<>();
+    for (int i = 0; i < 95; i++) {
+      TestEntity entity = new TestEntity();
+      entity.setTitle("title" + i);
+      entities.add(entity);
+    }
+    jdbcTemplateProxy.insertAll(entities);
+    SQLReady sqlReady = new SQLReady("SELECT id, title FROM t_test WHERE title LIKE ? ORDER BY id", "title%")
+        .withLimitSql(new H2LimitSQL());
+    BeanPropertyRowMapperEx<TestEntity> mapper = new BeanPropertyRowMapperEx<>(TestEntity.class);
+
+    CountStrategy[] exactStrategies = { new ExactCountStrategy(), new ParallelCountStrategy(), new WindowCountStrategy() };
+    for (CountStrategy strategy : exactStrategies) {
+      Page page = jdbcTemplateProxy.queryPage(sqlReady, new Page(90, 10), mapper, strategy);
+      Assert.isTrue(page.getRows().size() == 5 && page.getTotal() == 95 && page.isTotalExact() && !page.isHasNext(),
+          strategy.getName() + ": " + page.getTotal());
+      Assert.isTrue(page.getCountStrategy() != null, "Strategy must be reported.");
+    }
+
+    CachedCountStrategy cached = new CachedCountStrategy(1, TimeUnit.MINUTES);
+    Assert.isTrue(jdbcTemplateProxy.queryPage(sqlReady, new Page(0, 10), mapper, cached).isTotalExact(),
+        "First count must be exact.");
+    Page page = jdbcTemplateProxy.queryPage(sqlReady, new Page(10, 10), mapper, cached);
+    Assert.isTrue(page.getTotal() == 95 && !page.isTotalExact() && cached.getCacheStats().hitCount() == 1,
+        "Count must be cached.");
+
+    page = jdbcTemplateProxy.queryPage(sqlReady, new Page(80, 10), mapper, new HasNextCountStrategy());
+    Assert.isTrue(page.getRows().size() == 10 && page.isHasNext() && !page.isTotalExact()
+        && HasNextCountStrategy.NAME.equals(page.getCountStrategy()), "Must look one row ahead.");
+  }
+
+  /**
+   * 记录batchUpdate的调用次数
+   */
+  static class CountingJdbcTemplate extends JdbcTemplate {
+    final AtomicInteger batches = new AtomicInteger();
+
+    CountingJdbcTemplate(DriverManagerDataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+      batches.incrementAndGet();
+      return super.batchUpdate(sql, batchArgs);
+    }
+  }
+}
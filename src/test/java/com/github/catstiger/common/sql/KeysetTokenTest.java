@@ -0,0 +1,36 @@
+package com.github.catstiger.common.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class KeysetTokenTest {
+
+  @Test
+  public void testRoundTrip() {
+    BigInteger unsigned = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+    KeysetToken token = KeysetToken.decode(new KeysetToken(unsigned, unsigned).encode());
+    Assert.isTrue(unsigned.equals(token.getSortValue()) && unsigned.equals(token.getId()),
+        "BIGINT UNSIGNED values must survive: " + token);
+
+    Timestamp ts = new Timestamp(1500000000123L);
+    ts.setNanos(123456789);
+    token = KeysetToken.decode(new KeysetToken(ts, 42L).encode());
+    Assert.isTrue(ts.equals(token.getSortValue()) && Long.valueOf(42L).equals(token.getId()), token.toString());
+
+    token = KeysetToken.decode(new KeysetToken(new BigDecimal("12.50"), 7).encode());
+    Assert.isTrue(new BigDecimal("12.50").equals(token.getSortValue()) && Long.valueOf(7L).equals(token.getId()),
+        token.toString());
+
+    token = KeysetToken.decode(new KeysetToken(null, "aéb").encode());
+    Assert.isTrue(token.getSortValue() == null && "aéb".equals(token.getId()), token.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalid() {
+    KeysetToken.decode("not a token");
+  }
+}
@@ -0,0 +1,33 @@
+package com.github.catstiger.common.sql;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+import com.github.catstiger.common.sql.limit.H2LimitSQL;
+
+public class PreparedQueryTest {
+
+  @Test
+  public void testCompile() {
+    SQLReady sqlReady = new SQLReady("SELECT id, title FROM t_test WHERE 1=1").append("AND title=?", "title").orderBy("id");
+    PreparedQuery query = PreparedQuery.compile(sqlReady);
+    sqlReady.append("AND content=?", "content");
+
+    Assert.isTrue("SELECT id, title FROM t_test WHERE 1=1 AND title=?  ORDER BY id".equals(query.getSql().trim()),
+        query.getSql());
+    Assert.isTrue(!query.getCountSql().contains("ORDER BY"), query.getCountSql());
+    Assert.isTrue(query.getArgs().length == 1, "Later appends must not change the compiled query.");
+    Assert.isTrue(query.getLimitSql() == query.getLimitSql(), "Limit SQL must be compiled once.");
+    Assert.isTrue(query.getLimitSql().endsWith(" limit ?,?"), query.getLimitSql());
+  }
+
+  @Test
+  public void testLimitArgs() {
+    PreparedQuery query = PreparedQuery.compile("SELECT id FROM t_test WHERE title=?").withLimitSql(new H2LimitSQL());
+    Assert.isTrue(query.getLimitSql().endsWith(" limit ? offset ?"), query.getLimitSql());
+
+    Object[] args = query.limitArgs(new Object[] {"title"}, 30, 15);
+    Assert.isTrue(args.length == 3 && "title".equals(args[0]), "Query args must come first.");
+    Assert.isTrue(Integer.valueOf(15).equals(args[1]) && Integer.valueOf(30).equals(args[2]), "H2 uses limit, offset.");
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.catstiger.common.sql;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class SQLFactoryTest {
+
+  @Test
+  public void testInsertTemplate() {
+    TestEntity entity = new TestEntity();
+    entity.setId(1L);
+    entity.setTitle("title");
+    SQLReady first = new SQLRequest(entity).insertNonNull();
+
+    TestEntity another = new TestEntity();
+    another.setId(2L);
+    another.setTitle("another");
+    SQLReady second = new SQLRequest(another).insertNonNull();
+
+    Assert.isTrue(first.getSql().equals(second.getSql()), "Same non-null columns must reuse the same template.");
+    Assert.isTrue(second.getArgs().length == 2, "Must have 2 args.");
+    Assert.isTrue(Long.valueOf(2L).equals(second.getArgs()[0]) && "another".equals(second.getArgs()[1]), "Wrong args.");
+
+    another.setContent("content");
+    SQLReady third = new SQLRequest(another).insertNonNull();
+    Assert.isTrue(third.getSql().contains("content"), "Content must be included:\n" + third.getSql());
+    Assert.isTrue(third.getArgs().length == 3, "Must have 3 args.");
+  }
+
+  @Test
+  public void testUpdateById() {
+    TestOut out = new TestOut();
+    out.setId(10L);
+    TestEntity entity = new TestEntity();
+    entity.setId(1L);
+    entity.setTitle("title");
+    entity.setTestOut(out);
+
+    SQLReady sqlReady = new SQLRequest(entity).updateById();
+    Assert.isTrue("UPDATE t_test SET test_out_id=?,title=? WHERE id=?".equals(sqlReady.getSql()), sqlReady.getSql());
+    Object[] args = sqlReady.getArgs();
+    Assert.isTrue(args.length == 3 && Long.valueOf(10L).equals(args[0]) && Long.valueOf(1L).equals(args[2]), "Wrong args.");
+  }
+
+  @Test
+  public void testSelectByIdsKeepsRequest() {
+    SQLRequest request = new SQLRequest(TestEntity.class, true).byId(true);
+    String byIds = SQLFactory.getInstance().selectByIds(request, 4).getSql();
+    Assert.isTrue(byIds.contains("IN (?,?,?,?)") && !byIds.contains("id=?"), byIds);
+    Assert.isTrue(request.isById(), "selectByIds must not change the request.");
+    String select = SQLFactory.getInstance().select(request).getSql();
+    Assert.isTrue(select.trim().endsWith("id=?"), "The request must still select by id:\n" + select);
+  }
+
+  @Test
+  public void testSelectCacheKey() {
+    SQLRequest.Key key = new SQLRequest(TestEntity.class, true).includes("title").cacheKey();
+    Assert.isTrue(key.equals(new SQLRequest(TestEntity.class, true).includes("title").cacheKey()), "Keys must be equal.");
+    Assert.isTrue(!key.equals(new SQLRequest(TestEntity.class, true).includes("content").cacheKey()), "Keys must not be equal.");
+
+    SQLFactory sqlFactory = SQLFactory.getInstance();
+    String sql = new SQLRequest(TestEntity.class, "t").selectById().getSql();
+    long hits = sqlFactory.getSqlCacheStats().hitCount();
+    Assert.isTrue(sql.equals(new SQLRequest(TestEntity.class, "t").selectById().getSql()), "SQL must be the same.");
+    Assert.isTrue(sqlFactory.getSqlCacheStats().hitCount() == hits + 1, "Second select must hit the cache.");
+  }
+
+  @Test
+  public void testInsertBatch() {
+    TestEntity first = new TestEntity();
+    first.setTitle("first");
+    TestEntity second = new TestEntity();
+    second.setTitle("second");
+    second.setContent("content");
+    TestEntity third = new TestEntity();
+    third.setTitle("third");
+
+    List<SQLBatch> batches = SQLFactory.getInstance().insertBatch(Arrays.asList(first, second, third));
+    Assert.isTrue(batches.size() == 2, "Entities must be grouped by non-null columns.");
+    Assert.isTrue(batches.get(0).size() == 2 && batches.get(1).size() == 1, "Wrong group size.");
+    Assert.isTrue(batches.get(0).getSql().equals(new SQLRequest(first).insertNonNull().getSql()), "Template must be shared.");
+    Assert.isTrue(first.getId() != null, "Id must be generated.");
+
+    List<SQLReady> statements = SQLFactory.getInstance().multiValues(batches.get(0), 10);
+    Assert.isTrue(statements.size() == 1 && statements.get(0).getArgs().length == 4, "Rows must be merged.");
+    Assert.isTrue(statements.get(0).getSql().endsWith("?,?),(\n?,?)"), statements.get(0).getSql());
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.catstiger.common.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.base.Joiner;
+
+/**
+ * 比较{@link SQLReady}的增量缓冲区与原来每次调用getSql都用Joiner组合片段的实现。
+ * 模拟一次分页查询：构建10~20个片段的SQL，然后分别调用getSql、countSql、limitSql和getArgs。
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.catstiger.common.sql.SQLReadyBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SQLReadyBenchmark {
+  @Param({ "10", "20" })
+  private int fragments;
+
+  @Benchmark
+  public void joiner(Blackhole bh) {
+    JoinedSQL joined = new JoinedSQL("SELECT id, name, dept_id FROM t_user u WHERE 1=1");
+    for (int i = 1; i < fragments; i++) {
+      joined.append("AND u.col_" + (i % 10) + " = ?", i);
+    }
+    // 分页查询：COUNT、LIMIT
+    bh.consume(SQLFactory.getInstance().countSql(joined.getSql()));
+    bh.consume(SQLFactory.getInstance().limitSql(joined.getSql(), 20, 10, SQLRequest.DEFAULT_LIMIT_SQL));
+    bh.consume(joined.getSql());
+    bh.consume(joined.getArgs());
+    bh.consume(joined.getArgs());
+  }
+
+  @Benchmark
+  public void buffer(Blackhole bh) {
+    SQLReady sqlReady = new SQLReady("SELECT id, name, dept_id FROM t_user u WHERE 1=1");
+    for (int i = 1; i < fragments; i++) {
+      sqlReady.append("AND u.col_" + (i % 10) + " = ?", i);
+    }
+    bh.consume(sqlReady.countSql());
+    bh.consume(sqlReady.limitSql(20, 10));
+    bh.consume(sqlReady.getSql());
+    bh.consume(sqlReady.getArgs());
+    bh.consume(sqlReady.getArgs());
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(SQLReadyBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+  /**
+   * 原来的实现：片段保存在List中，每次getSql都重新join，每次getArgs都重新toArray
+   */
+  private static final class JoinedSQL {
+    private final List<String> appended = new ArrayList<>(10);
+    private final List<Object> args = new ArrayList<>(10);
+
+    private JoinedSQL(String sql) {
+      appended.add(sql);
+    }
+
+    private JoinedSQL append(String sqlSegment, Object... appendArgs) {
+      appended.add(sqlSegment);
+      for (Object arg : appendArgs) {
+        args.add(arg);
+      }
+      return this;
+    }
+
+    private String getSql() {
+      return Joiner.on(" ").join(appended);
+    }
+
+    private Object[] getArgs() {
+      return args.toArray(new Object[args.size()]);
+    }
+  }
+}
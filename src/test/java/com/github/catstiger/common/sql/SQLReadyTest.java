@@ -29,6 +29,46 @@ public class SQLReadyTest {
     Assert.isTrue(StringUtils.trim(sqlReady.getSql()).endsWith("id=?"), "Must be end with byID \n" + sqlReady.getSql());
   }
 
+  @Test
+  public void testAppend() {
+    SQLReady sqlReady = new SQLReady("SELECT id FROM t_user").where().where().and("name = ?", "a").or("or age > ?", 18);
+    Assert.isTrue("SELECT id FROM t_user WHERE 1=1 AND name = ? or age > ?".equals(sqlReady.getSql()), sqlReady.getSql());
+    String sql = sqlReady.getSql();
+    Assert.isTrue(sql == sqlReady.getSql(), "SQL must be memoized.");
+
+    sqlReady.orderBy("name", SQLReady.DESC).orderBy("id");
+    Assert.isTrue(sql != sqlReady.getSql(), "Appending must reset the memoized SQL.");
+    Assert.isTrue(StringUtils.countMatches(sqlReady.getSql(), "ORDER BY") == 1
+        && sqlReady.getSql().contains("ORDER BY name desc") && StringUtils.trim(sqlReady.getSql()).endsWith(", id"),
+        sqlReady.getSql());
+
+    sqlReady = new SQLReady("SELECT id FROM t_user").where("name = ?", "a").where("WHERE age > ?", 18);
+    Assert.isTrue("SELECT id FROM t_user WHERE name = ? WHERE age > ?".equals(sqlReady.getSql()), sqlReady.getSql());
+    sqlReady = new SQLReady("SELECT id FROM t_user").where().and("name = ?", false, "a").appendIfExists("AND code = ?", " ");
+    Assert.isTrue("SELECT id FROM t_user WHERE 1=1".equals(sqlReady.getSql()), sqlReady.getSql());
+    Assert.isTrue(sqlReady.getArgs().length == 0, "Skipped segments must not add args.");
+  }
+
+  @Test
+  public void testArgs() {
+    Object[] initial = { 1L, "a" };
+    SQLReady sqlReady = new SQLReady("SELECT id FROM t_user WHERE id = ? AND name = ?", initial);
+    initial[0] = 2L;
+    Assert.isTrue(Long.valueOf(1L).equals(sqlReady.getArgs()[0]), "Constructor args must be copied.");
+
+    for (int i = 0; i < 25; i++) {
+      sqlReady.append("AND code <> ?", i);
+    }
+    sqlReady.addArg("last");
+    Object[] args = sqlReady.getArgs();
+    Assert.isTrue(args.length == 28 && "a".equals(args[1]) && Integer.valueOf(24).equals(args[26])
+        && "last".equals(args[27]), "Args must keep placeholder order.");
+
+    args[0] = 3L;
+    Assert.isTrue(Long.valueOf(1L).equals(sqlReady.getArgs()[0]), "getArgs must return a copy.");
+    Assert.isTrue(sqlReady.getArgs() != sqlReady.getArgs(), "getArgs must return a new array.");
+  }
+
 }
 
 @Entity
@@ -0,0 +1,74 @@
+package com.github.catstiger.common.sql;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class SQLTokenizerTest {
+
+  @Test
+  public void testSimpleCount() {
+    String sql = "SELECT u.id, u.name FROM users u WHERE u.name like ? ORDER BY u.id DESC limit 0, 10";
+    SQLTokenizer tokenizer = SQLTokenizer.of(sql);
+    Assert.isTrue(tokenizer == SQLTokenizer.of(sql), "Result must be cached.");
+    Assert.isTrue(tokenizer.isSimpleSelect(), "Must be a simple select.");
+    Assert.isTrue("SELECT COUNT(*) FROM users u WHERE u.name like ?".equals(tokenizer.countSql()), tokenizer.countSql());
+    Assert.isTrue("SELECT u.id, u.name FROM users u WHERE u.name like ? ORDER BY u.id DESC".equals(tokenizer.removeLimit()),
+        tokenizer.removeLimit());
+  }
+
+  @Test
+  public void testNestedQuery() {
+    String sql = "SELECT DISTINCT d.id, (SELECT max(x.id) FROM x ORDER BY x.id limit 1) AS m FROM dept d "
+        + "WHERE d.name <> 'order by' /* order by */ ORDER BY d.id";
+    SQLTokenizer tokenizer = SQLTokenizer.of(sql);
+    Assert.isTrue(!tokenizer.isSimpleSelect(), "DISTINCT must not be removed.");
+    Assert.isTrue(tokenizer.removeOrders().endsWith("/* order by */"), tokenizer.removeOrders());
+    Assert.isTrue(tokenizer.removeOrders().contains("ORDER BY x.id limit 1"), "Order of sub query must be kept.");
+    Assert.isTrue(tokenizer.countSql().startsWith("SELECT COUNT(*) FROM (SELECT DISTINCT"), tokenizer.countSql());
+    Assert.isTrue(tokenizer.removeSelect().startsWith("FROM dept d"), tokenizer.removeSelect());
+  }
+
+  @Test
+  public void testParameters() {
+    String sql = "SELECT id FROM t_test WHERE title=? ORDER BY field(id, ?) LIMIT ?, ?";
+    SQLTokenizer tokenizer = SQLTokenizer.of(sql);
+    Assert.isTrue(sql.equals(tokenizer.removeOrders()), "Order by with parameters must be kept.");
+    Assert.isTrue(sql.equals(tokenizer.removeLimit()), "Limit with parameters must be kept.");
+  }
+
+  @Test
+  public void testAppendCondition() {
+    SQLTokenizer tokenizer = SQLTokenizer.of("SELECT u.id FROM users u WHERE u.a=? OR u.b=? ORDER BY u.id limit 10");
+    Assert.isTrue("SELECT u.id FROM users u WHERE (u.a=? OR u.b=?) AND (u.id) > (?)".equals(
+        tokenizer.appendCondition("(u.id) > (?)")), tokenizer.appendCondition("(u.id) > (?)"));
+    tokenizer = SQLTokenizer.of("SELECT dept_id, count(*) FROM users GROUP BY dept_id ORDER BY dept_id");
+    Assert.isTrue("SELECT dept_id, count(*) FROM users WHERE dept_id > ? GROUP BY dept_id".equals(
+        tokenizer.appendCondition("dept_id > ?")), tokenizer.appendCondition("dept_id > ?"));
+    Assert.isTrue(SQLTokenizer.of("SELECT id FROM a UNION SELECT id FROM b").appendCondition("id > ?") == null,
+        "Union must be wrapped.");
+  }
+
+  @Test
+  public void testTables() {
+    Assert.isTrue(SQLTokenizer.of("SELECT u.id FROM users u, `mydb`.Depts AS d LEFT JOIN roles r ON r.id=u.role_id "
+        + "WHERE u.id IN (SELECT user_id FROM user_groups) AND u.name <> 'from x'").getTables()
+        .equals(new HashSet<>(Arrays.asList("users", "depts", "roles", "user_groups"))), "Select tables.");
+    Assert.isTrue(SQLTokenizer.of("UPDATE users SET name=? WHERE id=?").getTables().equals(Collections.singleton("users")),
+        "Update table.");
+    Assert.isTrue(SQLTokenizer.of("INSERT INTO logs (a) VALUES (?) ON DUPLICATE KEY UPDATE a=VALUES(a)").getTables()
+        .equals(Collections.singleton("logs")), "Insert table.");
+    Assert.isTrue(SQLTokenizer.of("DROP TABLE IF EXISTS t_tmp").getTables().equals(Collections.singleton("t_tmp")),
+        "Drop table.");
+    Assert.isTrue(SQLTokenizer.of("SELECT u.id FROM users u").isQuery() && !SQLTokenizer.of("DELETE FROM users").isQuery(),
+        "Query statements.");
+    String delete = "DELETE FROM t_once WHERE id=?";
+    Assert.isTrue(SQLTokenizer.tablesOf(delete).equals(Collections.singleton("t_once")) && !SQLTokenizer.isCached(delete),
+        "Writes must not fill the tokenizer cache.");
+    Assert.isTrue(SQLTokenizer.tablesOf("UPDATE users SET name=? WHERE id=?").equals(Collections.singleton("users")),
+        "Cached tokenizers are reused.");
+  }
+}
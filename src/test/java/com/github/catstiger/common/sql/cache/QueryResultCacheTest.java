@@ -0,0 +1,95 @@
+package com.github.catstiger.common.sql.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.Assert;
+
+public class QueryResultCacheTest {
+  private static final String SQL = "SELECT u.id, u.name FROM t_user u JOIN t_dept d ON d.id=u.dept_id WHERE u.id=?";
+
+  @Test
+  public void testTtlAndInvalidation() {
+    QueryResultCache cache = new QueryResultCache();
+    AtomicInteger loads = new AtomicInteger();
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 2, "Tables without ttl must not be cached.");
+
+    cache.setTableTtl("t_user", 1, TimeUnit.MINUTES);
+    cache.setTableTtl("T_DEPT", 1, TimeUnit.MINUTES);
+    for (int i = 0; i < 3; i++) {
+      List<String> rows = cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+      Assert.isTrue(rows.equals(Arrays.asList("a", "b")), "Rows must be cached.");
+      rows.clear(); // 修改返回的列表不影响缓存
+    }
+    cache.get(SQL, new Object[] { 2L }, String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 4, "Loads: " + loads.get());
+    Assert.isTrue(cache.getStats().hitCount() == 2 && cache.getStats().missCount() == 2, cache.getStats().toString());
+
+    cache.invalidate("UPDATE t_log SET x=1");
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 4, "Other tables must not invalidate.");
+    cache.invalidate("update T_DEPT set name=? where id=?");
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 5, "Referenced tables must invalidate.");
+    Assert.isTrue(cache.getInvalidationCount() == 2 && cache.getStats().evictionCount() == 1, cache.getStats().toString());
+
+    cache.get("DELETE FROM t_user", new Object[0], String.class, () -> load(loads));
+    cache.get("DELETE FROM t_user", new Object[0], String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 7, "Only queries are cached.");
+  }
+
+  @Test
+  public void testRollback() {
+    QueryResultCache cache = new QueryResultCache(100, 100 * 1024, 1, TimeUnit.MINUTES);
+    AtomicInteger loads = new AtomicInteger();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.invalidate("UPDATE t_user SET name=? WHERE id=?");
+      cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+      cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+      Assert.isTrue(loads.get() == 2 && cache.size() == 0, "Tables written in a transaction must not be cached.");
+      cache.get("SELECT id FROM t_log", new Object[0], String.class, () -> load(loads));
+      Assert.isTrue(cache.size() == 1, "Other tables are still cached.");
+
+      TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_ROLLED_BACK);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    Assert.isTrue(!TransactionSynchronizationManager.hasResource(cache), "Resource must be unbound.");
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    cache.get(SQL, new Object[] { 1L }, String.class, () -> load(loads));
+    Assert.isTrue(loads.get() == 4, "Cached again after rollback: " + loads.get());
+  }
+
+  @Test
+  public void testBounds() {
+    QueryResultCache cache = new QueryResultCache(100, 100 * 1024, 1, TimeUnit.MINUTES);
+    AtomicInteger loads = new AtomicInteger();
+    for (long i = 0; i < 300; i++) {
+      cache.get(SQL, new Object[] { i }, String.class, () -> load(loads));
+    }
+    Assert.isTrue(cache.size() <= 100 && cache.getStats().evictionCount() >= 200, "Size: " + cache.size());
+    Assert.isTrue(cache.getWeightedSize() <= 100 * 1024, "Weight: " + cache.getWeightedSize());
+
+    List<String> big = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      big.add("value " + i);
+    }
+    Assert.isTrue(QueryResultCache.estimate(big) > 40 * 1000, "Estimate: " + QueryResultCache.estimate(big));
+  }
+
+  private List<String> load(AtomicInteger loads) {
+    loads.incrementAndGet();
+    return new ArrayList<>(Arrays.asList("a", "b"));
+  }
+}
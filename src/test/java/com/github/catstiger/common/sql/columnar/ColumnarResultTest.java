@@ -0,0 +1,58 @@
+package com.github.catstiger.common.sql.columnar;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+public class ColumnarResultTest {
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("DROP TABLE IF EXISTS t_order");
+    jdbcTemplate.execute("CREATE TABLE t_order (id BIGINT, dept VARCHAR(20), qty INT, amount DOUBLE)");
+    jdbcTemplate.update("INSERT INTO t_order VALUES (1, 'sales', 2, 10.5)");
+    jdbcTemplate.update("INSERT INTO t_order VALUES (2, 'dev', NULL, 3.0)");
+    jdbcTemplate.update("INSERT INTO t_order VALUES (3, 'sales', 5, NULL)");
+    jdbcTemplate.update("INSERT INTO t_order VALUES (4, NULL, 1, 7.0)");
+    jdbcTemplate.update("INSERT INTO t_order VALUES (5, 'dev', 4, 20.0)");
+  }
+
+  @Test
+  public void testColumns() {
+    ColumnarResult result = jdbcTemplate.query("SELECT * FROM t_order ORDER BY id", new ColumnarResultExtractor());
+    Assert.isTrue(result.getRowCount() == 5 && result.getColumnCount() == 4, "Rows and columns.");
+
+    LongColumn ids = result.getLongColumn("ID");
+    Assert.isTrue(ids.values().length == 5 && ids.sum() == 15L && ids.max().getAsLong() == 5L, "Long column.");
+    IntColumn qty = result.getIntColumn("qty");
+    Assert.isTrue(qty.isNull(1) && qty.nullCount() == 1 && qty.sum() == 12L, "Int column.");
+    Assert.isTrue(qty.min().getAsInt() == 1 && qty.getObject(1) == null, "Nulls must be skipped.");
+    DoubleColumn amount = result.getDoubleColumn("amount");
+    Assert.isTrue(amount.sum() == 40.5D && amount.min().getAsDouble() == 3.0D, "Double column.");
+
+    StringColumn dept = result.getStringColumn("dept");
+    Assert.isTrue(dept.cardinality() == 2 && Arrays.equals(dept.dictionary(), new String[] { "sales", "dev" }),
+        "Strings must be dictionary encoded.");
+    Assert.isTrue(dept.code(2) == 0 && dept.code(3) == StringColumn.NULL_CODE && dept.get(3) == null, "Codes.");
+  }
+
+  @Test
+  public void testAggregation() {
+    ColumnarResult result = jdbcTemplate.query("SELECT * FROM t_order ORDER BY id", new ColumnarResultExtractor());
+    Map<Object, Double> sums = result.sumBy("dept", "amount");
+    Assert.isTrue(sums.get("sales") == 10.5D && sums.get("dev") == 23.0D && sums.get(null) == 7.0D, "sumBy: " + sums);
+    Map<Object, Long> counts = result.countBy("dept");
+    Assert.isTrue(counts.get("sales") == 2L && counts.get(null) == 1L, "countBy: " + counts);
+    Assert.isTrue(result.countBy("qty").get(null) == 1L, "countBy on numbers.");
+
+    Assert.isTrue(Arrays.equals(result.topN("amount", 2, true), new int[] { 4, 0 }), "Top 2 amounts.");
+    Assert.isTrue(Arrays.equals(result.topN("qty", 10, false), new int[] { 3, 0, 4, 2 }), "Smallest quantities.");
+  }
+}
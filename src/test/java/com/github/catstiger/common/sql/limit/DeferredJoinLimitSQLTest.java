@@ -0,0 +1,53 @@
+package com.github.catstiger.common.sql.limit;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+public class DeferredJoinLimitSQLTest {
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:deferred;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("DROP TABLE IF EXISTS t_deferred");
+    jdbcTemplate.execute("CREATE TABLE t_deferred (id BIGINT PRIMARY KEY, title VARCHAR(100), score INT)");
+    for (int i = 0; i < 500; i++) {
+      jdbcTemplate.update("INSERT INTO t_deferred VALUES (?, ?, ?)", i, "title" + (i % 13), i % 17);
+    }
+  }
+
+  @Test
+  public void testEquivalence() {
+    LimitSQL plain = new H2LimitSQL();
+    LimitSQL deferred = new DeferredJoinLimitSQL(plain, 100, "id");
+    String[] sqls = {
+        "SELECT t.id, t.title, t.score FROM t_deferred t WHERE t.score > ? ORDER BY t.title, t.id",
+        "SELECT id, title FROM t_deferred WHERE score > ? ORDER BY score DESC, id",
+        "SELECT * FROM t_deferred AS t WHERE t.title LIKE 'title1%' OR t.score > ? ORDER BY t.id DESC" };
+    for (String sql : sqls) {
+      for (int start : new int[] {0, 100, 250, 490}) {
+        String rewritten = deferred.getLimitSql(sql, start, 20);
+        Assert.isTrue(start < 100 || rewritten.contains(" JOIN ("), rewritten);
+        List<Map<String, Object>> expected = jdbcTemplate.queryForList(plain.getLimitSql(sql, start, 20), 3);
+        List<Map<String, Object>> actual = jdbcTemplate.queryForList(rewritten, 3);
+        Assert.isTrue(expected.equals(actual), rewritten);
+      }
+    }
+  }
+
+  @Test
+  public void testFallback() {
+    LimitSQL deferred = new DeferredJoinLimitSQL(new H2LimitSQL(), 0, "id");
+    String join = "SELECT a.id FROM t_deferred a JOIN t_deferred b ON a.id = b.id ORDER BY a.id";
+    Assert.isTrue(deferred.getLimitSql(join, 100, 10).equals(new H2LimitSQL().getLimitSql(join, 100, 10)),
+        "Joins must not be rewritten.");
+    String group = "SELECT score, count(*) FROM t_deferred GROUP BY score";
+    Assert.isTrue(!deferred.getLimitSql(group, 100, 10).contains("dj_"), "Group by must not be rewritten.");
+  }
+}
@@ -0,0 +1,63 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+import com.github.catstiger.common.sql.mapper.RowMapperBenchmark.BenchRow;
+
+public class BeanPropertyRowMapperExTest {
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:mapper;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("DROP TABLE IF EXISTS t_bench_row");
+    jdbcTemplate.execute("CREATE TABLE t_bench_row (id BIGINT, title VARCHAR(50), view_count INT, score DECIMAL(10,2), "
+        + "bench_dept_id BIGINT)");
+    jdbcTemplate.update("INSERT INTO t_bench_row VALUES (1, 'first', 10, 1.5, 7)");
+    jdbcTemplate.update("INSERT INTO t_bench_row VALUES (2, 'second', NULL, NULL, NULL)");
+  }
+
+  @Test
+  public void testMapRow() {
+    BeanPropertyRowMapperEx<BenchRow> mapper = new BeanPropertyRowMapperEx<>(BenchRow.class);
+    mapper.setPrimitivesDefaultedForNullValue(true);
+    List<BenchRow> rows = jdbcTemplate.query("SELECT * FROM t_bench_row ORDER BY id", mapper);
+    Assert.isTrue(rows.size() == 2, "Two rows expected.");
+    BenchRow first = rows.get(0);
+    Assert.isTrue(first.getId() == 1L && "first".equals(first.getTitle()) && first.getViewCount() == 10,
+        "Columns must be mapped.");
+    Assert.isTrue(first.getScore() == 1.5D, "DECIMAL must be converted to Double.");
+    Assert.isTrue(first.getBenchDept() != null && first.getBenchDept().getId() == 7L, "Foreign key must be mapped.");
+    BenchRow second = rows.get(1);
+    Assert.isTrue(second.getViewCount() == 0 && second.getScore() == null && second.getBenchDept() == null,
+        "Nulls must be skipped.");
+
+    // 另一组列使用另一个映射计划
+    BenchRow aliased = jdbcTemplate.queryForObject("SELECT title AS \"AUTHOR NAME\" FROM t_bench_row WHERE id=1",
+        mapper);
+    Assert.isTrue("first".equals(aliased.getAuthorName()) && aliased.getTitle() == null, "Aliases must be mapped.");
+  }
+
+  @Test
+  public void testForeignIdColumnTypes() {
+    BeanPropertyRowMapperEx<BenchRow> mapper = new BeanPropertyRowMapperEx<>(BenchRow.class);
+    BenchRow numeric = jdbcTemplate.queryForObject("SELECT bench_dept_id FROM t_bench_row WHERE id=1", mapper);
+    // 同样的列名，不同的SQL类型，使用另一个映射计划
+    BenchRow text = jdbcTemplate.queryForObject(
+        "SELECT CAST(bench_dept_id AS VARCHAR(10)) AS bench_dept_id FROM t_bench_row WHERE id=1", mapper);
+    Assert.isTrue(numeric.getBenchDept().getId() == 7L && text.getBenchDept().getId() == 7L,
+        "Foreign keys must be mapped from numeric and text columns.");
+  }
+
+  @Test(expected = TypeMismatchException.class)
+  public void testNullPrimitive() {
+    jdbcTemplate.query("SELECT view_count FROM t_bench_row WHERE id=2", new BeanPropertyRowMapperEx<>(BenchRow.class));
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+public class CompactRowMapperTest {
+  @Test
+  public void testCompactRows() {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:compact;DB_CLOSE_DELAY=-1",
+        "sa", ""));
+    List<Map<String, Object>> rows = jdbcTemplate.query(
+        "SELECT x AS id, 'name ' || x AS name, x * 2 AS ID FROM SYSTEM_RANGE(1, 3) ORDER BY x", new CompactRowMapper());
+    Assert.isTrue(rows.size() == 3, "Three rows expected.");
+
+    Map<String, Object> first = rows.get(0);
+    Assert.isTrue(first.size() == 2 && Arrays.asList("ID", "NAME").equals(Arrays.asList(first.keySet().toArray())),
+        "Duplicated labels must be merged: " + first.keySet());
+    Assert.isTrue(((Number) first.get("id")).longValue() == 2L && "name 1".equals(first.get("Name")),
+        "Lookup must be case insensitive, the last duplicate wins.");
+    Assert.isTrue(first.containsKey("name") && !first.containsKey("missing") && first.get("missing") == null,
+        "containsKey.");
+    Assert.isTrue(((CompactRow) first).getHeader() == ((CompactRow) rows.get(2)).getHeader(), "Header must be shared.");
+
+    Map<String, Object> copy = new LinkedHashMap<>(rows.get(1));
+    Assert.isTrue(copy.equals(rows.get(1)) && rows.get(1).equals(copy) && copy.hashCode() == rows.get(1).hashCode(),
+        "Rows must equal ordinary maps.");
+    try {
+      first.put("name", "changed");
+      Assert.isTrue(false, "Rows must be read-only.");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
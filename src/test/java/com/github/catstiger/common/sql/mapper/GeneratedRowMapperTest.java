@@ -0,0 +1,50 @@
+package com.github.catstiger.common.sql.mapper;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.Assert;
+
+import com.github.catstiger.common.sql.mapper.RowMapperBenchmark.BenchRow;
+
+public class GeneratedRowMapperTest {
+  private static final String SQL = "SELECT id, title, view_count, score, created_at, bench_dept_id "
+      + "FROM t_generated ORDER BY id";
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:generated;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("DROP TABLE IF EXISTS t_generated");
+    jdbcTemplate.execute("CREATE TABLE t_generated (id BIGINT, title VARCHAR(50), view_count INT, score DOUBLE, "
+        + "created_at TIMESTAMP, bench_dept_id BIGINT)");
+    jdbcTemplate.update("INSERT INTO t_generated VALUES (1, 'first', 10, 1.5, CURRENT_TIMESTAMP, 7)");
+    jdbcTemplate.update("INSERT INTO t_generated VALUES (2, NULL, NULL, NULL, NULL, NULL)");
+  }
+
+  @Test
+  public void testSameAsReflection() {
+    Assert.isTrue(Mappers.byClass(BenchRow.class) instanceof GeneratedRowMapper, "Mappers must use generated mappers.");
+    GeneratedRowMapper<BenchRow> generated = new GeneratedRowMapper<>(BenchRow.class);
+    generated.setPrimitivesDefaultedForNullValue(true);
+    BeanPropertyRowMapperEx<BenchRow> reflective = new BeanPropertyRowMapperEx<>(BenchRow.class);
+    reflective.setPrimitivesDefaultedForNullValue(true);
+
+    List<BenchRow> expected = jdbcTemplate.query(SQL, reflective);
+    List<BenchRow> actual = jdbcTemplate.query(SQL, generated);
+    for (int i = 0; i < expected.size(); i++) {
+      BenchRow e = expected.get(i);
+      BenchRow a = actual.get(i);
+      Assert.isTrue(e.getId().equals(a.getId()) && e.getViewCount() == a.getViewCount(), "Row " + i);
+      Assert.isTrue(e.getTitle() == null ? a.getTitle() == null : e.getTitle().equals(a.getTitle()), "Title " + i);
+      Assert.isTrue(e.getScore() == null ? a.getScore() == null : e.getScore().equals(a.getScore()), "Score " + i);
+      Assert.isTrue(e.getCreatedAt() == null ? a.getCreatedAt() == null : e.getCreatedAt().equals(a.getCreatedAt()),
+          "Date " + i);
+    }
+    Assert.isTrue(actual.get(0).getBenchDept().getId() == 7L && actual.get(1).getBenchDept() == null,
+        "Foreign keys must be mapped.");
+  }
+}
@@ -0,0 +1,71 @@
+package com.github.catstiger.common.sql.metamodel;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class EntityMetamodelProcessorTest {
+  private static final String SOURCE = "package demo;\n"
+      + "import javax.persistence.*;\n"
+      + "@Entity @Table(name = \"users\")\n"
+      + "public class UserInfo {\n"
+      + "  private Long id; private String nickName; private int age; private java.util.List<String> tags;\n"
+      + "  @Id public Long getId() { return id; }\n"
+      + "  public void setId(Long id) { this.id = id; }\n"
+      + "  @Column(name = \"NICK\") public String getNickName() { return nickName; }\n"
+      + "  public void setNickName(String nickName) { this.nickName = nickName; }\n"
+      + "  public int getAge() { return age; }\n"
+      + "  public void setAge(int age) { this.age = age; }\n"
+      + "  private String properties;\n"
+      + "  public String getProperties() { return properties; }\n"
+      + "  public void setProperties(String properties) { this.properties = properties; }\n"
+      + "  public java.util.List<String> getTags() { return tags; }\n"
+      + "}\n";
+
+  @Test
+  public void testGenerate() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Assert.notNull(compiler, "A JDK is required.");
+    Path dir = Files.createTempDirectory("metamodel");
+    Path source = dir.resolve("demo/UserInfo.java");
+    Files.createDirectories(source.getParent());
+    Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+    int result = compiler.run(null, null, null, "-proc:only", "-processor", EntityMetamodelProcessor.class.getName(),
+        "-cp", System.getProperty("java.class.path"), "-s", dir.toString(), "-d", dir.toString(), source.toString());
+    Assert.isTrue(result == 0, "Processor must succeed.");
+    String generated = new String(Files.readAllBytes(dir.resolve("demo/UserInfo_Meta.java")), StandardCharsets.UTF_8);
+    Assert.isTrue(generated.contains("TABLE = \"users\"") && generated.contains("NICK_NAME = \"nick\""), generated);
+    Assert.isTrue(!generated.contains("TAGS"), "Collections must be ignored.");
+    Assert.isTrue(generated.contains("PROPERTIES = \"properties\""), "Properties named like members must compile.");
+    String index = new String(Files.readAllBytes(dir.resolve(Metamodels.ENTITY_INDEX)), StandardCharsets.UTF_8);
+    Assert.isTrue("demo.UserInfo".equals(index.trim()), index);
+
+    result = compiler.run(null, null, null, "-proc:none", "-cp", System.getProperty("java.class.path"), "-d",
+        dir.toString(), source.toString(), dir.resolve("demo/UserInfo_Meta.java").toString());
+    Assert.isTrue(result == 0, "Generated source must compile.");
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader())) {
+      Class<?> entityClass = loader.loadClass("demo.UserInfo");
+      @SuppressWarnings("unchecked")
+      EntityMetamodel<Object> metamodel = (EntityMetamodel<Object>) Metamodels.of(entityClass);
+      Assert.notNull(metamodel, "Generated metamodel must be found.");
+      Object entity = entityClass.newInstance();
+      metamodel.getAccessor("age").set(entity, 42);
+      Assert.isTrue(Integer.valueOf(42).equals(metamodel.getAccessor("age").get(entity)), "Accessor must call setter.");
+      Assert.isTrue(Arrays.asList(metamodel.getProperties()).contains("nickName"), "Properties must be listed.");
+      Assert.isTrue(Metamodels.indexedEntities(loader).contains("demo.UserInfo"), "Index must be readable.");
+      Assert.isTrue(Metamodels.indexedRoots(loader).contains(dir.toUri().toURL().toString()),
+          "Indexed roots: " + Metamodels.indexedRoots(loader));
+    }
+    Assert.isTrue(Metamodels.of(String.class) == null, "Classes without metamodel fall back to reflection.");
+  }
+}
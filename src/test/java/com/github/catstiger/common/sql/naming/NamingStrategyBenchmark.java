@@ -0,0 +1,111 @@
+package com.github.catstiger.common.sql.naming;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.catstiger.common.sql.NamingStrategy;
+
+/**
+ * 比较命名策略按照实体类和属性查找表名、字段名的开销。{@code legacy}模拟原来的实现：
+ * 每次用{@code 类名#属性名}拼接Key，然后在一个所有策略共用的Map中{@code containsKey}和{@code get}。
+ * 可以加上{@code -prof gc}观察每次操作分配的内存。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamingStrategyBenchmark {
+  @Param({ "camel", "snake", "abbreviation", "simple" })
+  private String strategyName;
+
+  private NamingStrategy strategy;
+  private Field[] fields;
+  private final Map<String, String> legacyCache = new ConcurrentHashMap<>(64);
+
+  @Setup
+  public void setUp() {
+    switch (strategyName) {
+      case "snake":
+        strategy = new SnakeCaseNamingStrategy();
+        break;
+      case "abbreviation":
+        strategy = new AbbreviationNamingStrategy();
+        break;
+      case "simple":
+        strategy = new SimpleNamingStrategy();
+        break;
+      default:
+        strategy = new CamelCaseNamingStrategy();
+    }
+    fields = BenchEntity.class.getDeclaredFields();
+  }
+
+  @Benchmark
+  public void classValue(Blackhole bh) {
+    bh.consume(strategy.tablename(BenchEntity.class));
+    bh.consume(strategy.tableAlias(BenchEntity.class));
+    for (Field field : fields) {
+      bh.consume(strategy.columnName(BenchEntity.class, field));
+    }
+  }
+
+  @Benchmark
+  public void legacy(Blackhole bh) {
+    bh.consume(legacyLookup(BenchEntity.class.getName(), "@table"));
+    bh.consume(legacyLookup(BenchEntity.class.getName(), "@alias"));
+    for (Field field : fields) {
+      bh.consume(legacyLookup(BenchEntity.class.getName(), field.getName()));
+    }
+  }
+
+  private String legacyLookup(String className, String fieldname) {
+    String key = new StringBuilder(100).append(className).append("#").append(fieldname).toString();
+    if (legacyCache.containsKey(key)) {
+      return legacyCache.get(key);
+    }
+    legacyCache.put(key, fieldname);
+    return fieldname;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(NamingStrategyBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+  @Entity
+  @Table(name = "bench_entity")
+  static class BenchEntity {
+    private Long id;
+    private String title;
+    private String content;
+    private String authorName;
+    private Integer viewCount;
+    private Long createdAt;
+    private Long updatedAt;
+    private Boolean published;
+  }
+}
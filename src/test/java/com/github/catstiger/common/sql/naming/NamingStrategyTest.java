@@ -0,0 +1,32 @@
+package com.github.catstiger.common.sql.naming;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+import org.junit.Test;
+import org.springframework.util.Assert;
+
+public class NamingStrategyTest {
+
+  @Test
+  public void testStrategiesDoNotShareNames() {
+    AbbreviationNamingStrategy abbreviation = new AbbreviationNamingStrategy();
+    CamelCaseNamingStrategy camelCase = new CamelCaseNamingStrategy();
+
+    Assert.isTrue("ui".equals(abbreviation.tableAlias(UserInfo.class)), abbreviation.tableAlias(UserInfo.class));
+    Assert.isTrue("UserInfo".equals(camelCase.tableAlias(UserInfo.class)), camelCase.tableAlias(UserInfo.class));
+    Assert.isTrue("ui".equals(new AbbreviationNamingStrategy().tableAlias(UserInfo.class)), "Names must be shared by strategy class.");
+    Assert.isTrue("user_info".equals(camelCase.tablename(UserInfo.class)), camelCase.tablename(UserInfo.class));
+    Assert.isTrue("nick_name".equals(camelCase.columnName(UserInfo.class, "nickName")), "Column must be snake case.");
+  }
+
+  @Entity
+  @Table(name = "user_info")
+  static class UserInfo {
+    private String nickName;
+
+    public String getNickName() {
+      return nickName;
+    }
+  }
+}
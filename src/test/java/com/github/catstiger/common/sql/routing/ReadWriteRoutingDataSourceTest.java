@@ -0,0 +1,105 @@
+package com.github.catstiger.common.sql.routing;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+public class ReadWriteRoutingDataSourceTest {
+  private ReadWriteRoutingDataSource routing;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readOnly;
+  private TransactionTemplate readWrite;
+
+  @Before
+  public void setUp() {
+    DataSource primary = database("primary");
+    DataSource replica1 = database("replica1");
+    DataSource replica2 = database("replica2");
+    routing = new ReadWriteRoutingDataSource(primary, Arrays.asList(replica1, replica2));
+    DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    readWrite = new TransactionTemplate(transactionManager);
+    ReadWriteRouting.clear();
+  }
+
+  private DataSource database(String name) {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:rw_" + name + ";DB_CLOSE_DELAY=-1",
+        "sa", "");
+    JdbcTemplate template = new JdbcTemplate(dataSource);
+    template.execute("DROP TABLE IF EXISTS t_node");
+    template.execute("CREATE TABLE t_node (name VARCHAR(20))");
+    template.update("INSERT INTO t_node (name) VALUES (?)", name);
+    return dataSource;
+  }
+
+  private String node() {
+    return jdbcTemplate.queryForObject("SELECT name FROM t_node", String.class);
+  }
+
+  @Test
+  public void testRouting() {
+    Set<String> nodes = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      nodes.add(readOnly.execute(status -> node()));
+    }
+    Assert.isTrue(nodes.equals(new HashSet<>(Arrays.asList("replica1", "replica2"))), "Read-only: " + nodes);
+    Assert.isTrue(ReadWriteRouting.onReplica(() -> node()).startsWith("replica"), "Marked queries must use replicas.");
+
+    Assert.isTrue("primary".equals(readWrite.execute(status -> node())), "Read-write must use primary.");
+    Assert.isTrue(readOnly.execute(status -> node()).startsWith("replica"), "Reads on primary must not stick.");
+    readWrite.execute(status -> {
+      jdbcTemplate.update("UPDATE t_node SET name = name");
+      status.setRollbackOnly();
+      return null;
+    });
+    Assert.isTrue(readOnly.execute(status -> node()).startsWith("replica"), "Rolled back writes must not stick.");
+
+    readWrite.execute(status -> jdbcTemplate.update("UPDATE t_node SET name = name"));
+    // 写操作提交之后，在粘滞时间窗口之内读主库
+    Assert.isTrue("primary".equals(readOnly.execute(status -> node())), "Reads after write must stick to primary.");
+    Assert.isTrue("primary".equals(ReadWriteRouting.onReplica(() -> node())), "Marked queries must stick too.");
+
+    ReadWriteRouting.clear();
+    Assert.isTrue(readOnly.execute(status -> node()).startsWith("replica"), "Stickiness must end with the request.");
+    Assert.isTrue("primary".equals(ReadWriteRouting.onPrimary(() -> readOnly.execute(status -> node()))),
+        "onPrimary must use primary.");
+    Assert.isTrue(readOnly.execute(status -> node()).startsWith("replica"), "onPrimary must not stick.");
+
+    jdbcTemplate.execute("UPDATE t_node SET name = name"); // 自动提交
+    Assert.isTrue("primary".equals(readOnly.execute(status -> node())), "Auto-commit writes must stick.");
+  }
+
+  @Test
+  public void testLeastInFlight() throws Exception {
+    routing.setLoadBalance(LoadBalance.LEAST_IN_FLIGHT);
+    Connection held = ReadWriteRouting.onReplica(() -> {
+      try {
+        return routing.getConnection();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    int busy = routing.getInFlight(0) == 1 ? 0 : 1;
+    Assert.isTrue(routing.getInFlight(busy) == 1, "Connection must be counted.");
+    for (int i = 0; i < 3; i++) {
+      Assert.isTrue(("replica" + (2 - busy)).equals(readOnly.execute(status -> node())), "Idle replica must be used.");
+    }
+    held.close();
+    Assert.isTrue(routing.getInFlight(0) == 0 && routing.getInFlight(1) == 0, "Closed connections must be released.");
+  }
+}